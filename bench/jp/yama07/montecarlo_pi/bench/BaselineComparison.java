@@ -0,0 +1,97 @@
+package jp.yama07.montecarlo_pi.bench;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * JMHのCSV結果をベースラインと比較し、性能の変化を表示するクラス
+ *
+ * 使い方: BaselineComparison baseline.csv current.csv [許容する悪化率(%)]<BR>
+ * 許容値を超えて遅くなったベンチマークがあれば終了コード1で終了する。
+ *
+ * @author yama07
+ */
+public class BaselineComparison {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: BaselineComparison baseline.csv current.csv [tolerance%]");
+            System.exit(2);
+        }
+        Map<String, Double> baseline = read(args[0]);
+        Map<String, Double> current = read(args[1]);
+        double tolerance = args.length > 2 ? Double.parseDouble(args[2]) : 10.0;
+
+        boolean regressed = false;
+        for (Map.Entry<String, Double> e : current.entrySet()) {
+            Double base = baseline.get(e.getKey());
+            if (base == null) {
+                System.out.printf(Locale.ROOT, "%-70s %14.3f %14s%n", e.getKey(), e.getValue(), "(new)");
+                continue;
+            }
+            // AverageTimeモードのため、値が大きいほど遅い
+            double change = (e.getValue() - base) / base * 100.0;
+            String mark = change > tolerance ? "  REGRESSION" : "";
+            regressed |= change > tolerance;
+            System.out.printf(Locale.ROOT, "%-70s %14.3f %+13.1f%%%s%n", e.getKey(), e.getValue(), change, mark);
+        }
+        if (regressed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * JMHのCSV結果を読み込み、ベンチマーク名とパラメータをキーとしたスコアを返す
+     *
+     * @param file CSVファイル
+     * @return スコア
+     * @throws IOException 読み込みに失敗した場合
+     */
+    static Map<String, Double> read(String file) throws IOException {
+        List<String> lines = Files.readAllLines(Paths.get(file), StandardCharsets.UTF_8);
+        Map<String, Double> scores = new LinkedHashMap<>();
+        if (lines.isEmpty()) {
+            return scores;
+        }
+        List<String> header = split(lines.get(0));
+        int scoreColumn = header.indexOf("Score");
+        for (String line : lines.subList(1, lines.size())) {
+            List<String> cols = split(line);
+            if (cols.size() <= scoreColumn) {
+                continue;
+            }
+            StringBuilder key = new StringBuilder(cols.get(0));
+            for (int i = scoreColumn + 3; i < cols.size(); i++) {
+                key.append(' ').append(header.get(i).replace("Param: ", "")).append('=').append(cols.get(i));
+            }
+            scores.put(key.toString(), Double.parseDouble(cols.get(scoreColumn)));
+        }
+        return scores;
+    }
+
+    private static List<String> split(String line) {
+        List<String> cols = new ArrayList<>();
+        StringBuilder col = new StringBuilder();
+        boolean quoted = false;
+        for (char c : line.toCharArray()) {
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (c == ',' && !quoted) {
+                cols.add(col.toString());
+                col.setLength(0);
+            } else {
+                col.append(c);
+            }
+        }
+        cols.add(col.toString());
+        return cols;
+    }
+
+}
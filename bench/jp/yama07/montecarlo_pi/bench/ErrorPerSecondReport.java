@@ -0,0 +1,52 @@
+package jp.yama07.montecarlo_pi.bench;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Locale;
+import jp.yama07.montecarlo_pi.SimulationEngine;
+import jp.yama07.montecarlo_pi.qmc.SamplingMethod;
+
+/**
+ * 点の生成方法ごとに、試行回数に対する推定誤差とCPU時間を表示するクラス
+ *
+ * 誤差はシードを変えて繰り返した推定値の真の円周率に対する二乗平均平方根誤差(RMSE)とする。
+ * 効率は 1 / (RMSE^2 × CPU秒) で、値が大きいほど同じCPU時間で高い精度に達する。
+ *
+ * 使い方: ErrorPerSecondReport [繰り返し回数] [最大の試行回数]
+ *
+ * @author yama07
+ */
+public class ErrorPerSecondReport {
+
+    public static void main(String[] args) {
+        int replicates = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        long maxTrials = args.length > 1 ? Long.parseLong(args[1]) : 1L << 24;
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+        System.out.println("sampling,trials,rmse,cpu_seconds_per_run,efficiency");
+        for (SamplingMethod sampling : SamplingMethod.values()) {
+            SimulationEngine engine = new SimulationEngine(0L, 1);
+            engine.setSampling(sampling);
+            // JITコンパイルを済ませる
+            engine.step(1L << 20);
+            for (long trials = 1L << 14; trials <= maxTrials; trials <<= 2) {
+                double squared = 0.0;
+                long cpu = 0L;
+                for (int r = 0; r < replicates; r++) {
+                    // 並列度1のstep()は呼び出したスレッドで計算するため、そのスレッドのCPU時間を測る
+                    engine.setSeed(r);
+                    long start = threads.getCurrentThreadCpuTime();
+                    double error = engine.step(trials).getEstimatedPI() - Math.PI;
+                    cpu += threads.getCurrentThreadCpuTime() - start;
+                    squared += error * error;
+                }
+                double rmse = Math.sqrt(squared / replicates);
+                double seconds = cpu / 1e9 / replicates;
+                System.out.printf(Locale.ROOT, "%s,%d,%.3e,%.6f,%.3e%n",
+                        sampling.name().toLowerCase(Locale.ROOT), trials, rmse, seconds, 1.0 / (rmse * rmse * seconds));
+            }
+            engine.shutdown();
+        }
+    }
+
+}
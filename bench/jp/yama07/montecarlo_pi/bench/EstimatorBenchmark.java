@@ -0,0 +1,60 @@
+package jp.yama07.montecarlo_pi.bench;
+
+import java.util.concurrent.TimeUnit;
+import jp.yama07.montecarlo_pi.estimator.Estimator;
+import jp.yama07.montecarlo_pi.estimator.EstimatorMoments;
+import jp.yama07.montecarlo_pi.estimator.Estimators;
+import jp.yama07.montecarlo_pi.random.RandomAlgorithm;
+import jp.yama07.montecarlo_pi.random.RandomSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 推定量ごとに標本1つあたりの時間を測るベンチマーク
+ *
+ * 同じ精度に達するまでの時間は、この結果に推定量の分散を掛けて比較する。
+ * 分散はMonteCarloCli --estimator allで表示できる。
+ *
+ * @author yama07
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EstimatorBenchmark {
+
+    private static final int SAMPLES = 1 << 16;
+
+    @Param({"hit", "antithetic", "control", "integral", "importance"})
+    private String estimatorName;
+
+    private Estimator estimator;
+    private RandomSource random;
+
+    @Setup
+    public void setup() {
+        estimator = Estimators.forName(estimatorName);
+        random = RandomAlgorithm.XOSHIRO256PP.create(42L);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public EstimatorMoments accumulate() {
+        EstimatorMoments moments = new EstimatorMoments();
+        estimator.accumulate(random, SAMPLES, moments);
+        return moments;
+    }
+
+}
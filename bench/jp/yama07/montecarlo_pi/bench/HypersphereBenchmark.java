@@ -0,0 +1,60 @@
+package jp.yama07.montecarlo_pi.bench;
+
+import java.util.concurrent.TimeUnit;
+import jp.yama07.montecarlo_pi.kernel.HitKernel;
+import jp.yama07.montecarlo_pi.kernel.HitKernels;
+import jp.yama07.montecarlo_pi.random.RandomAlgorithm;
+import jp.yama07.montecarlo_pi.random.RandomSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 次元数ごとに、d次元の点1つを単位球の内部判定するのに要する時間を測るベンチマーク
+ *
+ * 座標1つあたりの時間は、この結果を次元数で割って求める。
+ *
+ * @author yama07
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HypersphereBenchmark {
+
+    private static final int SAMPLES = 1 << 16;
+
+    @Param({"2", "3", "5", "8"})
+    private int dimensions;
+
+    @Param({"scalar", "vector"})
+    private String kernelName;
+
+    private HitKernel kernel;
+    private RandomSource random;
+
+    @Setup
+    public void setup() {
+        // モジュールが利用できない場合、vectorはスカラー版にフォールバックした結果となる
+        kernel = kernelName.equals("vector") ? HitKernels.vector() : HitKernels.forName(kernelName);
+        random = RandomAlgorithm.XOSHIRO256PP.create(42L);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public long count() {
+        return kernel.count(random, SAMPLES, dimensions);
+    }
+
+}
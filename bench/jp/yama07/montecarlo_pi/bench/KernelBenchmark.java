@@ -0,0 +1,72 @@
+package jp.yama07.montecarlo_pi.bench;
+
+import java.util.concurrent.TimeUnit;
+import jp.yama07.montecarlo_pi.kernel.HitKernel;
+import jp.yama07.montecarlo_pi.kernel.HitKernels;
+import jp.yama07.montecarlo_pi.random.RandomAlgorithm;
+import jp.yama07.montecarlo_pi.random.RandomSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * HitKernelの実装ごとに試行1回あたりの時間を測るベンチマーク
+ *
+ * Vector API版を測るには、JDK 16以降で次のように実行する。
+ * <pre>
+ * ant bench -Dbench.args="-jvmArgsAppend --add-modules=jdk.incubator.vector KernelBenchmark"
+ * </pre>
+ * モジュールが利用できない場合、vectorはスカラー版にフォールバックした結果となる。
+ * batchedの展開する点の数は、-p chunk=256,1024,4096のように指定して比べられる。0はキャッシュの大きさから決めた値。
+ * スカラー版に対する速度比はSpeedupReportで表示できる。
+ *
+ * @author yama07
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KernelBenchmark {
+
+    private static final int SAMPLES = 1 << 16;
+
+    @Param({"scalar", "batched", "vector"})
+    private String kernelName;
+
+    @Param({"0"})
+    private int chunk;
+
+    @Param({"XOSHIRO256PP", "SPLITMIX64"})
+    private String algorithmName;
+
+    private HitKernel kernel;
+    private RandomSource random;
+
+    @Setup
+    public void setup() {
+        if (kernelName.equals("vector")) {
+            kernel = HitKernels.vector();
+        } else {
+            kernel = kernelName.equals("batched") && chunk > 0 ? HitKernels.batched(chunk) : HitKernels.forName(kernelName);
+        }
+        random = RandomAlgorithm.valueOf(algorithmName).create(42L);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public long count() {
+        return kernel.count(random, SAMPLES);
+    }
+
+}
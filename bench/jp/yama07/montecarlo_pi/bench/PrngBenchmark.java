@@ -0,0 +1,142 @@
+package jp.yama07.montecarlo_pi.bench;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import jp.yama07.montecarlo_pi.random.PointSource;
+import jp.yama07.montecarlo_pi.random.RandomAlgorithm;
+import jp.yama07.montecarlo_pi.random.RandomSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 乱数生成器ごとに試行1回あたりの時間を測るベンチマーク
+ *
+ * @author yama07
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PrngBenchmark {
+
+    private static final int SAMPLES = 1 << 20;
+
+    private SplittableRandom splittableRandom;
+    private RandomSource splitMix64;
+    private RandomSource xoshiro;
+    private RandomSource pcg32;
+
+    @Setup
+    public void setup() {
+        splittableRandom = new SplittableRandom(42L);
+        splitMix64 = RandomAlgorithm.SPLITMIX64.create(42L);
+        xoshiro = RandomAlgorithm.XOSHIRO256PP.create(42L);
+        pcg32 = RandomAlgorithm.PCG32.create(42L);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public long mathRandom() {
+        long inside = 0;
+        for (int i = 0; i < SAMPLES; i++) {
+            double x = Math.random();
+            double y = Math.random();
+            if (x * x + y * y <= 1.0) {
+                inside++;
+            }
+        }
+        return inside;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public long threadLocalRandom() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long inside = 0;
+        for (int i = 0; i < SAMPLES; i++) {
+            double x = random.nextDouble();
+            double y = random.nextDouble();
+            if (x * x + y * y <= 1.0) {
+                inside++;
+            }
+        }
+        return inside;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public long splittableRandom() {
+        SplittableRandom random = splittableRandom;
+        long inside = 0;
+        for (int i = 0; i < SAMPLES; i++) {
+            double x = random.nextDouble();
+            double y = random.nextDouble();
+            if (x * x + y * y <= 1.0) {
+                inside++;
+            }
+        }
+        return inside;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public long splitMix64() {
+        return countTwoDraws(splitMix64);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public long xoshiro256PlusPlus() {
+        return countTwoDraws(xoshiro);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public long pcg32() {
+        return countTwoDraws(pcg32);
+    }
+
+    /**
+     * 1回の64bit乱数から座標の2成分を作る場合
+     */
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public long xoshiro256PlusPlusOneDraw() {
+        RandomSource random = xoshiro;
+        long inside = 0;
+        for (int i = 0; i < SAMPLES; i++) {
+            long bits = random.nextLong();
+            double x = PointSource.highDouble(bits);
+            double y = PointSource.lowDouble(bits);
+            if (x * x + y * y <= 1.0) {
+                inside++;
+            }
+        }
+        return inside;
+    }
+
+    private static long countTwoDraws(RandomSource random) {
+        long inside = 0;
+        for (int i = 0; i < SAMPLES; i++) {
+            double x = random.nextDouble();
+            double y = random.nextDouble();
+            if (x * x + y * y <= 1.0) {
+                inside++;
+            }
+        }
+        return inside;
+    }
+
+}
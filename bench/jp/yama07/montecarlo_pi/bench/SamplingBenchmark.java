@@ -0,0 +1,81 @@
+package jp.yama07.montecarlo_pi.bench;
+
+import java.util.concurrent.TimeUnit;
+import jp.yama07.montecarlo_pi.RandomPointGenerator;
+import jp.yama07.montecarlo_pi.SimulationEngine;
+import jp.yama07.montecarlo_pi.SimulationTimeline;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * 円の内部判定を含む試行全体の速度を測るベンチマーク
+ *
+ * Stream&lt;Point&gt;による従来の経路、プリミティブ値の経路、
+ * SimulationEngineの逐次・並列実行を試行回数ごとに比較する。
+ *
+ * @author yama07
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SamplingBenchmark {
+
+    @Param({"10000", "1000000", "20000000"})
+    private long samples;
+
+    private RandomPointGenerator generator;
+    private SimulationEngine sequential;
+    private SimulationEngine parallel;
+    private SimulationEngine frame;
+
+    @Setup
+    public void setup() {
+        generator = new RandomPointGenerator(1);
+        sequential = new SimulationEngine(42L, 1);
+        parallel = new SimulationEngine(42L, Runtime.getRuntime().availableProcessors());
+        frame = new SimulationEngine(42L, 1);
+    }
+
+    @Benchmark
+    public long pointStream() {
+        return generator.getPointStream().limit(samples).filter(p -> p.distFromOrigin() <= 1).count();
+    }
+
+    @Benchmark
+    public long primitive(Blackhole bh) {
+        return generator.countInside(samples, (x, y) -> bh.consume(x));
+    }
+
+    @Benchmark
+    public long engineSequential() {
+        return sequential.run(samples).getNumOfInside();
+    }
+
+    @Benchmark
+    public long engineParallel() {
+        return parallel.run(samples).getNumOfInside();
+    }
+
+    /**
+     * SimulationTimelineの1フレーム分の試行(描画を除く)
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public long timelineFrame(Blackhole bh) {
+        return frame.step(samples / SimulationTimeline.TRIALS_STEP, (x, y) -> bh.consume(x)).getNumOfInside();
+    }
+
+}
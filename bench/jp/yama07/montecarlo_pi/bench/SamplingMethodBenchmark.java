@@ -0,0 +1,54 @@
+package jp.yama07.montecarlo_pi.bench;
+
+import java.util.concurrent.TimeUnit;
+import jp.yama07.montecarlo_pi.RandomPointGenerator;
+import jp.yama07.montecarlo_pi.SimulationEngine;
+import jp.yama07.montecarlo_pi.qmc.SamplingMethod;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 点の生成方法ごとに試行1回あたりの時間を測るベンチマーク
+ *
+ * 同じ精度に達するまでの時間は、この結果とErrorPerSecondReportの誤差から比較できる。
+ *
+ * @author yama07
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SamplingMethodBenchmark {
+
+    private static final int SAMPLES = RandomPointGenerator.BLOCK_SIZE * 16;
+
+    @Param({"RANDOM", "STRATIFIED", "SOBOL", "HALTON"})
+    private String samplingName;
+
+    private SimulationEngine engine;
+
+    @Setup
+    public void setup() {
+        engine = new SimulationEngine(42L, 1);
+        engine.setSampling(SamplingMethod.valueOf(samplingName));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public long run() {
+        return engine.run(SAMPLES).getNumOfInside();
+    }
+
+}
@@ -0,0 +1,39 @@
+package jp.yama07.montecarlo_pi.bench;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * JMHのCSV結果から、基準とするパラメータ値に対する速度比を表示するクラス
+ *
+ * 使い方: SpeedupReport result.csv パラメータ名 基準値<BR>
+ * 例: SpeedupReport build/bench/jmh-result.csv kernelName scalar
+ *
+ * @author yama07
+ */
+public class SpeedupReport {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("usage: SpeedupReport result.csv param reference");
+            System.exit(2);
+        }
+        Map<String, Double> scores = BaselineComparison.read(args[0]);
+        String reference = args[1] + "=" + args[2];
+        for (Map.Entry<String, Double> e : scores.entrySet()) {
+            String key = e.getKey();
+            if (!key.contains(" " + args[1] + "=") || key.contains(" " + reference)) {
+                continue;
+            }
+            String referenceKey = key.replaceFirst(" " + args[1] + "=[^ ]*", " " + reference);
+            Double base = scores.get(referenceKey);
+            if (base == null) {
+                continue;
+            }
+            // AverageTimeモードのため、基準の値を自身の値で割ったものが速度比となる
+            System.out.printf(Locale.ROOT, "%-70s %8.2fx%n", key, base / e.getValue());
+        }
+    }
+
+}
@@ -0,0 +1,97 @@
+package jp.yama07.montecarlo_pi.kernel;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+import jp.yama07.montecarlo_pi.random.PointSource;
+
+/**
+ * jdk.incubator.vectorを用いて複数の点をまとめて判定するカーネル
+ *
+ * 座標をプリミティブ配列に展開し、x*x + y*y &le; 1 の判定をレーン単位で行い、
+ * マスクの真の数を数える。d次元の場合も次元ごとの配列から同様に判定する。
+ * 配列はBatchedHitKernelと同様にスレッドごとに1つだけ確保し、呼び出しのたびには割り当てない。
+ * JDK 16以降で --add-modules jdk.incubator.vector を指定した場合にのみ利用できる。
+ *
+ * @author yama07
+ */
+public class VectorHitKernel implements HitKernel {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    // 一度に展開する点の数
+    private static final int CHUNK = 1024;
+
+    private final ThreadLocal<double[][]> buffers = ThreadLocal.withInitial(() -> new double[2][CHUNK]);
+
+    @Override
+    public long count(PointSource random, int n) {
+        double[][] buffer = buffers.get();
+        double[] xs = buffer[0];
+        double[] ys = buffer[1];
+        long inside = 0;
+        for (int done = 0; done < n; done += CHUNK) {
+            int len = Math.min(CHUNK, n - done);
+            for (int i = 0; i < len; i++) {
+                long bits = random.nextLong();
+                xs[i] = PointSource.highDouble(bits);
+                ys[i] = PointSource.lowDouble(bits);
+            }
+            int upper = SPECIES.loopBound(len);
+            int i = 0;
+            for (; i < upper; i += SPECIES.length()) {
+                DoubleVector x = DoubleVector.fromArray(SPECIES, xs, i);
+                DoubleVector y = DoubleVector.fromArray(SPECIES, ys, i);
+                VectorMask<Double> hit = x.mul(x).add(y.mul(y)).compare(VectorOperators.LE, 1.0);
+                inside += hit.trueCount();
+            }
+            for (; i < len; i++) {
+                if (xs[i] * xs[i] + ys[i] * ys[i] <= 1.0) {
+                    inside++;
+                }
+            }
+        }
+        return inside;
+    }
+
+    /**
+     * 次元ごとの配列に展開した座標の2乗和をレーン単位で求め、単位球の内部の点を数える
+     */
+    @Override
+    public long count(PointSource random, int n, int dimensions) {
+        CoordinateBuffer buffer = CoordinateBuffer.local(dimensions);
+        long inside = 0;
+        for (int done = 0; done < n; done += CoordinateBuffer.CHUNK) {
+            int len = Math.min(CoordinateBuffer.CHUNK, n - done);
+            buffer.fill(random, len);
+            int upper = SPECIES.loopBound(len);
+            int i = 0;
+            for (; i < upper; i += SPECIES.length()) {
+                DoubleVector sum = DoubleVector.zero(SPECIES);
+                for (int j = 0; j < dimensions; j++) {
+                    DoubleVector c = DoubleVector.fromArray(SPECIES, buffer.getCoordinates(j), i);
+                    // スカラー版と丸めを揃えるため、fmaは使わない
+                    sum = sum.add(c.mul(c));
+                }
+                inside += sum.compare(VectorOperators.LE, 1.0).trueCount();
+            }
+            for (; i < len; i++) {
+                double r = 0.0;
+                for (int j = 0; j < dimensions; j++) {
+                    double c = buffer.getCoordinates(j)[i];
+                    r += c * c;
+                }
+                if (r <= 1.0) {
+                    inside++;
+                }
+            }
+        }
+        return inside;
+    }
+
+    @Override
+    public String getName() {
+        return "vector";
+    }
+
+}
@@ -0,0 +1,119 @@
+package jp.yama07.montecarlo_pi;
+
+/**
+ * 推定値の収束の過程を、一定数以下の点に間引いて記録するクラス
+ *
+ * (試行回数, 推定値)の組をプリミティブ配列に保持する。配列が一杯になると、
+ * それまでに記録した点を4点ずつのバケットに分け、各バケットの推定値の最小・最大の
+ * 2点だけを残して半分に間引く。古い点ほど間引かれる回数が多くなるため、
+ * 何十億回の試行でも点の数はcapacityを超えず、直近の経過は細かく残る。
+ *
+ * @author yama07
+ */
+public class ConvergenceRecorder {
+
+    private static final int BUCKET = 4;
+
+    private final long[] totals;
+    private final double[] estimates;
+    private int size;
+
+    /**
+     *
+     * @param capacity 保持する点の最大数(4以上)
+     */
+    public ConvergenceRecorder(int capacity) {
+        if (capacity < BUCKET) {
+            throw new IllegalArgumentException("capacity must be at least " + BUCKET + ": " + capacity);
+        }
+        this.totals = new long[capacity];
+        this.estimates = new double[capacity];
+    }
+
+    /**
+     * 点を記録する
+     *
+     * @param total 試行回数
+     * @param estimate 推定値
+     * @return 記録のために既存の点を間引いた場合true
+     */
+    public boolean record(long total, double estimate) {
+        boolean compacted = false;
+        if (size == totals.length) {
+            compact();
+            compacted = true;
+        }
+        totals[size] = total;
+        estimates[size] = estimate;
+        size++;
+        return compacted;
+    }
+
+    /**
+     * 記録した点を最小・最大によるバケット化で約半分に間引く
+     */
+    private void compact() {
+        int out = 0;
+        for (int from = 0; from < size; from += BUCKET) {
+            int to = Math.min(size, from + BUCKET);
+            int min = from;
+            int max = from;
+            for (int i = from + 1; i < to; i++) {
+                if (estimates[i] < estimates[min]) {
+                    min = i;
+                }
+                if (estimates[i] > estimates[max]) {
+                    max = i;
+                }
+            }
+            // 試行回数の順序を保つ
+            int first = Math.min(min, max);
+            int second = Math.max(min, max);
+            totals[out] = totals[first];
+            estimates[out] = estimates[first];
+            out++;
+            if (second != first) {
+                totals[out] = totals[second];
+                estimates[out] = estimates[second];
+                out++;
+            }
+        }
+        size = out;
+    }
+
+    /**
+     * 記録した点をすべて消去する
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getCapacity() {
+        return totals.length;
+    }
+
+    /**
+     * i番目の点の試行回数を返す
+     *
+     * @param i 点の番号
+     * @return 試行回数
+     */
+    public long getTotal(int i) {
+        return totals[i];
+    }
+
+    /**
+     * i番目の点の推定値を返す
+     *
+     * @param i 点の番号
+     * @return 推定値
+     */
+    public double getEstimate(int i) {
+        return estimates[i];
+    }
+
+}
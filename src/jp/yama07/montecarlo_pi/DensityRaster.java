@@ -0,0 +1,119 @@
+package jp.yama07.montecarlo_pi;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 生成された点をピクセル単位で数える密度グリッド
+ *
+ * 書き込みはスレッドごとのバッファに対して行うため、計算スレッド間で競合しない。
+ * 各バッファはsnapshot()の呼び出し時にまとめて合計される。
+ * 使用するメモリは点の数ではなく、グリッドの大きさとスレッド数で決まる。
+ * 終了したスレッドのバッファはclear()で破棄する。
+ *
+ * @author yama07
+ */
+public class DensityRaster {
+
+    private final int width;
+    private final int height;
+
+    // スレッドごとのバッファ
+    private final List<Buffer> buffers = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<int[]> local;
+
+    /**
+     *
+     * @param width グリッドの幅(ピクセル)
+     * @param height グリッドの高さ(ピクセル)
+     */
+    public DensityRaster(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.local = ThreadLocal.withInitial(() -> {
+            Buffer buffer = new Buffer(Thread.currentThread(), new int[width * height]);
+            buffers.add(buffer);
+            return buffer.counts;
+        });
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * 呼び出したスレッドのバッファに点を書き込むコールバックを返す。<BR>
+     * 座標(0 &le; x,y &lt; 1)はy軸を上向きとして、左下を原点にピクセルへ割り当てる。
+     * 返したコールバックは呼び出したスレッドでのみ使うこと。
+     *
+     * @return 点を書き込むコールバック
+     */
+    public PointConsumer writer() {
+        final int[] buffer = local.get();
+        return (x, y) -> {
+            int px = (int) (x * width);
+            int py = Math.min(height - 1, (int) ((1.0 - y) * height));
+            buffer[py * width + px]++;
+        };
+    }
+
+    /**
+     * すべてのスレッドのバッファを合計した、ピクセルごとの点の数を返す。<BR>
+     * 書き込み中に呼び出した場合、直近の書き込みが含まれないことがある。
+     *
+     * @param dst 結果を格納する配列。大きさが足りない場合は新たに作る
+     * @return ピクセルごとの点の数(行優先、上の行から)
+     */
+    public int[] snapshot(int[] dst) {
+        int size = width * height;
+        if (dst == null || dst.length < size) {
+            dst = new int[size];
+        } else {
+            Arrays.fill(dst, 0, size, 0);
+        }
+        for (Buffer buffer : buffers) {
+            int[] counts = buffer.counts;
+            for (int i = 0; i < size; i++) {
+                dst[i] += counts[i];
+            }
+        }
+        return dst;
+    }
+
+    /**
+     * すべてのバッファを0にし、終了したスレッドのバッファを破棄する。書き込み中に呼び出してはならない。
+     */
+    public void clear() {
+        for (Buffer buffer : buffers) {
+            Thread owner = buffer.owner.get();
+            if (owner == null || !owner.isAlive()) {
+                buffers.remove(buffer);
+            } else {
+                Arrays.fill(buffer.counts, 0);
+            }
+        }
+    }
+
+    /**
+     * 書き込むスレッドとそのバッファ
+     */
+    private static final class Buffer {
+
+        // スレッドの終了後も参照を残さない
+        private final WeakReference<Thread> owner;
+        private final int[] counts;
+
+        Buffer(Thread owner, int[] counts) {
+            this.owner = new WeakReference<>(owner);
+            this.counts = counts;
+        }
+
+    }
+
+}
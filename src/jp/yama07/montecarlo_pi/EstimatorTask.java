@@ -0,0 +1,60 @@
+package jp.yama07.montecarlo_pi;
+
+import java.util.concurrent.RecursiveTask;
+import jp.yama07.montecarlo_pi.estimator.Estimator;
+import jp.yama07.montecarlo_pi.estimator.EstimatorMoments;
+
+/**
+ * 試行をブロック単位に分割し、推定量の標本値を並列に集計するタスク
+ *
+ * ブロックの列はHitCountTaskと同じものを用いる。集計の結合順序は分割の形だけで
+ * 決まるため、並列度によらず同じシードからは同じ結果が得られる。
+ *
+ * @author yama07
+ */
+class EstimatorTask extends RecursiveTask<EstimatorMoments> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final PointSequence sequence;
+    private final Estimator estimator;
+    private final long trials;
+    private final long fromBlock;
+    private final long toBlock;
+
+    /**
+     *
+     * @param sequence 点の列
+     * @param estimator 推定量
+     * @param trials 全体の試行回数
+     * @param fromBlock 担当する先頭のブロック番号
+     * @param toBlock 担当する末尾のブロック番号(このブロックは含まない)
+     */
+    EstimatorTask(PointSequence sequence, Estimator estimator, long trials, long fromBlock, long toBlock) {
+        this.sequence = sequence;
+        this.estimator = estimator;
+        this.trials = trials;
+        this.fromBlock = fromBlock;
+        this.toBlock = toBlock;
+    }
+
+    @Override
+    protected EstimatorMoments compute() {
+        if (toBlock - fromBlock <= 1) {
+            EstimatorMoments moments = new EstimatorMoments();
+            long from = fromBlock * RandomPointGenerator.BLOCK_SIZE;
+            if (from < trials) {
+                int n = (int) Math.min(RandomPointGenerator.BLOCK_SIZE, trials - from);
+                estimator.accumulate(sequence.block(fromBlock), n, moments);
+            }
+            return moments;
+        }
+        long mid = (fromBlock + toBlock) >>> 1;
+        EstimatorTask left = new EstimatorTask(sequence, estimator, trials, fromBlock, mid);
+        EstimatorTask right = new EstimatorTask(sequence, estimator, trials, mid, toBlock);
+        left.fork();
+        EstimatorMoments r = right.compute();
+        return left.join().merge(r);
+    }
+
+}
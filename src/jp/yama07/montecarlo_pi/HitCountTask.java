@@ -0,0 +1,88 @@
+package jp.yama07.montecarlo_pi;
+
+import java.util.concurrent.RecursiveTask;
+import jp.yama07.montecarlo_pi.kernel.HitKernel;
+import jp.yama07.montecarlo_pi.stats.SimulationStatistics;
+
+/**
+ * 試行をブロック単位に分割し、円の内部に入った点の数を並列に数えるタスク
+ *
+ * 2次元以外の場合は、単位球の内部に入ったd次元の点の数を数える。
+ * 各ブロックはシードとブロック番号から決まる独立した列を持つため、
+ * 並列度によらず同じシードからは同じ結果が得られる。
+ *
+ * @author yama07
+ */
+class HitCountTask extends RecursiveTask<Long> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final PointSequence sequence;
+    private final HitKernel kernel;
+    private final int dimensions;
+    private final long trials;
+    private final long fromBlock;
+    private final long toBlock;
+    // 点を書き込む密度グリッド。不要な場合はnull
+    private final DensityRaster raster;
+    // ブロックごとの結果を加える集計。不要な場合はnull
+    private final SimulationStatistics statistics;
+
+    /**
+     *
+     * @param sequence 点の列
+     * @param kernel 判定を行うカーネル
+     * @param dimensions 次元数
+     * @param trials 全体の試行回数
+     * @param fromBlock 担当する先頭のブロック番号
+     * @param toBlock 担当する末尾のブロック番号(このブロックは含まない)
+     * @param raster 点を書き込む密度グリッド。2次元の場合のみ用いる。不要な場合はnull
+     * @param statistics ブロックごとの結果を加える集計。不要な場合はnull
+     */
+    HitCountTask(PointSequence sequence, HitKernel kernel, int dimensions, long trials, long fromBlock, long toBlock,
+            DensityRaster raster, SimulationStatistics statistics) {
+        this.sequence = sequence;
+        this.kernel = kernel;
+        this.dimensions = dimensions;
+        this.trials = trials;
+        this.fromBlock = fromBlock;
+        this.toBlock = toBlock;
+        this.raster = raster;
+        this.statistics = statistics;
+    }
+
+    @Override
+    protected Long compute() {
+        if (toBlock - fromBlock <= 1) {
+            return countBlock(fromBlock);
+        }
+        long mid = (fromBlock + toBlock) >>> 1;
+        HitCountTask left = new HitCountTask(sequence, kernel, dimensions, trials, fromBlock, mid, raster, statistics);
+        HitCountTask right = new HitCountTask(sequence, kernel, dimensions, trials, mid, toBlock, raster, statistics);
+        left.fork();
+        return right.compute() + left.join();
+    }
+
+    /**
+     * 1ブロック分の試行を行い、円の内部に入った点の数を返す
+     *
+     * @param block ブロック番号
+     * @return 円の内部に入った点の数
+     */
+    private long countBlock(long block) {
+        long from = block * RandomPointGenerator.BLOCK_SIZE;
+        long n = Math.min(RandomPointGenerator.BLOCK_SIZE, trials - from);
+        long inside;
+        if (dimensions != 2) {
+            inside = kernel.count(sequence.block(block), (int) n, dimensions);
+        } else {
+            SampleCursor cursor = new SampleCursor(sequence, kernel, from);
+            inside = raster == null ? cursor.count(n) : cursor.count(n, raster.writer());
+        }
+        if (statistics != null) {
+            statistics.add(inside, n);
+        }
+        return inside;
+    }
+
+}
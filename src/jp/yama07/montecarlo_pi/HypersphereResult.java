@@ -0,0 +1,134 @@
+package jp.yama07.montecarlo_pi;
+
+/**
+ * d次元の単位球の体積と、そこから求めた円周率の推定結果を表すクラス
+ *
+ * 単位超立方体[0,1)^dの点のうち単位球の内部に入る割合pは、単位球の体積Vの1/2^dとなる。
+ * Vは π^(d/2) / Γ(d/2 + 1) で、kを d/2 の整数部として c × π^k の形に書けるため、
+ * 推定した体積から円周率を (V / c)^(1/k) として求める。
+ *
+ * @author yama07
+ */
+public class HypersphereResult {
+
+    // 扱う次元数の上限
+    public static final int MAX_DIMENSIONS = 64;
+
+    private final int dimensions;
+    private final long numOfInside;
+    private final long numOfTotal;
+    private final long elapsedNanos;
+
+    /**
+     *
+     * @param dimensions 次元数
+     * @param numOfInside 単位球の内部にプロットされた数
+     * @param numOfTotal プロット数
+     * @param elapsedNanos 計算に要した時間(ナノ秒)
+     */
+    public HypersphereResult(int dimensions, long numOfInside, long numOfTotal, long elapsedNanos) {
+        this.dimensions = dimensions;
+        this.numOfInside = numOfInside;
+        this.numOfTotal = numOfTotal;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public int getDimensions() {
+        return dimensions;
+    }
+
+    public long getNumOfInside() {
+        return numOfInside;
+    }
+
+    public long getNumOfTotal() {
+        return numOfTotal;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * 推定した単位球の体積を返す
+     *
+     * @return 体積
+     */
+    public double getEstimatedVolume() {
+        return numOfTotal == 0 ? 0.0 : Math.scalb((double) numOfInside / numOfTotal, dimensions);
+    }
+
+    /**
+     * 推定した体積の標準誤差を二項分布から求める
+     *
+     * @return 標準誤差
+     */
+    public double getVolumeStandardError() {
+        if (numOfTotal == 0) {
+            return 0.0;
+        }
+        double p = (double) numOfInside / numOfTotal;
+        return Math.scalb(Math.sqrt(p * (1.0 - p) / numOfTotal), dimensions);
+    }
+
+    /**
+     * 推定した体積から求めた円周率を返す
+     *
+     * @return 円周率。単位球の内部に点がない場合は0
+     */
+    public double getEstimatedPI() {
+        return Math.pow(getEstimatedVolume() / coefficient(dimensions), 1.0 / (dimensions / 2));
+    }
+
+    /**
+     * 推定した円周率の標準誤差をデルタ法で求める。<BR>
+     * π = (V / c)^(1/k) より、標準誤差は π / k × (Vの標準誤差) / V となる。
+     *
+     * @return 標準誤差。単位球の内部に点がない場合は無限大
+     */
+    public double getPIStandardError() {
+        double volume = getEstimatedVolume();
+        if (volume == 0.0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return getEstimatedPI() / (dimensions / 2) * getVolumeStandardError() / volume;
+    }
+
+    /**
+     * 1秒あたりの試行回数を返す
+     *
+     * @return 1秒あたりの試行回数
+     */
+    public double getSamplesPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : numOfTotal * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * d次元の単位球の体積を返す
+     *
+     * @param dimensions 次元数
+     * @return 体積
+     */
+    public static double exactVolume(int dimensions) {
+        return coefficient(dimensions) * Math.pow(Math.PI, dimensions / 2);
+    }
+
+    /**
+     * 単位球の体積を c × π^(d/2の整数部) と書いたときのcを返す。<BR>
+     * V(0) = 1, V(1) = 2, V(d) = V(d - 2) × 2π / d の漸化式から求める。
+     */
+    private static double coefficient(int dimensions) {
+        double c = dimensions % 2 == 0 ? 1.0 : 2.0;
+        for (int d = dimensions % 2 + 2; d <= dimensions; d += 2) {
+            c *= 2.0 / d;
+        }
+        return c;
+    }
+
+    @Override
+    public String toString() {
+        return "HypersphereResult{" + "dimensions=" + dimensions + ", numOfInside=" + numOfInside + ", numOfTotal=" + numOfTotal
+                + ", estimatedVolume=" + getEstimatedVolume() + ", estimatedPI=" + getEstimatedPI() + ", elapsedNanos=" + elapsedNanos + '}';
+    }
+
+}
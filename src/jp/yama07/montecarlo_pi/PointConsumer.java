@@ -0,0 +1,21 @@
+package jp.yama07.montecarlo_pi;
+
+/**
+ * 生成された座標を受け取るコールバック
+ *
+ * Pointオブジェクトを介さずにプリミティブ値のまま座標を受け渡す。
+ *
+ * @author yama07
+ */
+@FunctionalInterface
+public interface PointConsumer {
+
+    /**
+     * 座標を受け取る
+     *
+     * @param x x座標
+     * @param y y座標
+     */
+    void accept(double x, double y);
+
+}
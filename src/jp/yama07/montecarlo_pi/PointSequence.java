@@ -0,0 +1,42 @@
+package jp.yama07.montecarlo_pi;
+
+import jp.yama07.montecarlo_pi.qmc.SamplingMethod;
+import jp.yama07.montecarlo_pi.random.RandomAlgorithm;
+import jp.yama07.montecarlo_pi.random.PointSource;
+
+/**
+ * 点の生成方法、乱数生成器の種類、シードの組
+ *
+ * 試行番号iの座標は、i / BLOCK_SIZE番目のブロックの列から生成される。
+ *
+ * @author yama07
+ */
+final class PointSequence {
+
+    private final SamplingMethod sampling;
+    private final RandomAlgorithm algorithm;
+    private final long seed;
+
+    /**
+     *
+     * @param sampling 点の生成方法
+     * @param algorithm 乱数生成器の種類
+     * @param seed 乱数のシード
+     */
+    PointSequence(SamplingMethod sampling, RandomAlgorithm algorithm, long seed) {
+        this.sampling = sampling;
+        this.algorithm = algorithm;
+        this.seed = seed;
+    }
+
+    /**
+     * ブロックの先頭から点を生成するRandomSourceを返す
+     *
+     * @param block ブロック番号
+     * @return 点を生成するRandomSource
+     */
+    PointSource block(long block) {
+        return sampling.create(algorithm, seed, block);
+    }
+
+}
@@ -1,35 +1,118 @@
 package jp.yama07.montecarlo_pi;
 
 import java.util.stream.Stream;
+import jp.yama07.montecarlo_pi.random.PointSource;
+import jp.yama07.montecarlo_pi.random.RandomAlgorithm;
+import jp.yama07.montecarlo_pi.random.RandomSource;
 
 /**
  * ランダムな座標を作り出すクラス
  *
+ * 乱数生成器を内部に持つため、1つのインスタンスを複数のスレッドから使ってはならない。
+ *
  * @author yama07
  */
 public class RandomPointGenerator {
 
+    // 並列計算時に1つのタスクが担当する試行回数
+    public static final int BLOCK_SIZE = 1 << 16;
+
     private final int range;
+    private final RandomAlgorithm algorithm;
+    private final RandomSource random;
 
     /**
+     * 乱数生成器はSimulationEngine.DEFAULT_ALGORITHM、シードは現在時刻とする
      *
      * @param range 作り出すランダム座標の範囲
      */
     public RandomPointGenerator(int range) {
+        this(range, SimulationEngine.DEFAULT_ALGORITHM, System.nanoTime());
+    }
+
+    /**
+     *
+     * @param range 作り出すランダム座標の範囲
+     * @param algorithm 乱数生成器の種類
+     * @param seed 乱数のシード
+     */
+    public RandomPointGenerator(int range, RandomAlgorithm algorithm, long seed) {
         this.range = range;
+        this.algorithm = algorithm;
+        this.random = algorithm.create(seed);
     }
 
     public int getRadius() {
         return range;
     }
 
+    public RandomAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
     /**
      * 0 &le; x &le; range , 0 &le; y &le; rangeのランダム座標を返す
      *
      * @return ランダム座標のStream
      */
     public Stream<Point> getPointStream() {
-        return Stream.generate(() -> new Point(Math.random() * range, Math.random() * range));
+        return Stream.generate(() -> new Point(random.nextDouble() * range, random.nextDouble() * range));
+    }
+
+    /**
+     * trials回の試行を行い、円の内部に入った点の数を返す。<BR>
+     * 点ごとのオブジェクト生成は行わず、原点からの距離の2乗を半径の2乗と比較する。
+     * 座標の2成分は1回の64bit乱数から作る。
+     *
+     * @param trials 試行回数
+     * @param action 生成した各座標を受け取るコールバック
+     * @return 円の内部に入った点の数
+     */
+    public long countInside(long trials, PointConsumer action) {
+        double radiusSq = (double) range * range;
+        long inside = 0;
+        for (long i = 0; i < trials; i++) {
+            long bits = random.nextLong();
+            double x = PointSource.highDouble(bits) * range;
+            double y = PointSource.lowDouble(bits) * range;
+            action.accept(x, y);
+            if (x * x + y * y <= radiusSq) {
+                inside++;
+            }
+        }
+        return inside;
+    }
+
+    /**
+     * trials回の試行を並列に行い、円の内部に入った点の数を返す。<BR>
+     * 試行はBLOCK_SIZE回ずつのブロックに分割され、ブロックごとに独立した乱数列を用いる。
+     * そのため同じseedであれば並列度によらず同じ結果となる。
+     *
+     * @param trials 試行回数
+     * @param seed 乱数のシード
+     * @param parallelism 並列度
+     * @return 円の内部に入った点の数
+     */
+    public long countInside(long trials, long seed, int parallelism) {
+        SimulationEngine engine = new SimulationEngine(seed, parallelism);
+        try {
+            engine.setAlgorithm(algorithm);
+            return engine.run(trials).getNumOfInside();
+        } finally {
+            // 呼び出しごとに作るスレッドプールを残さない
+            engine.shutdown();
+        }
+    }
+
+    /**
+     * 利用可能なCPUコア数を並列度として、trials回の試行を行う
+     *
+     * @param trials 試行回数
+     * @param seed 乱数のシード
+     * @return 円の内部に入った点の数
+     */
+    public long countInside(long trials, long seed) {
+        return countInside(trials, seed, Runtime.getRuntime().availableProcessors());
     }
 
 }
@@ -0,0 +1,100 @@
+package jp.yama07.montecarlo_pi;
+
+import jp.yama07.montecarlo_pi.kernel.HitKernel;
+import jp.yama07.montecarlo_pi.random.PointSource;
+
+/**
+ * ブロック単位の乱数列から順に試行を行うカーソル
+ *
+ * 試行番号iの座標は、i / BLOCK_SIZE番目のブロックの列から生成される。
+ * どこから数え始めても同じシードであれば同じ座標列となるため、
+ * 並列計算と逐次計算の結果が一致する。
+ * 座標の2成分は1回の64bit乱数の上位・下位32bitから作る。
+ *
+ * @author yama07
+ */
+class SampleCursor {
+
+    private final PointSequence sequence;
+    private final HitKernel kernel;
+    private long position;
+    private PointSource random;
+
+    /**
+     *
+     * @param sequence 点の列
+     * @param kernel 判定を行うカーネル
+     * @param position 開始する試行番号(BLOCK_SIZEの倍数)
+     */
+    SampleCursor(PointSequence sequence, HitKernel kernel, long position) {
+        if (position % RandomPointGenerator.BLOCK_SIZE != 0) {
+            throw new IllegalArgumentException("position must be aligned to BLOCK_SIZE: " + position);
+        }
+        this.sequence = sequence;
+        this.kernel = kernel;
+        this.position = position;
+    }
+
+    long getPosition() {
+        return position;
+    }
+
+    /**
+     * n回の試行を行い、単位円の内部に入った点の数を返す
+     *
+     * @param n 試行回数
+     * @return 単位円の内部に入った点の数
+     */
+    long count(long n) {
+        long inside = 0;
+        while (n > 0) {
+            int len = (int) Math.min(n, remainingInBlock());
+            inside += kernel.count(random(), len);
+            position += len;
+            n -= len;
+        }
+        return inside;
+    }
+
+    /**
+     * n回の試行を行い、単位円の内部に入った点の数を返す
+     *
+     * @param n 試行回数
+     * @param action 生成した各座標(0 &le; x,y &lt; 1)を受け取るコールバック
+     * @return 単位円の内部に入った点の数
+     */
+    long count(long n, PointConsumer action) {
+        long inside = 0;
+        while (n > 0) {
+            int len = (int) Math.min(n, remainingInBlock());
+            PointSource r = random();
+            for (int i = 0; i < len; i++) {
+                long bits = r.nextLong();
+                double x = PointSource.highDouble(bits);
+                double y = PointSource.lowDouble(bits);
+                action.accept(x, y);
+                if (x * x + y * y <= 1.0) {
+                    inside++;
+                }
+            }
+            position += len;
+            n -= len;
+        }
+        return inside;
+    }
+
+    private long remainingInBlock() {
+        return RandomPointGenerator.BLOCK_SIZE - position % RandomPointGenerator.BLOCK_SIZE;
+    }
+
+    /**
+     * 現在の試行番号に対応するブロックの列を返す
+     */
+    private PointSource random() {
+        if (random == null || position % RandomPointGenerator.BLOCK_SIZE == 0) {
+            random = sequence.block(position / RandomPointGenerator.BLOCK_SIZE);
+        }
+        return random;
+    }
+
+}
@@ -0,0 +1,508 @@
+package jp.yama07.montecarlo_pi;
+
+import java.util.concurrent.ForkJoinPool;
+import jp.yama07.montecarlo_pi.estimator.Estimator;
+import jp.yama07.montecarlo_pi.estimator.EstimatorMoments;
+import jp.yama07.montecarlo_pi.estimator.EstimatorResult;
+import jp.yama07.montecarlo_pi.kernel.HitKernel;
+import jp.yama07.montecarlo_pi.kernel.HitKernels;
+import jp.yama07.montecarlo_pi.qmc.SamplingMethod;
+import jp.yama07.montecarlo_pi.random.RandomAlgorithm;
+import jp.yama07.montecarlo_pi.stats.PrecisionTarget;
+import jp.yama07.montecarlo_pi.stats.SimulationStatistics;
+
+/**
+ * Monte Carlo法による円周率算出を行うクラス
+ *
+ * JavaFXに依存しないため、画面を持たない環境でも利用できる。
+ * 同じシードであれば、並列度や試行の区切り方によらず同じ結果となる。
+ *
+ * @author yama07
+ */
+public class SimulationEngine {
+
+    // 標準で用いる乱数生成器
+    public static final RandomAlgorithm DEFAULT_ALGORITHM = RandomAlgorithm.XOSHIRO256PP;
+    // 標準で用いる点の生成方法
+    public static final SamplingMethod DEFAULT_SAMPLING = SamplingMethod.RANDOM;
+
+    // 乱数生成器の種類
+    private RandomAlgorithm algorithm = DEFAULT_ALGORITHM;
+    // 点の生成方法
+    private SamplingMethod sampling = DEFAULT_SAMPLING;
+    // 判定を行うカーネル
+    private HitKernel kernel = HitKernels.defaultKernel();
+    // 乱数のシード
+    private long seed;
+    // 並列度
+    private int parallelism;
+
+    // 並列計算を行うスレッドプール。必要になった時点で作る
+    private ForkJoinPool pool;
+
+    // 逐次実行時の状態
+    private SampleCursor cursor;
+    private long numOfInside;
+    private long elapsedNanos;
+    // 逐次実行およびrun()の途中経過。計算スレッドがブロックごとに更新する
+    private final SimulationStatistics statistics = new SimulationStatistics();
+
+    /**
+     * シードは現在時刻、並列度は利用可能なCPUコア数とする
+     */
+    public SimulationEngine() {
+        this(System.nanoTime(), Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     *
+     * @param seed 乱数のシード
+     * @param parallelism 並列度
+     */
+    public SimulationEngine(long seed, int parallelism) {
+        this.seed = seed;
+        this.parallelism = parallelism;
+        reset();
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * シードを設定する。逐次実行の状態はリセットされる。
+     *
+     * @param seed 乱数のシード
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+        reset();
+    }
+
+    public RandomAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * 乱数生成器の種類を設定する。逐次実行の状態はリセットされる。
+     *
+     * @param algorithm 乱数生成器の種類
+     */
+    public void setAlgorithm(RandomAlgorithm algorithm) {
+        this.algorithm = algorithm;
+        reset();
+    }
+
+    public SamplingMethod getSampling() {
+        return sampling;
+    }
+
+    /**
+     * 点の生成方法を設定する。逐次実行の状態はリセットされる。
+     *
+     * @param sampling 点の生成方法
+     */
+    public void setSampling(SamplingMethod sampling) {
+        this.sampling = sampling;
+        reset();
+    }
+
+    public HitKernel getKernel() {
+        return kernel;
+    }
+
+    /**
+     * 判定を行うカーネルを設定する。逐次実行の状態はリセットされる。
+     *
+     * @param kernel 判定を行うカーネル
+     */
+    public void setKernel(HitKernel kernel) {
+        this.kernel = kernel;
+        reset();
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+        shutdown();
+    }
+
+    /**
+     * 現在の設定による点の列を返す
+     */
+    private PointSequence sequence() {
+        return new PointSequence(sampling, algorithm, seed);
+    }
+
+    /**
+     * 並列計算に用いるスレッドプールを返す
+     */
+    private synchronized ForkJoinPool pool() {
+        if (pool == null) {
+            pool = new ForkJoinPool(Math.max(1, parallelism));
+        }
+        return pool;
+    }
+
+    /**
+     * 並列計算に用いたスレッドプールを終了する。再び計算を行うと新たに作られる。
+     */
+    public synchronized void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+    }
+
+    /**
+     * trials回の試行を並列に行う。逐次実行の状態には影響しないが、途中経過は集計に加える。
+     *
+     * @param trials 試行回数
+     * @return シミュレーション結果
+     */
+    public SimulationResult run(long trials) {
+        if (trials < 0) {
+            throw new IllegalArgumentException("trials must not be negative: " + trials);
+        }
+        long start = System.nanoTime();
+        long inside = countBlocks(trials, 0, blocksOf(trials));
+        return new SimulationResult(inside, trials, System.nanoTime() - start);
+    }
+
+    /**
+     * trials回の試行のうち、指定した範囲のブロックだけを並列に計算する。<BR>
+     * 範囲を分けて計算した結果の和は、run(trials)の結果と一致する。
+     * 逐次実行の状態には影響しないが、途中経過は集計に加える。
+     *
+     * @param trials 全体の試行回数
+     * @param fromBlock 先頭のブロック番号
+     * @param toBlock 末尾のブロック番号(このブロックは含まない)
+     * @return 範囲内で円の内部にプロットされた数
+     */
+    public long countBlocks(long trials, long fromBlock, long toBlock) {
+        if (fromBlock < 0 || toBlock > blocksOf(trials) || fromBlock > toBlock) {
+            throw new IllegalArgumentException("invalid block range: [" + fromBlock + ", " + toBlock + ")");
+        }
+        if (fromBlock == toBlock) {
+            return 0L;
+        }
+        return pool().invoke(new HitCountTask(sequence(), kernel, 2, trials, fromBlock, toBlock, null, statistics));
+    }
+
+    /**
+     * trials回の試行のうち、指定した範囲のブロックを呼び出したスレッドで順に計算する。<BR>
+     * 外部のスレッドプールで細かく分けて計算する場合に用いる。結果はcountBlocks()と一致する。
+     * 逐次実行の状態には影響しない。
+     *
+     * @param trials 全体の試行回数
+     * @param fromBlock 先頭のブロック番号
+     * @param toBlock 末尾のブロック番号(このブロックは含まない)
+     * @return 範囲内で円の内部にプロットされた数
+     */
+    public long countBlocksInline(long trials, long fromBlock, long toBlock) {
+        if (fromBlock < 0 || toBlock > blocksOf(trials) || fromBlock > toBlock) {
+            throw new IllegalArgumentException("invalid block range: [" + fromBlock + ", " + toBlock + ")");
+        }
+        PointSequence sequence = sequence();
+        long inside = 0L;
+        for (long block = fromBlock; block < toBlock; block++) {
+            // 1ブロックのタスクは分割しないため、フォークせずにこのスレッドで計算される
+            inside += new HitCountTask(sequence, kernel, 2, trials, block, block + 1, null, null).compute();
+        }
+        return inside;
+    }
+
+    /**
+     * シードを変えてtrials回の試行をreplicates回繰り返し、結果をまとめる。<BR>
+     * 標準誤差は各回の推定値のばらつきから求めるため、二項分布を仮定できない
+     * 層別サンプリングや低食い違い量列でも誤差を見積もれる。逐次実行の状態には影響しない。
+     *
+     * @param trials 1回あたりの試行回数
+     * @param replicates 繰り返す回数(2以上)
+     * @return 全試行をまとめたシミュレーション結果
+     */
+    public SimulationResult runReplicates(long trials, int replicates) {
+        if (trials <= 0 || replicates < 2) {
+            throw new IllegalArgumentException("trials must be positive and replicates at least 2");
+        }
+        long start = System.nanoTime();
+        long inside = 0L;
+        double sum = 0.0;
+        double sumSq = 0.0;
+        for (int r = 0; r < replicates; r++) {
+            PointSequence replicate = new PointSequence(sampling, algorithm, seed + r);
+            long count = pool().invoke(new HitCountTask(replicate, kernel, 2, trials, 0, blocksOf(trials), null, null));
+            double pi = 4.0 * count / trials;
+            inside += count;
+            sum += pi;
+            sumSq += pi * pi;
+        }
+        double mean = sum / replicates;
+        double variance = Math.max(0.0, (sumSq - replicates * mean * mean) / (replicates - 1));
+        return new SimulationResult(inside, trials * replicates, System.nanoTime() - start,
+                Math.sqrt(variance / replicates));
+    }
+
+    /**
+     * d次元の単位球についてtrials回の試行を並列に行う。逐次実行の状態には影響しない。<BR>
+     * 点は次元ごとの配列に展開して判定する。2次元の点の列として設計された層別サンプリングや
+     * 低食い違い量列は、d次元の点には用いることができない。
+     *
+     * @param dimensions 次元数(2以上HypersphereResult.MAX_DIMENSIONS以下)
+     * @param trials 試行回数
+     * @return 推定結果
+     */
+    public HypersphereResult runHypersphere(int dimensions, long trials) {
+        if (dimensions < 2 || dimensions > HypersphereResult.MAX_DIMENSIONS) {
+            throw new IllegalArgumentException("dimensions must be in [2, " + HypersphereResult.MAX_DIMENSIONS + "]: " + dimensions);
+        }
+        if (dimensions != 2 && sampling != SamplingMethod.RANDOM) {
+            throw new IllegalStateException(sampling + " sampling only supports 2 dimensions");
+        }
+        if (trials <= 0) {
+            throw new IllegalArgumentException("trials must be positive: " + trials);
+        }
+        long start = System.nanoTime();
+        long inside = pool().invoke(new HitCountTask(sequence(), kernel, dimensions, trials, 0, blocksOf(trials), null, null));
+        return new HypersphereResult(dimensions, inside, trials, System.nanoTime() - start);
+    }
+
+    /**
+     * 推定量を用いてtrials回の試行を並列に行う。逐次実行の状態には影響しない。<BR>
+     * 点の列はrun()と同じもので、推定値とあわせて1標本あたりの分散を求める。
+     *
+     * @param estimator 推定量
+     * @param trials 試行回数
+     * @return 推定結果
+     */
+    public EstimatorResult estimate(Estimator estimator, long trials) {
+        if (trials <= 0) {
+            throw new IllegalArgumentException("trials must be positive: " + trials);
+        }
+        long start = System.nanoTime();
+        EstimatorMoments moments = pool().invoke(new EstimatorTask(sequence(), estimator, trials, 0, blocksOf(trials)));
+        return new EstimatorResult(estimator.getName(), moments.getCount(), estimator.getEstimate(moments),
+                estimator.getVariance(moments), System.nanoTime() - start);
+    }
+
+    /**
+     * 最大の試行回数まで1回だけ試行を行い、指定した試行回数に達するごとに結果を記録する。<BR>
+     * 各時点の結果は、同じシードでその回数だけrun()を実行した結果と一致する。
+     * 時点の間のブロック単位の部分は並列に計算し、ブロックの途中の部分だけを順に計算するため、
+     * 各試行は1回しか計算しない。逐次実行の状態には影響しないが、途中経過は集計に加える。
+     *
+     * @param checkpoints 結果を記録する試行回数(正で狭義の昇順)
+     * @return 各時点の結果
+     */
+    public SweepResult sweep(long[] checkpoints) {
+        if (checkpoints.length == 0) {
+            throw new IllegalArgumentException("no checkpoints");
+        }
+        for (int i = 0; i < checkpoints.length; i++) {
+            if (checkpoints[i] <= 0 || (i > 0 && checkpoints[i] <= checkpoints[i - 1])) {
+                throw new IllegalArgumentException("checkpoints must be positive and strictly increasing");
+            }
+        }
+        final long block = RandomPointGenerator.BLOCK_SIZE;
+        PointSequence sequence = sequence();
+        SampleCursor sweepCursor = new SampleCursor(sequence, kernel, 0L);
+        long[] insides = new long[checkpoints.length];
+        long[] elapsed = new long[checkpoints.length];
+        long inside = 0L;
+        long start = System.nanoTime();
+        for (int i = 0; i < checkpoints.length; i++) {
+            long position = sweepCursor.getPosition();
+            long bulkStart = (position + block - 1) / block * block;
+            long bulkEnd = checkpoints[i] / block * block;
+            if (bulkEnd > bulkStart) {
+                long head = sweepCursor.count(bulkStart - position);
+                statistics.add(head, bulkStart - position);
+                inside += head + countBlocks(bulkEnd, bulkStart / block, bulkEnd / block);
+                sweepCursor = new SampleCursor(sequence, kernel, bulkEnd);
+                position = bulkEnd;
+            }
+            long tail = sweepCursor.count(checkpoints[i] - position);
+            statistics.add(tail, checkpoints[i] - position);
+            inside += tail;
+            insides[i] = inside;
+            elapsed[i] = System.nanoTime() - start;
+        }
+        return new SweepResult(checkpoints, insides, elapsed);
+    }
+
+    /**
+     * trials回の試行を分割したブロックの数を返す
+     *
+     * @param trials 試行回数
+     * @return ブロックの数
+     */
+    public static long blocksOf(long trials) {
+        return (trials + RandomPointGenerator.BLOCK_SIZE - 1) / RandomPointGenerator.BLOCK_SIZE;
+    }
+
+    /**
+     * 逐次実行の状態をリセットする
+     */
+    public final void reset() {
+        cursor = new SampleCursor(sequence(), kernel, 0L);
+        numOfInside = 0L;
+        elapsedNanos = 0L;
+        statistics.reset();
+    }
+
+    /**
+     * 逐次実行の状態を、以前に計算した累積の結果から復元する。<BR>
+     * 乱数列はシードと試行番号から決まるため、同じ種類の乱数生成器とシードであれば
+     * 続きから計算した結果は最初から計算した場合と一致する。
+     *
+     * @param numOfInside 円の内部にプロットされた数
+     * @param numOfTotal プロット数
+     */
+    public void restore(long numOfInside, long numOfTotal) {
+        reset();
+        long aligned = numOfTotal - numOfTotal % RandomPointGenerator.BLOCK_SIZE;
+        cursor = new SampleCursor(sequence(), kernel, aligned);
+        cursor.count(numOfTotal - aligned);
+        this.numOfInside = numOfInside;
+        statistics.add(numOfInside, numOfTotal);
+    }
+
+    /**
+     * 前回の続きからn回の試行を行い、累積の結果を返す
+     *
+     * @param n 試行回数
+     * @param action 生成した各座標(0 &le; x,y &lt; 1)を受け取るコールバック
+     * @return これまでの累積のシミュレーション結果
+     */
+    public SimulationResult step(long n, PointConsumer action) {
+        long start = System.nanoTime();
+        long inside = cursor.count(n, action);
+        numOfInside += inside;
+        statistics.add(inside, n);
+        elapsedNanos += System.nanoTime() - start;
+        return getResult();
+    }
+
+    /**
+     * 前回の続きからn回の試行を行い、累積の結果を返す。<BR>
+     * 現在位置がブロックの境界にあり、2ブロック以上の試行を行う場合は、
+     * ブロック単位の部分を並列に計算する。
+     *
+     * @param n 試行回数
+     * @return これまでの累積のシミュレーション結果
+     */
+    public SimulationResult step(long n) {
+        return step(n, (DensityRaster) null);
+    }
+
+    /**
+     * 前回の続きからn回の試行を行い、生成した点を密度グリッドに書き込む。<BR>
+     * 並列化の条件はstep(long)と同じで、各スレッドは自身のバッファに書き込む。
+     *
+     * @param n 試行回数
+     * @param raster 点を書き込む密度グリッド。不要な場合はnull
+     * @return これまでの累積のシミュレーション結果
+     */
+    public SimulationResult step(long n, DensityRaster raster) {
+        long start = System.nanoTime();
+        final long block = RandomPointGenerator.BLOCK_SIZE;
+        long position = cursor.getPosition();
+        long bulkEnd = (position + n) / block * block;
+        if (parallelism > 1 && position % block == 0 && bulkEnd - position >= 2 * block) {
+            HitCountTask task = new HitCountTask(sequence(), kernel, 2, bulkEnd,
+                    position / block, bulkEnd / block, raster, statistics);
+            numOfInside += pool().invoke(task);
+            cursor = new SampleCursor(sequence(), kernel, bulkEnd);
+            n -= bulkEnd - position;
+        }
+        // 残りがない場合はバッファを作らせない
+        long inside = raster == null || n == 0 ? cursor.count(n) : cursor.count(n, raster.writer());
+        numOfInside += inside;
+        statistics.add(inside, n);
+        elapsedNanos += System.nanoTime() - start;
+        return getResult();
+    }
+
+    /**
+     * 前回の続きから、求める精度に達するまで試行を行う。<BR>
+     * 標準誤差から残りの試行回数を見積もりながら、ブロック単位のバッチで並列に計算する。
+     *
+     * @param target 求める精度
+     * @param maxTrials 試行回数の上限
+     * @return これまでの累積のシミュレーション結果
+     */
+    public SimulationResult runUntil(PrecisionTarget target, long maxTrials) {
+        long batch;
+        while ((batch = nextBatch(target, maxTrials)) > 0) {
+            step(batch);
+        }
+        return getResult();
+    }
+
+    /**
+     * 求める精度に達するために、次に行う試行回数を返す。<BR>
+     * 見積もりが外れている場合に備えて、1回の試行回数はそれまでの累積の試行回数までとし、
+     * 並列に計算できるよう終端をブロックの境界に揃える。
+     *
+     * @param target 求める精度
+     * @param maxTrials 試行回数の上限
+     * @return 次に行う試行回数。精度に達したか上限に達した場合は0
+     */
+    public long nextBatch(PrecisionTarget target, long maxTrials) {
+        SimulationResult result = getResult();
+        long total = result.getNumOfTotal();
+        if (total >= maxTrials || target.isSatisfied(result)) {
+            return 0L;
+        }
+        final long block = RandomPointGenerator.BLOCK_SIZE;
+        long minBatch = block * Math.max(1, parallelism);
+        long batch = Math.min(target.getRequiredTrials(result) - total, Math.max(total, minBatch));
+        batch = Math.max(batch, minBatch);
+        if (batch >= maxTrials - total) {
+            return maxTrials - total;
+        }
+        long end = (total + batch + block - 1) / block * block;
+        return Math.min(end, maxTrials) - total;
+    }
+
+    /**
+     * 試行番号fromからn回分の座標を再生成する。<BR>
+     * 同じシードからは計算時と同じ座標が得られるため、並列に計算した試行の一部を
+     * 後から描画する場合などに用いる。逐次実行の状態には影響しない。
+     *
+     * @param from 先頭の試行番号
+     * @param n 試行回数
+     * @param action 生成した各座標(0 &le; x,y &lt; 1)を受け取るコールバック
+     * @return 単位円の内部に入った点の数
+     */
+    public long replay(long from, long n, PointConsumer action) {
+        long aligned = from - from % RandomPointGenerator.BLOCK_SIZE;
+        SampleCursor replay = new SampleCursor(sequence(), kernel, aligned);
+        replay.count(from - aligned);
+        return replay.count(n, action);
+    }
+
+    /**
+     * 逐次実行およびrun()による並列実行の途中経過を返す。<BR>
+     * 実行中も計算スレッドがブロックごとに更新するため、
+     * 別のスレッドから進捗や速度を知るために用いる。
+     *
+     * @return 途中経過の集計
+     */
+    public SimulationStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * 逐次実行の累積の結果を返す
+     *
+     * @return これまでの累積のシミュレーション結果
+     */
+    public SimulationResult getResult() {
+        return new SimulationResult(numOfInside, cursor.getPosition(), elapsedNanos);
+    }
+
+}
@@ -0,0 +1,119 @@
+package jp.yama07.montecarlo_pi;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import jp.yama07.montecarlo_pi.stats.ExactEstimate;
+
+/**
+ * シミュレーション結果を表すクラス
+ *
+ * @author yama07
+ */
+public class SimulationResult {
+
+    private final long numOfInside;
+    private final long numOfTotal;
+    private final long elapsedNanos;
+    // 二項分布以外から求めた標準誤差。二項分布から求める場合はNaN
+    private final double standardError;
+
+    /**
+     *
+     * @param numOfInside 円の内部にプロットされた数
+     * @param numOfTotal プロット数
+     * @param elapsedNanos 計算に要した時間(ナノ秒)
+     */
+    public SimulationResult(long numOfInside, long numOfTotal, long elapsedNanos) {
+        this(numOfInside, numOfTotal, elapsedNanos, Double.NaN);
+    }
+
+    /**
+     *
+     * @param numOfInside 円の内部にプロットされた数
+     * @param numOfTotal プロット数
+     * @param elapsedNanos 計算に要した時間(ナノ秒)
+     * @param standardError 繰り返しの推定値などから求めた標準誤差。二項分布から求める場合はNaN
+     */
+    public SimulationResult(long numOfInside, long numOfTotal, long elapsedNanos, double standardError) {
+        this.numOfInside = numOfInside;
+        this.numOfTotal = numOfTotal;
+        this.elapsedNanos = elapsedNanos;
+        this.standardError = standardError;
+    }
+
+    public long getNumOfInside() {
+        return numOfInside;
+    }
+
+    public long getNumOfOutside() {
+        return numOfTotal - numOfInside;
+    }
+
+    public long getNumOfTotal() {
+        return numOfTotal;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * 推定した円周率を返す
+     *
+     * @return 推定した円周率。プロット数が0の場合は0
+     */
+    public double getEstimatedPI() {
+        if (numOfTotal == 0) {
+            return 0.0;
+        }
+        return 4.0 * numOfInside / numOfTotal;
+    }
+
+    /**
+     * 推定した円周率の標準誤差を返す。<BR>
+     * 標準誤差を指定して作った場合はその値を、それ以外は円の内部に入る確率pの
+     * 二項分布から 4 * sqrt(p(1-p)/n) として求める。
+     *
+     * @return 標準誤差。プロット数が0の場合は0
+     */
+    public double getStandardError() {
+        if (!Double.isNaN(standardError)) {
+            return standardError;
+        }
+        if (numOfTotal == 0) {
+            return 0.0;
+        }
+        double p = (double) numOfInside / numOfTotal;
+        return 4.0 * Math.sqrt(p * (1.0 - p) / numOfTotal);
+    }
+
+    /**
+     * 円周率とその標準誤差を任意精度で求める。結果を表示するときに用いる。
+     *
+     * @param digits 有効桁数
+     * @return 推定結果
+     */
+    public ExactEstimate getExactEstimate(int digits) {
+        return new ExactEstimate(BigInteger.valueOf(numOfInside), BigInteger.valueOf(numOfTotal),
+                Double.isNaN(standardError) ? null : new BigDecimal(standardError), digits);
+    }
+
+    /**
+     * 1秒あたりの試行回数を返す
+     *
+     * @return 1秒あたりの試行回数
+     */
+    public double getSamplesPerSecond() {
+        if (elapsedNanos == 0) {
+            return 0.0;
+        }
+        return numOfTotal * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "SimulationResult{" + "numOfInside=" + numOfInside + ", numOfTotal=" + numOfTotal
+                + ", estimatedPI=" + getEstimatedPI() + ", elapsedNanos=" + elapsedNanos + '}';
+    }
+
+}
@@ -1,27 +1,54 @@
 package jp.yama07.montecarlo_pi;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import javafx.animation.Animation.Status;
-import javafx.animation.KeyFrame;
-import javafx.animation.Timeline;
+import javafx.animation.AnimationTimer;
 import javafx.application.Platform;
 import javafx.beans.property.DoubleProperty;
 import javafx.beans.property.LongProperty;
 import javafx.beans.property.SimpleDoubleProperty;
 import javafx.beans.property.SimpleLongProperty;
-import javafx.event.ActionEvent;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.beans.property.StringProperty;
 import javafx.geometry.Side;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.chart.LineChart;
 import javafx.scene.chart.NumberAxis;
 import javafx.scene.chart.XYChart;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.ArcType;
-import javafx.util.Duration;
+import jp.yama07.montecarlo_pi.cache.CacheKey;
+import jp.yama07.montecarlo_pi.cache.CachedResult;
+import jp.yama07.montecarlo_pi.cache.ResultCache;
+import jp.yama07.montecarlo_pi.metrics.SimulationMetrics;
+import jp.yama07.montecarlo_pi.stats.ExactEstimate;
+import jp.yama07.montecarlo_pi.stats.OnlineStatistics;
+import jp.yama07.montecarlo_pi.stats.PrecisionTarget;
 
 /**
  * Monte Carlo法による円周率算出のシミュレートを行うクラス
  *
+ * 試行はバックグラウンドのスレッドで全速力で行い、画面の更新は
+ * AnimationTimerにより描画のタイミングで最新の結果を取得して行う。
+ * Canvasには点を1つずつ描画せず、ピクセルごとの点の数を密度として描画する。
+ * 精度を指定した場合は、試行回数によらず信頼区間の半幅が指定した値以下になった時点で終了する。
+ * 表示する円周率は、画面へ反映するたびにBigDecimalで指定した有効桁数まで求める。
+ * グラフには推定値とあわせて、計算スレッドのバッチごとの結果からバッチ平均法で求めた
+ * 信頼区間の上限と下限を描画する。
+ * 試行の速度などの計測値は、画面とは別にSimulationMetricsで一定の間隔で採取する。
+ * シードを固定してResultCacheを設定した場合は、同じ条件の結果や試行回数の少ない結果を
+ * キャッシュから復元し、残りの試行だけを行う。
+ *
  * @author yama07
  */
 public class SimulationTimeline {
@@ -31,11 +58,23 @@ public class SimulationTimeline {
     public static final long TRIALS_MAX = 20000000L;
     public static final long TRIALS_STEP = 10000;
     public static final long DEFAULT_TRIALS = TRIALS_MIN;
+    // 精度を指定した場合の試行回数の上限
+    public static final long PRECISION_TRIALS_MAX = 1L << 48;
+
+    // キャッシュから復元した場合に、密度の描画のために再生成する点の最大数
+    private static final long REPLAY_POINTS = RandomPointGenerator.BLOCK_SIZE * 64L;
+    // バックグラウンドで1回にまとめて行う試行回数
+    private static final long BATCH_SIZE = RandomPointGenerator.BLOCK_SIZE * 16L;
+    // 画面へ結果を反映する最短の間隔(ナノ秒)
+    private static final long PUBLISH_INTERVAL_NANOS = 33000000L;
 
     //グラフに関するパラメータ
     public static final Number TICK_UNIT_Y = 0.01;
+    public static final int DEFAULT_MAX_CHART_POINTS = 1000;
     private double yLowerBound = 3.13;
     private double yUpperBound = 3.15;
+    // 精度を指定しない場合に描画する信頼区間の信頼水準
+    public static final double DEFAULT_CONFIDENCE = 0.95;
 
     //Canvasに描画する際の色
     private Color circleColor = Color.LIGHTBLUE;
@@ -55,19 +94,84 @@ public class SimulationTimeline {
     private final LongProperty numOfTotal = new SimpleLongProperty(0L);
     // シミュレートにより推定した円周率
     private final DoubleProperty estimatedPI = new SimpleDoubleProperty(0.0f);
+    // 有効桁数まで求めた推定円周率
+    private final StringProperty estimatedPIText = new SimpleStringProperty("0");
+    // 推定円周率と真の円周率との差の絶対値
+    private final DoubleProperty absoluteError = new SimpleDoubleProperty(0.0);
+    // バッチ平均法と二項分布の標準誤差の比
+    private final DoubleProperty standardErrorRatio = new SimpleDoubleProperty(Double.NaN);
     // 進捗率
     private final DoubleProperty progress = new SimpleDoubleProperty(0.0f);
 
     // グラフに描画する真の円周率のデータ
-    private XYChart.Series series_PI;
+    private XYChart.Series<Number, Number> series_PI;
     // グラフに描画する推定円周率のデータ
-    private XYChart.Series series_estimatedPI;
-
-    // シミュレーションを行うTimeline
-    private Timeline timer;
+    private XYChart.Series<Number, Number> series_estimatedPI;
+    // グラフに描画する信頼区間の上限と下限のデータ
+    private XYChart.Series<Number, Number> series_upperBound;
+    private XYChart.Series<Number, Number> series_lowerBound;
+    // 推定円周率の経過。グラフにはこの点だけを描画する
+    private ConvergenceRecorder convergence = new ConvergenceRecorder(DEFAULT_MAX_CHART_POINTS);
+    // 信頼区間の上限と下限の経過
+    private ConvergenceRecorder upperBound = new ConvergenceRecorder(DEFAULT_MAX_CHART_POINTS);
+    private ConvergenceRecorder lowerBound = new ConvergenceRecorder(DEFAULT_MAX_CHART_POINTS);
+
+    // 試行を行うエンジン
+    private final SimulationEngine engine = new SimulationEngine();
+    // エンジンの集計から計測値を採取する
+    private final SimulationMetrics metrics = new SimulationMetrics(engine.getStatistics());
+    // 試行を行うバックグラウンドのスレッド。開始のたびにスレッドを作らず、同じスレッドで試行を行う
+    private final ExecutorService workerExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "simulation-worker");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // 実行中の試行
+    private Future<?> worker;
+    // 描画のたびに結果を画面へ反映するタイマー
+    private final AnimationTimer renderer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            if (now - lastPublished >= PUBLISH_INTERVAL_NANOS || finished) {
+                lastPublished = now;
+                render();
+            }
+        }
+    };
+    // シミュレートの状態
+    private volatile Status status = Status.STOPPED;
+    // バックグラウンドのスレッドがすべての試行を終えたか
+    private volatile boolean finished;
+    // 最後に画面へ結果を反映した時刻
+    private long lastPublished;
+    // ピクセルごとの点の数
+    private final DensityRaster raster;
+    // 密度を描画する画像
+    private final WritableImage densityImage;
+    // 描画時に用いる作業用の配列
+    private int[] densityCounts;
+    private final int[] densityPixels;
+    // 一時中断・再開を待ち合わせるためのロック
+    private final Object lock = new Object();
 
     // 試行回数
     private long trials;
+    // 求める精度。nullの場合は試行回数で終了する
+    private volatile PrecisionTarget precisionTarget;
+    // 表示する推定円周率の有効桁数
+    private int digits = ExactEstimate.DEFAULT_DIGITS;
+    // 乱数のシード。nullの場合は開始のたびに現在時刻とする
+    private Long seed;
+    // 結果のキャッシュ。nullの場合は用いない
+    private ResultCache resultCache;
+    // 今回の試行のキャッシュのキー。キャッシュに保存しない場合はnull
+    private CacheKey cacheKey;
+    // キャッシュから復元した分の計算時間
+    private long cachedNanos;
+    // グラフの推定円周率をすべて描き直すか
+    private boolean redrawConvergence;
+    // キャッシュから復元したか。復元した分はバッチに分けられないため、信頼区間を描画しない
+    private boolean restored;
 
     /**
      * シミュレート結果および経過を描画するコンポーネントを指定。 試行回数はSimulationTimeline.DEFAULT_TRIALS回。
@@ -90,6 +194,10 @@ public class SimulationTimeline {
         this.cPlot = cPlot;
         this.lcResult = lcResult;
         this.trials = trials;
+        this.raster = new DensityRaster((int) cPlot.getWidth(), (int) cPlot.getHeight());
+        this.densityImage = new WritableImage(raster.getWidth(), raster.getHeight());
+        this.densityPixels = new int[raster.getWidth() * raster.getHeight()];
+        metrics.start(SimulationMetrics.DEFAULT_INTERVAL_MILLIS);
         clear();
     }
 
@@ -101,10 +209,19 @@ public class SimulationTimeline {
             initChart();
             initPlot();
         });
+        engine.reset();
+        finished = false;
+        raster.clear();
+        convergence.clear();
+        upperBound.clear();
+        lowerBound.clear();
         numOfInside.set(0L);
         numOfOutside.set(0L);
         numOfTotal.set(0L);
         estimatedPI.set(0.0f);
+        estimatedPIText.set("0");
+        absoluteError.set(0.0);
+        standardErrorRatio.set(Double.NaN);
         progress.set(0.0f);
     }
 
@@ -130,8 +247,6 @@ public class SimulationTimeline {
         NumberAxis xAxis = (NumberAxis) lcResult.getXAxis();
         xAxis.setAutoRanging(false);
         xAxis.setLowerBound(0);
-        xAxis.setUpperBound(trials);
-        xAxis.setTickUnit(trials);
 
         NumberAxis yAxis = (NumberAxis) lcResult.getYAxis();
         yAxis.setAutoRanging(false);
@@ -139,15 +254,46 @@ public class SimulationTimeline {
         yAxis.setUpperBound(yUpperBound);
         yAxis.setTickUnit(TICK_UNIT_Y.doubleValue());
 
-        series_PI = new XYChart.Series();
+        series_PI = new XYChart.Series<>();
         series_PI.setName(String.valueOf(Math.PI));
-        series_PI.getData().add(new XYChart.Data(0, Math.PI));
-        series_PI.getData().add(new XYChart.Data(trials, Math.PI));
+        series_PI.getData().add(new XYChart.Data<>(0, Math.PI));
+        series_PI.getData().add(new XYChart.Data<>(0, Math.PI));
         lcResult.getData().add(series_PI);
 
-        series_estimatedPI = new XYChart.Series();
+        series_estimatedPI = new XYChart.Series<>();
         series_estimatedPI.setName("Estimated PI");
         lcResult.getData().add(series_estimatedPI);
+
+        PrecisionTarget target = precisionTarget;
+        String confidence = String.format(Locale.ROOT, "%.4g%%", 100 * (target == null ? DEFAULT_CONFIDENCE : target.getConfidence()));
+        series_upperBound = new XYChart.Series<>();
+        series_upperBound.setName("Upper " + confidence);
+        lcResult.getData().add(series_upperBound);
+        series_lowerBound = new XYChart.Series<>();
+        series_lowerBound.setName("Lower " + confidence);
+        lcResult.getData().add(series_lowerBound);
+
+        setXUpperBound(target == null ? trials : target.getRequiredTrials(new SimulationResult(0L, 0L, 0L)));
+    }
+
+    /**
+     * グラフのx軸の上限を設定する
+     *
+     * @param upperBound 上限の試行回数
+     */
+    private void setXUpperBound(long upperBound) {
+        NumberAxis xAxis = (NumberAxis) lcResult.getXAxis();
+        xAxis.setUpperBound(upperBound);
+        xAxis.setTickUnit(upperBound);
+        series_PI.getData().get(1).setXValue(upperBound);
+    }
+
+    public SimulationEngine getEngine() {
+        return engine;
+    }
+
+    public SimulationMetrics getMetrics() {
+        return metrics;
     }
 
     public void setTrials(long trials) {
@@ -158,6 +304,76 @@ public class SimulationTimeline {
         return trials;
     }
 
+    public PrecisionTarget getPrecisionTarget() {
+        return precisionTarget;
+    }
+
+    /**
+     * 求める精度を設定する。設定した場合、試行回数は用いずPRECISION_TRIALS_MAXを上限とする。
+     *
+     * @param precisionTarget 求める精度。試行回数で終了する場合はnull
+     */
+    public void setPrecisionTarget(PrecisionTarget precisionTarget) {
+        this.precisionTarget = precisionTarget;
+    }
+
+    public int getDigits() {
+        return digits;
+    }
+
+    /**
+     * 表示する推定円周率の有効桁数を設定する
+     *
+     * @param digits 有効桁数(1以上)
+     */
+    public void setDigits(int digits) {
+        if (digits <= 0) {
+            throw new IllegalArgumentException("digits must be positive: " + digits);
+        }
+        this.digits = digits;
+    }
+
+    public Long getSeed() {
+        return seed;
+    }
+
+    /**
+     * 乱数のシードを設定する。固定した場合は同じ条件で同じ結果となり、キャッシュを利用できる。
+     *
+     * @param seed 乱数のシード。開始のたびに現在時刻とする場合はnull
+     */
+    public void setSeed(Long seed) {
+        this.seed = seed;
+    }
+
+    public ResultCache getResultCache() {
+        return resultCache;
+    }
+
+    /**
+     * 結果のキャッシュを設定する。シードを固定し、精度を指定しない場合に用いる。
+     *
+     * @param resultCache キャッシュ。用いない場合はnull
+     */
+    public void setResultCache(ResultCache resultCache) {
+        this.resultCache = resultCache;
+    }
+
+    public int getMaxChartPoints() {
+        return convergence.getCapacity();
+    }
+
+    /**
+     * グラフに描画する推定円周率の点の最大数を設定する。記録済みの経過は消去される。
+     *
+     * @param maxChartPoints 点の最大数(4以上)
+     */
+    public void setMaxChartPoints(int maxChartPoints) {
+        convergence = new ConvergenceRecorder(maxChartPoints);
+        upperBound = new ConvergenceRecorder(maxChartPoints);
+        lowerBound = new ConvergenceRecorder(maxChartPoints);
+    }
+
     public Color getCircleColor() {
         return circleColor;
     }
@@ -246,6 +462,30 @@ public class SimulationTimeline {
         return estimatedPI;
     }
 
+    public String getEstimatedPIText() {
+        return estimatedPIText.get();
+    }
+
+    public StringProperty estimatedPITextProperty() {
+        return estimatedPIText;
+    }
+
+    public double getAbsoluteError() {
+        return absoluteError.get();
+    }
+
+    public DoubleProperty absoluteErrorProperty() {
+        return absoluteError;
+    }
+
+    public double getStandardErrorRatio() {
+        return standardErrorRatio.get();
+    }
+
+    public DoubleProperty standardErrorRatioProperty() {
+        return standardErrorRatio;
+    }
+
     public double getProgress() {
         return progress.get();
     }
@@ -264,72 +504,236 @@ public class SimulationTimeline {
      * @return 状態
      */
     public Status getState() {
-        if (timer == null) {
-            return Status.STOPPED;
-        }
-        return timer.getStatus();
+        return status;
     }
 
     /**
      * シミュレートの開始および再開を行う
      */
     public void play() {
-        if (timer == null || timer.getStatus().equals(Status.STOPPED)) {
+        if (status.equals(Status.STOPPED)) {
+            engine.setSeed(seed != null ? seed : System.nanoTime());
             clear();
-            setTimelineParam();
+            restoreFromCache();
+            status = Status.RUNNING;
+            worker = workerExecutor.submit(this::sample);
+        } else {
+            synchronized (lock) {
+                status = Status.RUNNING;
+                lock.notifyAll();
+            }
         }
-        timer.play();
+        renderer.start();
+    }
+
+    /**
+     * キャッシュに同じ条件または試行回数の少ない結果があれば、エンジンと収束の経過を復元する。<BR>
+     * 密度は先頭のREPLAY_POINTS点だけを再生成して描画する。
+     * 保存した結果はバッチごとの推定値を持たないため、信頼区間とその経過は復元せず、描画もしない。
+     */
+    private void restoreFromCache() {
+        cacheKey = null;
+        cachedNanos = 0L;
+        restored = false;
+        if (resultCache == null || seed == null || precisionTarget != null) {
+            return;
+        }
+        cacheKey = new CacheKey(engine.getSampling(), engine.getAlgorithm(), seed, trials);
+        CachedResult cached = resultCache.get(cacheKey);
+        if (cached != null) {
+            // 同じ条件の結果は保存し直さない
+            cacheKey = null;
+        } else {
+            cached = resultCache.findPrefix(cacheKey);
+        }
+        if (cached == null) {
+            return;
+        }
+        engine.restore(cached.getNumOfInside(), cached.getNumOfTotal());
+        engine.replay(0L, Math.min(cached.getNumOfTotal(), REPLAY_POINTS), raster.writer());
+        cached.replayCurve(convergence);
+        cachedNanos = cached.getElapsedNanos();
+        redrawConvergence = true;
+        restored = true;
+    }
+
+    /**
+     * すべての試行を終えた結果をキャッシュに保存する
+     */
+    private void storeToCache() {
+        if (cacheKey == null) {
+            return;
+        }
+        SimulationResult result = engine.getResult();
+        try {
+            resultCache.put(CachedResult.of(cacheKey, new SimulationResult(result.getNumOfInside(), result.getNumOfTotal(),
+                    cachedNanos + result.getElapsedNanos()), convergence));
+        } catch (IOException ex) {
+            System.err.println("failed to write cache: " + ex.getMessage());
+        }
+        cacheKey = null;
     }
 
     /**
      * シミュレートを中止する
      */
     public void stop() {
-        if (timer == null) {
-            return;
+        synchronized (lock) {
+            status = Status.STOPPED;
+            lock.notifyAll();
+        }
+        renderer.stop();
+        if (worker != null) {
+            try {
+                worker.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException ex) {
+                ex.getCause().printStackTrace();
+            }
+            worker = null;
         }
-        timer.stop();
     }
 
     /**
      * シミュレートを一時中断する
      */
     public void pause() {
-        if (timer == null) {
-            return;
+        synchronized (lock) {
+            if (status.equals(Status.RUNNING)) {
+                status = Status.PAUSED;
+            }
+        }
+    }
+
+    /**
+     * バックグラウンドのスレッドで試行を行う。<BR>
+     * 生成した点は密度グリッドに、試行回数はエンジンの集計にブロックごとに加えられる。
+     */
+    private void sample() {
+        try {
+            while (true) {
+                synchronized (lock) {
+                    while (status.equals(Status.PAUSED)) {
+                        lock.wait();
+                    }
+                    if (status.equals(Status.STOPPED)) {
+                        return;
+                    }
+                }
+                PrecisionTarget target = precisionTarget;
+                long n = target == null
+                        ? trials - engine.getResult().getNumOfTotal()
+                        : engine.nextBatch(target, Math.min(PRECISION_TRIALS_MAX, engine.getSampling().getMaxPoints()));
+                if (n <= 0) {
+                    finished = true;
+                    return;
+                }
+                engine.step(Math.min(BATCH_SIZE, n), raster);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * エンジンの集計の最新値をCanvas、LineChartおよび各プロパティに反映する。
+     * 全試行が終わっていれば停止する。
+     */
+    private void render() {
+        boolean done = finished;
+        SimulationResult result = engine.getStatistics().snapshot();
+        if (result.getNumOfTotal() != numOfTotal.get()) {
+            renderDensity();
+
+            long _numOfTotal = result.getNumOfTotal();
+
+            numOfInside.set(result.getNumOfInside());
+            numOfOutside.set(result.getNumOfOutside());
+            numOfTotal.set(_numOfTotal);
+
+            double pi = result.getEstimatedPI();
+            plot(convergence, series_estimatedPI, _numOfTotal, pi, redrawConvergence);
+            redrawConvergence = false;
+            estimatedPI.set(pi);
+            estimatedPIText.set(result.getExactEstimate(digits).getEstimatedPI().toPlainString());
+            PrecisionTarget target = precisionTarget;
+            OnlineStatistics.Snapshot online = engine.getStatistics().snapshotOnline();
+            absoluteError.set(online.getAbsoluteError());
+            if (!restored && online.getBatches() >= 2) {
+                double z = PrecisionTarget.zScore(target == null ? DEFAULT_CONFIDENCE : target.getConfidence());
+                plot(upperBound, series_upperBound, _numOfTotal, online.getUpperBound(z), false);
+                plot(lowerBound, series_lowerBound, _numOfTotal, online.getLowerBound(z), false);
+                standardErrorRatio.set(online.getStandardErrorRatio());
+            }
+            if (target == null) {
+                progress.set(1.0 * _numOfTotal / trials);
+            } else {
+                // 見積もった必要な試行回数に対する割合を進捗とする
+                long required = Math.max(_numOfTotal, target.getRequiredTrials(result));
+                if (required > ((NumberAxis) lcResult.getXAxis()).getUpperBound()) {
+                    setXUpperBound(required);
+                }
+                progress.set(1.0 * _numOfTotal / required);
+            }
+        }
+        if (done) {
+            storeToCache();
+            progress.set(1.0);
+            stop();
         }
-        timer.pause();
     }
 
     /**
-     * シュミレートTimelineのパラメータをセットする
+     * 経過に点を記録してグラフに描画する。<BR>
+     * 記録のために既存の点を間引いた場合は、記録したすべての点を描き直す。
+     *
+     * @param recorder 経過
+     * @param series 描画するグラフのデータ
+     * @param total 試行回数
+     * @param value 値
+     * @param redraw 間引かない場合もすべての点を描き直すか
      */
-    private void setTimelineParam() {
-        timer = new Timeline(
-                new KeyFrame(
-                        Duration.millis(1), (ActionEvent e) -> {
-                            GraphicsContext gc = cPlot.getGraphicsContext2D();
-                            gc.setFill(dotColor);
-
-                            final int radius = (int) cPlot.getWidth();
-                            final long trial = (long) (trials / TRIALS_STEP);
-                            long _numOfInside = numOfInside.getValue()
-                            + new RandomPointGenerator(radius).getPointStream().limit(trial)
-                            .peek(p -> gc.fillRect(p.getX(), p.getY(), 1, 1))
-                            .filter(p -> p.distFromOrigin() <= radius).count();
-                            long _numOfTotal = numOfTotal.getValue() + trial;
-
-                            numOfInside.set(_numOfInside);
-                            numOfOutside.set(_numOfTotal - _numOfInside);
-                            numOfTotal.set(_numOfTotal);
-
-                            double pi = 4.0 * _numOfInside / _numOfTotal;
-                            series_estimatedPI.getData().add(new XYChart.Data(_numOfTotal, pi));
-                            estimatedPI.set(pi);
-                            progress.set(1.0 * _numOfTotal / trials);
-                        })
-        );
-        timer.setCycleCount((int) TRIALS_STEP);
+    private void plot(ConvergenceRecorder recorder, XYChart.Series<Number, Number> series, long total, double value, boolean redraw) {
+        if (recorder.record(total, value) || redraw) {
+            List<XYChart.Data<Number, Number>> data = new ArrayList<>(recorder.size());
+            for (int i = 0; i < recorder.size(); i++) {
+                data.add(new XYChart.Data<>(recorder.getTotal(i), recorder.getEstimate(i)));
+            }
+            series.getData().setAll(data);
+        } else {
+            series.getData().add(new XYChart.Data<>(total, value));
+        }
+    }
+
+    /**
+     * 密度グリッドを画像に変換し、Canvasに描画する。<BR>
+     * 点の数が最も多いピクセルをdotColorの不透明度とし、点の数に比例した不透明度で描画する。
+     */
+    private void renderDensity() {
+        densityCounts = raster.snapshot(densityCounts);
+        int size = densityPixels.length;
+        int max = 0;
+        for (int i = 0; i < size; i++) {
+            max = Math.max(max, densityCounts[i]);
+        }
+        if (max == 0) {
+            return;
+        }
+        int rgb = ((int) Math.round(dotColor.getRed() * 255) << 16)
+                | ((int) Math.round(dotColor.getGreen() * 255) << 8)
+                | (int) Math.round(dotColor.getBlue() * 255);
+        double scale = 255.0 * dotColor.getOpacity() / max;
+        for (int i = 0; i < size; i++) {
+            int count = densityCounts[i];
+            int alpha = count == 0 ? 0 : Math.max(1, (int) (count * scale));
+            densityPixels[i] = (alpha << 24) | rgb;
+        }
+        densityImage.getPixelWriter().setPixels(0, 0, raster.getWidth(), raster.getHeight(),
+                PixelFormat.getIntArgbInstance(), densityPixels, 0, raster.getWidth());
+
+        initPlot();
+        cPlot.getGraphicsContext2D().drawImage(densityImage, 0, 0);
     }
 
 }
@@ -0,0 +1,72 @@
+package jp.yama07.montecarlo_pi;
+
+/**
+ * 1回の試行の途中で、指定した試行回数ごとに記録した推定結果の列を表すクラス
+ *
+ * i番目の結果は、同じシードでcheckpoints[i]回の試行を行った場合の結果と一致する。
+ * 経過時間は試行を始めてからの累積の時間となる。
+ *
+ * @author yama07
+ */
+public class SweepResult {
+
+    private final long[] numOfTotal;
+    private final long[] numOfInside;
+    private final long[] elapsedNanos;
+
+    /**
+     *
+     * @param numOfTotal 記録した時点のプロット数(昇順)
+     * @param numOfInside 記録した時点で円の内部にプロットされた数
+     * @param elapsedNanos 記録した時点までの計算に要した時間(ナノ秒)
+     */
+    public SweepResult(long[] numOfTotal, long[] numOfInside, long[] elapsedNanos) {
+        if (numOfInside.length != numOfTotal.length || elapsedNanos.length != numOfTotal.length) {
+            throw new IllegalArgumentException("column lengths differ");
+        }
+        this.numOfTotal = numOfTotal.clone();
+        this.numOfInside = numOfInside.clone();
+        this.elapsedNanos = elapsedNanos.clone();
+    }
+
+    /**
+     * 記録した時点の数を返す
+     *
+     * @return 記録した時点の数
+     */
+    public int size() {
+        return numOfTotal.length;
+    }
+
+    public long getNumOfTotal(int i) {
+        return numOfTotal[i];
+    }
+
+    public long getNumOfInside(int i) {
+        return numOfInside[i];
+    }
+
+    public long getElapsedNanos(int i) {
+        return elapsedNanos[i];
+    }
+
+    /**
+     * i番目の時点の結果を返す
+     *
+     * @param i 記録した時点の番号
+     * @return その時点までの累積のシミュレーション結果
+     */
+    public SimulationResult getResult(int i) {
+        return new SimulationResult(numOfInside[i], numOfTotal[i], elapsedNanos[i]);
+    }
+
+    /**
+     * 最後の時点の結果を返す
+     *
+     * @return 全試行のシミュレーション結果
+     */
+    public SimulationResult getLastResult() {
+        return getResult(size() - 1);
+    }
+
+}
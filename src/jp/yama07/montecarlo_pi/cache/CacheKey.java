@@ -0,0 +1,149 @@
+package jp.yama07.montecarlo_pi.cache;
+
+import java.util.Locale;
+import java.util.Objects;
+import jp.yama07.montecarlo_pi.qmc.SamplingMethod;
+import jp.yama07.montecarlo_pi.random.RandomAlgorithm;
+
+/**
+ * ResultCacheのキー
+ *
+ * 点の生成方法、乱数生成器、シード、試行回数、次元数、推定量の名前からなる。
+ * 結果はカーネルや並列度によらないため、それらはキーに含めない。
+ *
+ * @author yama07
+ */
+public final class CacheKey {
+
+    // 円の内部の点を数える場合の推定量の名前
+    public static final String HIT = "hit";
+
+    private final SamplingMethod sampling;
+    private final RandomAlgorithm algorithm;
+    private final long seed;
+    private final long trials;
+    private final int dimensions;
+    private final String estimator;
+
+    /**
+     * 2次元で円の内部の点を数える場合のキーを作る
+     *
+     * @param sampling 点の生成方法
+     * @param algorithm 乱数生成器の種類
+     * @param seed 乱数のシード
+     * @param trials 試行回数
+     */
+    public CacheKey(SamplingMethod sampling, RandomAlgorithm algorithm, long seed, long trials) {
+        this(sampling, algorithm, seed, trials, 2, HIT);
+    }
+
+    /**
+     *
+     * @param sampling 点の生成方法
+     * @param algorithm 乱数生成器の種類
+     * @param seed 乱数のシード
+     * @param trials 試行回数
+     * @param dimensions 次元数
+     * @param estimator 推定量の名前
+     */
+    public CacheKey(SamplingMethod sampling, RandomAlgorithm algorithm, long seed, long trials, int dimensions, String estimator) {
+        if (trials <= 0 || dimensions <= 0) {
+            throw new IllegalArgumentException("trials and dimensions must be positive");
+        }
+        this.sampling = Objects.requireNonNull(sampling);
+        this.algorithm = Objects.requireNonNull(algorithm);
+        this.seed = seed;
+        this.trials = trials;
+        this.dimensions = dimensions;
+        this.estimator = Objects.requireNonNull(estimator);
+    }
+
+    public SamplingMethod getSampling() {
+        return sampling;
+    }
+
+    public RandomAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public long getTrials() {
+        return trials;
+    }
+
+    public int getDimensions() {
+        return dimensions;
+    }
+
+    public String getEstimator() {
+        return estimator;
+    }
+
+    /**
+     * このキーの結果を先頭部分として、続きを計算できるかを返す。<BR>
+     * 2次元で円の内部の点を数える場合だけ、N回の試行の結果はそれより多い試行の
+     * 先頭N回の結果と一致する。d次元の点の生成順序や推定量の集計は試行回数によって変わる。
+     *
+     * @param other 計算するキー
+     * @return 試行回数以外が等しく、試行回数がother以下であればtrue
+     */
+    public boolean isPrefixOf(CacheKey other) {
+        return dimensions == 2 && estimator.equals(HIT) && trials <= other.trials
+                && equals(other.withTrials(trials));
+    }
+
+    /**
+     * 試行回数だけを変えたキーを返す
+     *
+     * @param trials 試行回数
+     * @return キー
+     */
+    public CacheKey withTrials(long trials) {
+        return new CacheKey(sampling, algorithm, seed, trials, dimensions, estimator);
+    }
+
+    /**
+     * キーに対応するファイル名を返す
+     *
+     * @return ファイル名
+     */
+    String getFileName() {
+        return String.format(Locale.ROOT, "%s-%s-%s-d%d-%016x-%d%s", sampling.name(), algorithm.name(), estimator,
+                dimensions, seed, trials, ResultCache.SUFFIX).toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 7;
+        hash = 59 * hash + sampling.hashCode();
+        hash = 59 * hash + algorithm.hashCode();
+        hash = 59 * hash + Long.hashCode(seed);
+        hash = 59 * hash + Long.hashCode(trials);
+        hash = 59 * hash + dimensions;
+        hash = 59 * hash + estimator.hashCode();
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof CacheKey)) {
+            return false;
+        }
+        CacheKey other = (CacheKey) obj;
+        return seed == other.seed && trials == other.trials && dimensions == other.dimensions
+                && sampling == other.sampling && algorithm == other.algorithm && estimator.equals(other.estimator);
+    }
+
+    @Override
+    public String toString() {
+        return "CacheKey{" + "sampling=" + sampling + ", algorithm=" + algorithm + ", seed=" + seed + ", trials=" + trials
+                + ", dimensions=" + dimensions + ", estimator=" + estimator + '}';
+    }
+
+}
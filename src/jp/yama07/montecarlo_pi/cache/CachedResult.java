@@ -0,0 +1,125 @@
+package jp.yama07.montecarlo_pi.cache;
+
+import jp.yama07.montecarlo_pi.ConvergenceRecorder;
+import jp.yama07.montecarlo_pi.SimulationResult;
+
+/**
+ * ResultCacheに保存する結果
+ *
+ * 最終的な集計と、間引いた推定値の収束の経過からなる。
+ *
+ * @author yama07
+ */
+public final class CachedResult {
+
+    private final CacheKey key;
+    private final long numOfInside;
+    private final long numOfTotal;
+    private final long elapsedNanos;
+    private final long[] totals;
+    private final double[] estimates;
+
+    /**
+     *
+     * @param key キー
+     * @param numOfInside 内部にプロットされた数
+     * @param numOfTotal プロット数。キーの試行回数と等しいこと
+     * @param elapsedNanos 計算に要した時間(ナノ秒)
+     * @param totals 収束の経過の各点の試行回数
+     * @param estimates 収束の経過の各点の推定値
+     */
+    public CachedResult(CacheKey key, long numOfInside, long numOfTotal, long elapsedNanos, long[] totals, double[] estimates) {
+        if (numOfTotal != key.getTrials() || numOfInside < 0 || numOfInside > numOfTotal) {
+            throw new IllegalArgumentException("counts do not match " + key);
+        }
+        if (totals.length != estimates.length || totals.length > ResultCache.CURVE_POINTS) {
+            throw new IllegalArgumentException("invalid convergence curve");
+        }
+        this.key = key;
+        this.numOfInside = numOfInside;
+        this.numOfTotal = numOfTotal;
+        this.elapsedNanos = elapsedNanos;
+        this.totals = totals.clone();
+        this.estimates = estimates.clone();
+    }
+
+    /**
+     * 結果と収束の経過から作る
+     *
+     * @param key キー
+     * @param result 結果
+     * @param convergence 収束の経過。記録していない場合はnull。ResultCache.CURVE_POINTSより多い点は間引く
+     * @return 保存する結果
+     */
+    public static CachedResult of(CacheKey key, SimulationResult result, ConvergenceRecorder convergence) {
+        if (convergence != null && convergence.size() > ResultCache.CURVE_POINTS) {
+            ConvergenceRecorder downsampled = new ConvergenceRecorder(ResultCache.CURVE_POINTS);
+            for (int i = 0; i < convergence.size(); i++) {
+                downsampled.record(convergence.getTotal(i), convergence.getEstimate(i));
+            }
+            convergence = downsampled;
+        }
+        int size = convergence == null ? 0 : convergence.size();
+        long[] totals = new long[size];
+        double[] estimates = new double[size];
+        for (int i = 0; i < size; i++) {
+            totals[i] = convergence.getTotal(i);
+            estimates[i] = convergence.getEstimate(i);
+        }
+        return new CachedResult(key, result.getNumOfInside(), result.getNumOfTotal(), result.getElapsedNanos(), totals, estimates);
+    }
+
+    public CacheKey getKey() {
+        return key;
+    }
+
+    public long getNumOfInside() {
+        return numOfInside;
+    }
+
+    public long getNumOfTotal() {
+        return numOfTotal;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * 収束の経過の点の数を返す
+     *
+     * @return 点の数
+     */
+    public int getCurveSize() {
+        return totals.length;
+    }
+
+    public long getCurveTotal(int i) {
+        return totals[i];
+    }
+
+    public double getCurveEstimate(int i) {
+        return estimates[i];
+    }
+
+    /**
+     * 収束の経過をrecorderに記録する
+     *
+     * @param recorder 記録先
+     */
+    public void replayCurve(ConvergenceRecorder recorder) {
+        for (int i = 0; i < totals.length; i++) {
+            recorder.record(totals[i], estimates[i]);
+        }
+    }
+
+    /**
+     * SimulationResultにする
+     *
+     * @return シミュレーション結果
+     */
+    public SimulationResult toResult() {
+        return new SimulationResult(numOfInside, numOfTotal, elapsedNanos);
+    }
+
+}
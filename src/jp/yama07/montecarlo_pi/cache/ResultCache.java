@@ -0,0 +1,264 @@
+package jp.yama07.montecarlo_pi.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import jp.yama07.montecarlo_pi.qmc.SamplingMethod;
+import jp.yama07.montecarlo_pi.random.RandomAlgorithm;
+
+/**
+ * 計算の条件をキーとしてシミュレーション結果を保存する、ディレクトリ上の永続キャッシュ
+ *
+ * 結果は1件ごとに1つのファイルとし、一時ファイルに書き込んでから置き換えるため、
+ * 読み出し側が書き込み途中のファイルを見ることはない。ファイルの合計サイズが上限を
+ * 超えると、最も長く使われていない結果から削除する(LRU)。使用順はファイルの
+ * 更新時刻として記録するため、プロセスをまたいで引き継がれる。
+ * <pre>
+ * magic(4) version(4) 生成方法名(UTF) 乱数生成器名(UTF) シード(8) 試行回数(8) 次元数(4) 推定量名(UTF)
+ * 内部の数(8) プロット数(8) 計算時間(8) 経過の点の数(4) 経過の点 (試行回数(8) 推定値(8)) × 点の数
+ * </pre>
+ *
+ * @author yama07
+ */
+public class ResultCache {
+
+    // 標準のサイズの上限(バイト)
+    public static final long DEFAULT_MAX_BYTES = 64L << 20;
+    // 保存する収束の経過の点の最大数
+    public static final int CURVE_POINTS = 1000;
+
+    static final String SUFFIX = ".mcr";
+    private static final int MAGIC = 0x4d435243; // "MCRC"
+    private static final int VERSION = 1;
+
+    private final Path directory;
+    private final long maxBytes;
+    // キーとファイルサイズ。アクセス順に並ぶ
+    private final LinkedHashMap<CacheKey, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    /**
+     * ディレクトリの既存の結果を読み込む。ディレクトリがなければ作る。
+     *
+     * @param directory 保存先のディレクトリ
+     * @param maxBytes ファイルの合計サイズの上限(バイト)
+     * @throws IOException ディレクトリを読めなかった場合
+     */
+    public ResultCache(Path directory, long maxBytes) throws IOException {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes must be positive: " + maxBytes);
+        }
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        Files.createDirectories(directory);
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        // 更新時刻の古い順に登録し、使用順を復元する
+        files.sort(Comparator.comparing(ResultCache::lastModified));
+        for (Path file : files) {
+            try {
+                CacheKey key = read(file).getKey();
+                if (file.getFileName().toString().equals(key.getFileName())) {
+                    long size = Files.size(file);
+                    entries.put(key, size);
+                    totalBytes += size;
+                }
+            } catch (IOException | IllegalArgumentException ex) {
+                // 壊れたファイルは使わない
+            }
+        }
+        evict();
+    }
+
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException ex) {
+            return FileTime.fromMillis(0L);
+        }
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * 保存している結果の数を返す
+     *
+     * @return 結果の数
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * 保存している結果のファイルの合計サイズを返す
+     *
+     * @return 合計サイズ(バイト)
+     */
+    public synchronized long getSizeBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * キーと一致する結果を返す
+     *
+     * @param key キー
+     * @return 結果。ない場合はnull
+     */
+    public synchronized CachedResult get(CacheKey key) {
+        if (entries.get(key) == null) {
+            return null;
+        }
+        Path file = directory.resolve(key.getFileName());
+        try {
+            CachedResult result = read(file);
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return result;
+        } catch (IOException | IllegalArgumentException ex) {
+            // 他のプロセスに削除されたか、壊れている
+            remove(key);
+            return null;
+        }
+    }
+
+    /**
+     * keyの続きから計算できる結果のうち、試行回数が最も多いものを返す
+     *
+     * @param key 計算するキー
+     * @return 先頭部分の結果。ない場合はnull
+     * @see CacheKey#isPrefixOf(CacheKey)
+     */
+    public synchronized CachedResult findPrefix(CacheKey key) {
+        CacheKey best = null;
+        for (CacheKey candidate : entries.keySet()) {
+            if (candidate.isPrefixOf(key) && (best == null || candidate.getTrials() > best.getTrials())) {
+                best = candidate;
+            }
+        }
+        return best == null ? null : get(best);
+    }
+
+    /**
+     * 結果を保存する。同じキーの結果は置き換える。
+     *
+     * @param result 結果
+     * @throws IOException 書き込みに失敗した場合
+     */
+    public synchronized void put(CachedResult result) throws IOException {
+        CacheKey key = result.getKey();
+        Path file = directory.resolve(key.getFileName());
+        Path temp = Files.createTempFile(directory, "entry", ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                write(out, result);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        Long previous = entries.put(key, Files.size(file));
+        totalBytes += entries.get(key) - (previous == null ? 0L : previous);
+        evict();
+    }
+
+    /**
+     * 結果を削除する
+     *
+     * @param key キー
+     */
+    public synchronized void remove(CacheKey key) {
+        Long size = entries.remove(key);
+        if (size != null) {
+            totalBytes -= size;
+        }
+        try {
+            Files.deleteIfExists(directory.resolve(key.getFileName()));
+        } catch (IOException ex) {
+            // 次に読み込んだときに壊れたファイルとして無視される
+        }
+    }
+
+    /**
+     * 合計サイズが上限以下になるまで、最も長く使われていない結果を削除する
+     */
+    private void evict() {
+        Iterator<Map.Entry<CacheKey, Long>> it = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            Map.Entry<CacheKey, Long> eldest = it.next();
+            it.remove();
+            totalBytes -= eldest.getValue();
+            try {
+                Files.deleteIfExists(directory.resolve(eldest.getKey().getFileName()));
+            } catch (IOException ex) {
+                // 次に読み込んだときに再び削除を試みる
+            }
+        }
+    }
+
+    private static void write(DataOutputStream out, CachedResult result) throws IOException {
+        CacheKey key = result.getKey();
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeUTF(key.getSampling().name());
+        out.writeUTF(key.getAlgorithm().name());
+        out.writeLong(key.getSeed());
+        out.writeLong(key.getTrials());
+        out.writeInt(key.getDimensions());
+        out.writeUTF(key.getEstimator());
+        out.writeLong(result.getNumOfInside());
+        out.writeLong(result.getNumOfTotal());
+        out.writeLong(result.getElapsedNanos());
+        out.writeInt(result.getCurveSize());
+        for (int i = 0; i < result.getCurveSize(); i++) {
+            out.writeLong(result.getCurveTotal(i));
+            out.writeDouble(result.getCurveEstimate(i));
+        }
+    }
+
+    private static CachedResult read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("not a cache entry: " + file);
+            }
+            CacheKey key = new CacheKey(SamplingMethod.valueOf(in.readUTF()), RandomAlgorithm.valueOf(in.readUTF()),
+                    in.readLong(), in.readLong(), in.readInt(), in.readUTF());
+            long inside = in.readLong();
+            long total = in.readLong();
+            long elapsed = in.readLong();
+            int size = in.readInt();
+            if (size < 0 || size > CURVE_POINTS) {
+                throw new IOException("invalid curve size: " + size);
+            }
+            long[] totals = new long[size];
+            double[] estimates = new double[size];
+            for (int i = 0; i < size; i++) {
+                totals[i] = in.readLong();
+                estimates[i] = in.readDouble();
+            }
+            return new CachedResult(key, inside, total, elapsed, totals, estimates);
+        }
+    }
+
+}
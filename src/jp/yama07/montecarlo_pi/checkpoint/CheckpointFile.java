@@ -0,0 +1,283 @@
+package jp.yama07.montecarlo_pi.checkpoint;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import jp.yama07.montecarlo_pi.SimulationResult;
+import jp.yama07.montecarlo_pi.qmc.SamplingMethod;
+import jp.yama07.montecarlo_pi.random.RandomAlgorithm;
+
+/**
+ * 長時間のシミュレーションを再開するためのチェックポイントファイル
+ *
+ * 乱数列はシードと試行番号から決まるため、乱数生成器の種類、点の生成方法、シード、
+ * 累積の試行回数があれば同じ乱数列の続きから再開できる。
+ * ファイルは固定長のヘッダと、追記のみを行う固定長のレコードからなる。
+ * <pre>
+ * ヘッダ(64バイト): magic(4) version(4) 乱数生成器名(16) シード(8) 目標試行回数(8) 生成方法名(16) 予約(8)
+ * レコード(24バイト): プロット数(8) 円の内部の数(8) チェック値(8)
+ * </pre>
+ * レコードの並びはそのまま推定値の収束の経過となる。書き込みはメモリマップしたファイルに
+ * 対して行うため、プロセスが異常終了しても書き込み済みのレコードは失われない。
+ * OSの停止や電源断に備えるには、定期的にsync()を呼び出してストレージに反映する。
+ * 反映されるのはsync()を呼び出した時点までのレコードで、それ以降は失われることがある。
+ * チェック値が一致しないレコード以降は書き込み途中とみなして無視する。
+ * 生成方法名が空のファイルはRANDOMで記録したものとみなす。
+ *
+ * @author yama07
+ */
+public class CheckpointFile implements Closeable {
+
+    private static final int MAGIC = 0x4d435049; // "MCPI"
+    private static final int VERSION = 1;
+    private static final long RECORD_MAGIC = 0x5a17c0de5a17c0deL;
+    private static final int ALGORITHM_NAME_LENGTH = 16;
+    private static final int SAMPLING_NAME_LENGTH = 16;
+    private static final int HEADER_SIZE = 64;
+    private static final int RECORD_SIZE = 24;
+    // 一度にメモリマップするレコードの数
+    private static final int RECORDS_PER_SEGMENT = 1 << 14;
+
+    private final FileChannel channel;
+    private final RandomAlgorithm algorithm;
+    private final SamplingMethod sampling;
+    private final long seed;
+    private final long trials;
+
+    private MappedByteBuffer segment;
+    private long segmentIndex = -1;
+    private long recordCount;
+    private long lastTotal;
+    private long lastInside;
+
+    private CheckpointFile(FileChannel channel, RandomAlgorithm algorithm, SamplingMethod sampling, long seed, long trials) {
+        this.channel = channel;
+        this.algorithm = algorithm;
+        this.sampling = sampling;
+        this.seed = seed;
+        this.trials = trials;
+    }
+
+    /**
+     * 点の生成方法をRANDOMとしてチェックポイントファイルを新たに作る。既存のファイルは上書きされる。
+     *
+     * @param path ファイルのパス
+     * @param algorithm 乱数生成器の種類
+     * @param seed 乱数のシード
+     * @param trials 目標の試行回数
+     * @return チェックポイントファイル
+     * @throws IOException 書き込みに失敗した場合
+     */
+    public static CheckpointFile create(Path path, RandomAlgorithm algorithm, long seed, long trials) throws IOException {
+        return create(path, algorithm, SamplingMethod.RANDOM, seed, trials);
+    }
+
+    /**
+     * チェックポイントファイルを新たに作る。既存のファイルは上書きされる。
+     *
+     * @param path ファイルのパス
+     * @param algorithm 乱数生成器の種類
+     * @param sampling 点の生成方法
+     * @param seed 乱数のシード
+     * @param trials 目標の試行回数
+     * @return チェックポイントファイル
+     * @throws IOException 書き込みに失敗した場合
+     */
+    public static CheckpointFile create(Path path, RandomAlgorithm algorithm, SamplingMethod sampling, long seed, long trials)
+            throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION);
+            byte[] name = algorithm.name().getBytes(StandardCharsets.US_ASCII);
+            header.put(name, 0, Math.min(name.length, ALGORITHM_NAME_LENGTH));
+            header.position(8 + ALGORITHM_NAME_LENGTH);
+            header.putLong(seed).putLong(trials);
+            byte[] samplingName = sampling.name().getBytes(StandardCharsets.US_ASCII);
+            header.put(samplingName, 0, Math.min(samplingName.length, SAMPLING_NAME_LENGTH));
+            header.rewind();
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            return new CheckpointFile(channel, algorithm, sampling, seed, trials);
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * 既存のチェックポイントファイルを開き、最後の有効なレコードの後ろから追記できるようにする
+     *
+     * @param path ファイルのパス
+     * @return チェックポイントファイル
+     * @throws IOException 読み込みに失敗した場合、またはチェックポイントファイルでない場合
+     */
+    public static CheckpointFile open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // ヘッダを読み切るまで繰り返す
+            }
+            header.flip();
+            if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("not a checkpoint file: " + path);
+            }
+            byte[] name = new byte[ALGORITHM_NAME_LENGTH];
+            header.get(name);
+            RandomAlgorithm algorithm;
+            try {
+                algorithm = RandomAlgorithm.valueOf(new String(name, StandardCharsets.US_ASCII).trim());
+            } catch (IllegalArgumentException ex) {
+                throw new IOException("unknown random algorithm in checkpoint: " + path, ex);
+            }
+            long seed = header.getLong();
+            long trials = header.getLong();
+            byte[] samplingName = new byte[SAMPLING_NAME_LENGTH];
+            header.get(samplingName);
+            String trimmed = new String(samplingName, StandardCharsets.US_ASCII).trim();
+            SamplingMethod sampling;
+            try {
+                sampling = trimmed.isEmpty() ? SamplingMethod.RANDOM : SamplingMethod.valueOf(trimmed);
+            } catch (IllegalArgumentException ex) {
+                throw new IOException("unknown sampling method in checkpoint: " + path, ex);
+            }
+
+            CheckpointFile file = new CheckpointFile(channel, algorithm, sampling, seed, trials);
+            file.scan();
+            return file;
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * 有効なレコードを先頭から数え、最後のレコードを読み込む
+     */
+    private void scan() throws IOException {
+        long available = (channel.size() - HEADER_SIZE) / RECORD_SIZE;
+        long previous = 0L;
+        for (long i = 0; i < available; i++) {
+            ByteBuffer buffer = segmentFor(i);
+            int offset = (int) (i % RECORDS_PER_SEGMENT) * RECORD_SIZE;
+            long total = buffer.getLong(offset);
+            long inside = buffer.getLong(offset + 8);
+            long check = buffer.getLong(offset + 16);
+            if (check != (total ^ inside ^ RECORD_MAGIC) || total <= previous || inside > total) {
+                break;
+            }
+            previous = total;
+            recordCount = i + 1;
+            lastTotal = total;
+            lastInside = inside;
+        }
+    }
+
+    /**
+     * i番目のレコードを含む範囲をメモリマップして返す
+     */
+    private MappedByteBuffer segmentFor(long i) throws IOException {
+        long index = i / RECORDS_PER_SEGMENT;
+        if (index != segmentIndex) {
+            // 書き込んだ範囲を手放す前にストレージに反映する
+            sync();
+            long position = HEADER_SIZE + index * RECORDS_PER_SEGMENT * RECORD_SIZE;
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, position, (long) RECORDS_PER_SEGMENT * RECORD_SIZE);
+            segment.order(ByteOrder.LITTLE_ENDIAN);
+            segmentIndex = index;
+        }
+        return segment;
+    }
+
+    /**
+     * 累積の試行回数を追記する
+     *
+     * @param total プロット数
+     * @param inside 円の内部にプロットされた数
+     * @throws IOException 書き込みに失敗した場合
+     */
+    public void append(long total, long inside) throws IOException {
+        if (total <= lastTotal || inside > total) {
+            throw new IllegalArgumentException("checkpoint must advance: total=" + total + ", inside=" + inside);
+        }
+        MappedByteBuffer buffer = segmentFor(recordCount);
+        int offset = (int) (recordCount % RECORDS_PER_SEGMENT) * RECORD_SIZE;
+        buffer.putLong(offset, total);
+        buffer.putLong(offset + 8, inside);
+        buffer.putLong(offset + 16, total ^ inside ^ RECORD_MAGIC);
+        recordCount++;
+        lastTotal = total;
+        lastInside = inside;
+    }
+
+    /**
+     * 書き込んだ内容をストレージに反映する。<BR>
+     * 呼び出しにはストレージへの書き込みを待つ時間がかかるため、追記のたびではなく一定の時間ごとに呼び出す。
+     */
+    public void sync() {
+        if (segment != null) {
+            segment.force();
+        }
+    }
+
+    public RandomAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    public SamplingMethod getSampling() {
+        return sampling;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public long getTrials() {
+        return trials;
+    }
+
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * 最後に記録した累積の結果を返す。経過時間は記録しないため0とする。
+     *
+     * @return 最後に記録した結果。記録がない場合はプロット数0の結果
+     */
+    public SimulationResult getLastResult() {
+        return new SimulationResult(lastInside, lastTotal, 0L);
+    }
+
+    /**
+     * i番目のレコードを返す。経過時間は記録しないため0とする。
+     *
+     * @param i レコードの番号
+     * @return 記録した結果
+     * @throws IOException 読み込みに失敗した場合
+     */
+    public SimulationResult getRecord(long i) throws IOException {
+        if (i < 0 || i >= recordCount) {
+            throw new IndexOutOfBoundsException("record " + i + " of " + recordCount);
+        }
+        ByteBuffer buffer = segmentFor(i);
+        int offset = (int) (i % RECORDS_PER_SEGMENT) * RECORD_SIZE;
+        return new SimulationResult(buffer.getLong(offset + 8), buffer.getLong(offset), 0L);
+    }
+
+    @Override
+    public void close() throws IOException {
+        sync();
+        channel.close();
+    }
+
+}
@@ -0,0 +1,931 @@
+package jp.yama07.montecarlo_pi.cli;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
+import jp.yama07.montecarlo_pi.ConvergenceRecorder;
+import jp.yama07.montecarlo_pi.HypersphereResult;
+import jp.yama07.montecarlo_pi.RandomPointGenerator;
+import jp.yama07.montecarlo_pi.SimulationEngine;
+import jp.yama07.montecarlo_pi.SimulationResult;
+import jp.yama07.montecarlo_pi.SweepResult;
+import jp.yama07.montecarlo_pi.cache.CacheKey;
+import jp.yama07.montecarlo_pi.cache.CachedResult;
+import jp.yama07.montecarlo_pi.cache.ResultCache;
+import jp.yama07.montecarlo_pi.checkpoint.CheckpointFile;
+import jp.yama07.montecarlo_pi.distributed.DistributedCoordinator;
+import jp.yama07.montecarlo_pi.estimator.Estimator;
+import jp.yama07.montecarlo_pi.estimator.EstimatorResult;
+import jp.yama07.montecarlo_pi.estimator.Estimators;
+import jp.yama07.montecarlo_pi.kernel.HitKernel;
+import jp.yama07.montecarlo_pi.kernel.HitKernels;
+import jp.yama07.montecarlo_pi.metrics.PrometheusEndpoint;
+import jp.yama07.montecarlo_pi.metrics.SimulationMetrics;
+import jp.yama07.montecarlo_pi.profile.KernelProfiler;
+import jp.yama07.montecarlo_pi.profile.ProfileResult;
+import jp.yama07.montecarlo_pi.qmc.SamplingMethod;
+import jp.yama07.montecarlo_pi.random.RandomAlgorithm;
+import jp.yama07.montecarlo_pi.stats.ExactEstimate;
+import jp.yama07.montecarlo_pi.stats.PrecisionTarget;
+
+/**
+ * コマンドラインから円周率の推定を行うmainクラス
+ *
+ * 使い方:
+ * <pre>
+ * java -cp MonteCarlo_PI.jar jp.yama07.montecarlo_pi.cli.MonteCarloCli \
+ *     --trials 1e9 --threads 8 --seed 42 --prng xoshiro256pp --kernel batched --format json
+ * </pre>
+ * 既定のカーネルはscalarで、システムプロパティmontecarlo.kernelで変更できる。
+ * batchedは、CPUのL1データキャッシュに合わせた数ずつ座標を配列に展開して判定する。
+ * 展開する点の数は--chunkで変更できる。
+ * --checkpointを指定すると、途中経過をファイルに記録しながら計算する。
+ * ファイルが既に存在する場合は、記録されたシードと乱数生成器で続きから再開する。
+ * --workersを指定すると、指定した数のワーカープロセスに試行を分配して計算する。
+ * この場合--threadsはワーカーあたりのスレッド数になる。
+ * --precisionを指定すると、信頼区間の半幅がその値以下になった時点で計算を終える。
+ * この場合--trialsは試行回数の上限になる。
+ * --samplingで点の生成方法を選べる。--replicatesを指定すると、--trialsの試行を
+ * シードの異なるreplicates回に分けて行い、推定値のばらつきから標準誤差を求める。
+ * --estimatorを指定すると、分散低減を行う推定量で推定し、分散と実効試行回数を出力する。
+ * allを指定するとすべての推定量を比較する。--precisionを併せて指定すると、
+ * その精度に達するまでに要する時間の見積もりも出力する。
+ * --dimensionsを指定すると、次元ごとに単位球の体積を推定し、そこから求めた円周率を出力する。
+ * 次元は3、2-10、2,3,5のように指定する。
+ * 推定した円周率と信頼区間(--confidenceの信頼水準)は、--digitsで指定した有効桁数まで
+ * BigDecimalで求めて出力する。
+ * --sweepを指定すると、最大の試行回数まで1回だけ試行を行い、指定した試行回数ごとの結果を出力する。
+ * 試行回数は1e6:1e8:1e6(開始:終了:増分)、1e3:1e9:x10(開始:終了:倍率)、1e6,1e7のように指定する。
+ * jsonでは列ごとの配列として出力する。
+ * --profileを指定すると、推定は行わず、乱数の生成だけ、判定だけ、分岐の有無などの計算カーネルの変種ごとに
+ * 1試行あたりの時間とヒープの割り当て量を計測する。値にはバッチの大きさの並びまたはdefaultを指定する。
+ * --cacheを指定すると、同じ条件の結果をディレクトリに保存し、次回からは計算せずに返す。
+ * 試行回数だけが少ない結果が保存されている場合は、その続きの試行だけを計算する。
+ * --metrics-portを指定すると、実行中の計測値をJMXに登録し、指定したポートで
+ * Prometheusのテキスト形式で公開する。0を指定すると空いているポートを用いる。
+ *
+ * @author yama07
+ */
+public class MonteCarloCli {
+
+    private static final String USAGE
+            = "usage: MonteCarloCli [--trials N] [--threads N] [--seed N]"
+            + " [--prng splitmix64|xoshiro256pp|pcg32] [--kernel scalar|batched|vector] [--chunk N] [--format text|csv|json]"
+            + " [--sampling random|stratified|sobol|halton] [--replicates N]"
+            + " [--estimator hit|antithetic|control|integral|importance|all] [--dimensions D|FROM-TO|D,D,...]"
+            + " [--checkpoint FILE] [--workers N] [--precision H] [--confidence C] [--digits N] [--metrics-port PORT]"
+            + " [--cache DIR] [--cache-size BYTES] [--sweep FROM:TO:STEP|FROM:TO:xFACTOR|N,N,...]"
+            + " [--profile default|BATCH,BATCH,...]";
+    // チェックポイントを記録する間隔(スレッドあたりのブロック数)
+    private static final long CHECKPOINT_BLOCKS_PER_THREAD = 64;
+    // チェックポイントをストレージに反映する間隔
+    private static final long CHECKPOINT_SYNC_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    // --sweepで結果を記録する時点の数の上限
+    private static final int SWEEP_POINTS_MAX = 1 << 20;
+    // --precisionを指定し、--trialsを指定しない場合の試行回数の上限
+    private static final long PRECISION_TRIALS_MAX = 1L << 48;
+
+    private long trials = 100000000L;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private long seed = System.nanoTime();
+    private RandomAlgorithm algorithm = SimulationEngine.DEFAULT_ALGORITHM;
+    private SamplingMethod sampling = SimulationEngine.DEFAULT_SAMPLING;
+    private int replicates;
+    private List<Estimator> estimators;
+    private List<Integer> dimensions;
+    private long[] sweep;
+    // --profileで計測するバッチの大きさ
+    private int[] profile;
+    private HitKernel kernel = HitKernels.defaultKernel();
+    private String format = "text";
+    // batchedカーネルが一度に展開する点の数。0の場合はキャッシュの大きさから決める
+    private int chunk;
+    private String checkpoint;
+    private int workers;
+    private double precision;
+    private double confidence = 0.95;
+    private int digits = ExactEstimate.DEFAULT_DIGITS;
+    private String cache;
+    private long cacheSize = ResultCache.DEFAULT_MAX_BYTES;
+    // 計測値を公開するポート番号。負の場合は公開しない
+    private int metricsPort = -1;
+    private PrecisionTarget target;
+    // チェックポイントから再開した時点のプロット数
+    private long resumedFrom;
+    // キャッシュから読み出した結果の計算に要した時間(ナノ秒)。読み出していない場合は負
+    private long cachedNanos = -1L;
+
+    /**
+     * @param args the command line arguments
+     */
+    public static void main(String[] args) {
+        MonteCarloCli cli = new MonteCarloCli();
+        try {
+            cli.parse(args);
+        } catch (IllegalArgumentException ex) {
+            System.err.println(ex.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+        SimulationEngine engine = new SimulationEngine(cli.seed, cli.threads);
+        engine.setAlgorithm(cli.algorithm);
+        engine.setKernel(cli.kernel);
+        engine.setSampling(cli.sampling);
+        if (cli.metricsPort >= 0) {
+            cli.exportMetrics(engine);
+        }
+        ResultCache cache = null;
+        if (cli.cache != null) {
+            try {
+                cache = new ResultCache(Paths.get(cli.cache), cli.cacheSize);
+            } catch (IOException ex) {
+                System.err.println("cache unavailable: " + ex.getMessage());
+            }
+        }
+        if (cli.dimensions != null) {
+            List<HypersphereResult> results = new ArrayList<>();
+            for (int d : cli.dimensions) {
+                results.add(cli.runHypersphere(engine, cache, d));
+            }
+            engine.shutdown();
+            System.out.println(cli.formatHyperspheres(results));
+            return;
+        }
+        if (cli.profile != null) {
+            KernelProfiler profiler = new KernelProfiler(cli.algorithm, cli.seed);
+            profiler.setBatchSizes(cli.profile);
+            System.out.println(cli.formatProfile(profiler.run()));
+            return;
+        }
+        if (cli.sweep != null) {
+            SweepResult result = engine.sweep(cli.sweep);
+            engine.shutdown();
+            System.out.println(cli.formatSweep(result));
+            return;
+        }
+        if (cli.estimators != null) {
+            List<EstimatorResult> results = new ArrayList<>();
+            for (Estimator estimator : cli.estimators) {
+                results.add(engine.estimate(estimator, cli.trials));
+            }
+            engine.shutdown();
+            System.out.println(cli.format(results));
+            return;
+        }
+        SimulationResult result;
+        if (cli.replicates > 0) {
+            result = engine.runReplicates(cli.trials / cli.replicates, cli.replicates);
+        } else if (cli.workers > 0) {
+            try {
+                result = new DistributedCoordinator(engine, cli.workers, cli.threads).run(cli.trials);
+            } catch (IOException | InterruptedException ex) {
+                System.err.println("distributed run failed: " + ex.getMessage());
+                System.exit(1);
+                return;
+            }
+        } else if (cli.checkpoint == null && cache != null) {
+            result = cli.runCached(engine, cache);
+        } else if (cli.checkpoint == null) {
+            result = cli.target == null ? engine.run(cli.trials) : engine.runUntil(cli.target, cli.trials);
+        } else {
+            try {
+                result = cli.runWithCheckpoint(engine, Paths.get(cli.checkpoint));
+            } catch (IOException ex) {
+                System.err.println("checkpoint failed: " + ex.getMessage());
+                System.exit(1);
+                return;
+            }
+        }
+        engine.shutdown();
+        System.out.println(cli.format(result));
+    }
+
+    /**
+     * エンジンの計測値をJMXに登録し、Prometheusのテキスト形式で公開する。<BR>
+     * 採取と公開はデーモンスレッドで行うため、計算が終わればそのまま終了する。
+     *
+     * @param engine 計測するエンジン
+     */
+    private void exportMetrics(SimulationEngine engine) {
+        SimulationMetrics metrics = new SimulationMetrics(engine.getStatistics());
+        metrics.start(SimulationMetrics.DEFAULT_INTERVAL_MILLIS);
+        try {
+            metrics.register();
+            PrometheusEndpoint endpoint = new PrometheusEndpoint(metrics);
+            endpoint.start(metricsPort);
+            System.err.println("metrics: http://localhost:" + endpoint.getPort() + PrometheusEndpoint.PATH);
+        } catch (IOException | JMException ex) {
+            System.err.println("failed to export metrics: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * キャッシュに保存された結果を返す。保存されていない場合は計算して保存する。<BR>
+     * 試行回数だけが少ない結果があれば、その続きから計算する。ブロック単位で並列に
+     * 計算できるよう、最初にブロックの境界まで進めてから一定の試行回数ごとに収束の経過を記録する。
+     * 返す結果の経過時間は今回の呼び出しに要した時間とし、保存した結果の計算に要した時間は
+     * cachedNanosに記録する。
+     *
+     * @param engine 計算に用いるエンジン
+     * @param cache キャッシュ
+     * @return シミュレーション結果
+     */
+    SimulationResult runCached(SimulationEngine engine, ResultCache cache) {
+        long start = System.nanoTime();
+        CacheKey key = new CacheKey(sampling, algorithm, seed, trials);
+        CachedResult cached = cache.get(key);
+        if (cached != null) {
+            System.err.println("cache: hit");
+            resumedFrom = cached.getNumOfTotal();
+            cachedNanos = cached.getElapsedNanos();
+            return new SimulationResult(cached.getNumOfInside(), cached.getNumOfTotal(), System.nanoTime() - start);
+        }
+        ConvergenceRecorder convergence = new ConvergenceRecorder(ResultCache.CURVE_POINTS);
+        long previousNanos = 0L;
+        CachedResult prefix = cache.findPrefix(key);
+        if (prefix != null) {
+            prefix.replayCurve(convergence);
+            engine.restore(prefix.getNumOfInside(), prefix.getNumOfTotal());
+            resumedFrom = prefix.getNumOfTotal();
+            previousNanos = prefix.getElapsedNanos();
+            cachedNanos = previousNanos;
+            System.err.printf(Locale.ROOT, "cache: extending %,d cached trials%n", resumedFrom);
+        } else {
+            System.err.println("cache: miss");
+        }
+        final long block = RandomPointGenerator.BLOCK_SIZE;
+        long batch = block * CHECKPOINT_BLOCKS_PER_THREAD * threads;
+        SimulationResult result = engine.getResult();
+        while (result.getNumOfTotal() < trials) {
+            long position = result.getNumOfTotal();
+            long n = position % block == 0 ? batch : block - position % block;
+            result = engine.step(Math.min(n, trials - position));
+            convergence.record(result.getNumOfTotal(), result.getEstimatedPI());
+        }
+        // 保存する時間は最初から計算した場合の計算時間とする
+        SimulationResult total = new SimulationResult(result.getNumOfInside(), result.getNumOfTotal(),
+                previousNanos + result.getElapsedNanos());
+        try {
+            cache.put(CachedResult.of(key, total, convergence));
+        } catch (IOException ex) {
+            System.err.println("failed to write cache: " + ex.getMessage());
+        }
+        return new SimulationResult(result.getNumOfInside(), result.getNumOfTotal(), System.nanoTime() - start);
+    }
+
+    /**
+     * d次元の単位球の体積を推定する。キャッシュがあれば、同じ条件の結果を再利用する。<BR>
+     * 再利用した場合の経過時間は、キャッシュから読み出すのに要した時間とする。
+     *
+     * @param engine 計算に用いるエンジン
+     * @param cache キャッシュ。用いない場合はnull
+     * @param d 次元数
+     * @return 推定結果
+     */
+    HypersphereResult runHypersphere(SimulationEngine engine, ResultCache cache, int d) {
+        if (cache == null) {
+            return engine.runHypersphere(d, trials);
+        }
+        long start = System.nanoTime();
+        CacheKey key = new CacheKey(sampling, algorithm, seed, trials, d, CacheKey.HIT);
+        CachedResult cached = cache.get(key);
+        if (cached != null) {
+            return new HypersphereResult(d, cached.getNumOfInside(), cached.getNumOfTotal(), System.nanoTime() - start);
+        }
+        HypersphereResult result = engine.runHypersphere(d, trials);
+        try {
+            cache.put(new CachedResult(key, result.getNumOfInside(), result.getNumOfTotal(), result.getElapsedNanos(),
+                    new long[0], new double[0]));
+        } catch (IOException ex) {
+            System.err.println("failed to write cache: " + ex.getMessage());
+        }
+        return result;
+    }
+
+    /**
+     * 一定の試行回数ごとにチェックポイントを記録しながら計算する。<BR>
+     * 記録はCHECKPOINT_SYNC_INTERVAL_NANOSごとにストレージに反映する。
+     *
+     * @param engine 計算に用いるエンジン
+     * @param path チェックポイントファイルのパス
+     * @return シミュレーション結果
+     * @throws IOException チェックポイントの読み書きに失敗した場合
+     */
+    SimulationResult runWithCheckpoint(SimulationEngine engine, Path path) throws IOException {
+        CheckpointFile file;
+        if (Files.exists(path)) {
+            file = CheckpointFile.open(path);
+            if (file.getSeed() != seed || file.getAlgorithm() != algorithm || file.getSampling() != sampling) {
+                System.err.println("using seed, prng and sampling recorded in " + path);
+            }
+            seed = file.getSeed();
+            algorithm = file.getAlgorithm();
+            sampling = file.getSampling();
+            engine.setAlgorithm(algorithm);
+            engine.setSampling(sampling);
+            engine.setSeed(seed);
+            SimulationResult last = file.getLastResult();
+            engine.restore(last.getNumOfInside(), last.getNumOfTotal());
+            resumedFrom = last.getNumOfTotal();
+            System.err.printf(Locale.ROOT, "resuming from %,d trials%n", resumedFrom);
+        } else {
+            file = CheckpointFile.create(path, algorithm, sampling, seed, trials);
+        }
+        try {
+            long batch = RandomPointGenerator.BLOCK_SIZE * CHECKPOINT_BLOCKS_PER_THREAD * threads;
+            SimulationResult result = engine.getResult();
+            long n;
+            long lastSync = System.nanoTime();
+            while ((n = target == null ? trials - result.getNumOfTotal() : engine.nextBatch(target, trials)) > 0) {
+                result = engine.step(Math.min(batch, n));
+                file.append(result.getNumOfTotal(), result.getNumOfInside());
+                if (System.nanoTime() - lastSync >= CHECKPOINT_SYNC_INTERVAL_NANOS) {
+                    file.sync();
+                    lastSync = System.nanoTime();
+                }
+            }
+            return result;
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * コマンドライン引数を解析する
+     *
+     * @param args コマンドライン引数
+     */
+    void parse(String[] args) {
+        boolean trialsGiven = false;
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("-h") || arg.equals("--help")) {
+                System.out.println(USAGE);
+                System.exit(0);
+            }
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("missing value for " + arg);
+            }
+            String value = args[++i];
+            switch (arg) {
+                case "--trials":
+                    trials = parseCount(value);
+                    trialsGiven = true;
+                    break;
+                case "--threads":
+                    threads = (int) parseCount(value);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(value);
+                    break;
+                case "--prng":
+                    try {
+                        algorithm = RandomAlgorithm.valueOf(value.toUpperCase(Locale.ROOT));
+                    } catch (IllegalArgumentException ex) {
+                        throw new IllegalArgumentException("unknown prng: " + value);
+                    }
+                    break;
+                case "--kernel":
+                    kernel = HitKernels.forName(value);
+                    break;
+                case "--chunk":
+                    chunk = (int) parseCount(value);
+                    break;
+                case "--sampling":
+                    try {
+                        sampling = SamplingMethod.valueOf(value.toUpperCase(Locale.ROOT));
+                    } catch (IllegalArgumentException ex) {
+                        throw new IllegalArgumentException("unknown sampling: " + value);
+                    }
+                    break;
+                case "--replicates":
+                    replicates = (int) parseCount(value);
+                    break;
+                case "--estimator":
+                    estimators = value.equals("all") ? Estimators.all() : Collections.singletonList(Estimators.forName(value));
+                    break;
+                case "--dimensions":
+                    dimensions = parseDimensions(value);
+                    break;
+                case "--sweep":
+                    sweep = parseSweep(value);
+                    break;
+                case "--profile":
+                    profile = value.equals("default") ? KernelProfiler.DEFAULT_BATCH_SIZES : parseBatchSizes(value);
+                    break;
+                case "--checkpoint":
+                    checkpoint = value;
+                    break;
+                case "--workers":
+                    workers = (int) parseCount(value);
+                    break;
+                case "--precision":
+                    precision = parseDouble(value);
+                    break;
+                case "--confidence":
+                    confidence = parseDouble(value);
+                    break;
+                case "--digits":
+                    digits = (int) parseCount(value);
+                    break;
+                case "--cache":
+                    cache = value;
+                    break;
+                case "--cache-size":
+                    cacheSize = parseCount(value);
+                    if (cacheSize <= 0) {
+                        throw new IllegalArgumentException("cache size must be positive");
+                    }
+                    break;
+                case "--metrics-port":
+                    metricsPort = (int) parseCount(value);
+                    if (metricsPort < 0 || metricsPort > 65535) {
+                        throw new IllegalArgumentException("invalid port: " + value);
+                    }
+                    break;
+                case "--format":
+                    if (!value.equals("text") && !value.equals("csv") && !value.equals("json")) {
+                        throw new IllegalArgumentException("unknown format: " + value);
+                    }
+                    format = value;
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown option: " + arg);
+            }
+        }
+        if (chunk < 0) {
+            throw new IllegalArgumentException("chunk must be positive");
+        }
+        if (chunk > 0) {
+            if (!kernel.getName().equals("batched")) {
+                throw new IllegalArgumentException("--chunk requires --kernel batched");
+            }
+            kernel = HitKernels.batched(chunk);
+        }
+        if (trials <= 0 || threads <= 0) {
+            throw new IllegalArgumentException("trials and threads must be positive");
+        }
+        if (!(confidence > 0 && confidence < 1)) {
+            throw new IllegalArgumentException("confidence must be in (0, 1): " + confidence);
+        }
+        if (digits <= 0) {
+            throw new IllegalArgumentException("digits must be positive");
+        }
+        if (workers < 0) {
+            throw new IllegalArgumentException("workers must not be negative");
+        }
+        if (workers > 0 && checkpoint != null) {
+            throw new IllegalArgumentException("--workers cannot be combined with --checkpoint");
+        }
+        if (precision != 0) {
+            if (workers > 0) {
+                throw new IllegalArgumentException("--precision cannot be combined with --workers");
+            }
+            target = new PrecisionTarget(precision, confidence);
+            if (!trialsGiven) {
+                trials = Math.min(PRECISION_TRIALS_MAX, sampling.getMaxPoints());
+            }
+        }
+        if (replicates != 0) {
+            if (replicates < 2 || trials / replicates == 0) {
+                throw new IllegalArgumentException("replicates must be at least 2 and at most trials");
+            }
+            if (workers > 0 || checkpoint != null || target != null) {
+                throw new IllegalArgumentException("--replicates cannot be combined with --workers, --checkpoint or --precision");
+            }
+        }
+        if (estimators != null && (workers > 0 || checkpoint != null || replicates != 0)) {
+            throw new IllegalArgumentException("--estimator cannot be combined with --workers, --checkpoint or --replicates");
+        }
+        if (cache != null && (workers > 0 || checkpoint != null || replicates != 0 || estimators != null || target != null)) {
+            throw new IllegalArgumentException(
+                    "--cache cannot be combined with --workers, --checkpoint, --replicates, --estimator or --precision");
+        }
+        if (dimensions != null) {
+            if (workers > 0 || checkpoint != null || replicates != 0 || estimators != null || target != null) {
+                throw new IllegalArgumentException(
+                        "--dimensions cannot be combined with --workers, --checkpoint, --replicates, --estimator or --precision");
+            }
+            if (sampling != SamplingMethod.RANDOM && (dimensions.size() > 1 || dimensions.get(0) != 2)) {
+                throw new IllegalArgumentException("--dimensions other than 2 requires --sampling random");
+            }
+        }
+        if (sweep != null) {
+            if (trialsGiven || workers > 0 || checkpoint != null || replicates != 0 || estimators != null || target != null
+                    || dimensions != null || cache != null) {
+                throw new IllegalArgumentException("--sweep cannot be combined with --trials, --workers, --checkpoint,"
+                        + " --replicates, --estimator, --precision, --dimensions or --cache");
+            }
+            trials = sweep[sweep.length - 1];
+        }
+        if (trials > sampling.getMaxPoints()) {
+            throw new IllegalArgumentException(sampling.name().toLowerCase(Locale.ROOT)
+                    + " supports up to " + sampling.getMaxPoints() + " trials");
+        }
+    }
+
+    /**
+     * 1e9や1_000_000のような表記も受け付けて回数を解析する
+     *
+     * @param value 文字列
+     * @return 回数
+     */
+    static long parseCount(String value) {
+        try {
+            return new BigDecimal(value.replace("_", "")).longValueExact();
+        } catch (NumberFormatException | ArithmeticException ex) {
+            throw new IllegalArgumentException("not a count: " + value);
+        }
+    }
+
+    /**
+     * 3、2-10、2,3,5のような表記の次元の並びを解析する
+     *
+     * @param value 文字列
+     * @return 次元の並び
+     */
+    static List<Integer> parseDimensions(String value) {
+        List<Integer> list = new ArrayList<>();
+        for (String part : value.split(",")) {
+            int dash = part.indexOf('-', 1);
+            int from = (int) parseCount(dash < 0 ? part : part.substring(0, dash));
+            int to = dash < 0 ? from : (int) parseCount(part.substring(dash + 1));
+            if (from < 2 || to > HypersphereResult.MAX_DIMENSIONS || from > to) {
+                throw new IllegalArgumentException("dimensions must be in [2, " + HypersphereResult.MAX_DIMENSIONS + "]: " + part);
+            }
+            for (int d = from; d <= to; d++) {
+                list.add(d);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * 1e6:1e8:1e6(開始:終了:増分)、1e3:1e9:x10(開始:終了:倍率)、1e6,1e7のような表記の試行回数の並びを解析する。<BR>
+     * 並びは昇順に整列し、重複を除く。終了の値は増分で割り切れなくても含める。
+     *
+     * @param value 文字列
+     * @return 昇順の試行回数
+     */
+    static long[] parseSweep(String value) {
+        TreeSet<Long> set = new TreeSet<>();
+        for (String part : value.split(",")) {
+            String[] range = part.split(":");
+            if (range.length == 1) {
+                set.add(parseCount(range[0]));
+            } else if (range.length == 3) {
+                long from = parseCount(range[0]);
+                long to = parseCount(range[1]);
+                boolean geometric = range[2].startsWith("x");
+                long step = parseCount(geometric ? range[2].substring(1) : range[2]);
+                if (from <= 0 || from > to || step < (geometric ? 2 : 1)) {
+                    throw new IllegalArgumentException("invalid sweep range: " + part);
+                }
+                for (long n = from; n < to && set.size() <= SWEEP_POINTS_MAX; n = geometric ? n * step : n + step) {
+                    set.add(n);
+                    if (geometric ? n > Long.MAX_VALUE / step : n > Long.MAX_VALUE - step) {
+                        break;
+                    }
+                }
+                set.add(to);
+            } else {
+                throw new IllegalArgumentException("invalid sweep: " + part);
+            }
+            if (set.size() > SWEEP_POINTS_MAX) {
+                throw new IllegalArgumentException("sweep supports up to " + SWEEP_POINTS_MAX + " points");
+            }
+        }
+        if (set.first() <= 0) {
+            throw new IllegalArgumentException("sweep trials must be positive");
+        }
+        long[] checkpoints = new long[set.size()];
+        int i = 0;
+        for (long n : set) {
+            checkpoints[i++] = n;
+        }
+        return checkpoints;
+    }
+
+    /**
+     * 256,4096のような表記のバッチの大きさの並びを解析する
+     *
+     * @param value 文字列
+     * @return バッチの大きさの並び
+     */
+    static int[] parseBatchSizes(String value) {
+        String[] parts = value.split(",");
+        int[] sizes = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            long size = parseCount(parts[i]);
+            if (size <= 0 || size > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("invalid batch size: " + parts[i]);
+            }
+            sizes[i] = (int) size;
+        }
+        return sizes;
+    }
+
+    /**
+     * 小数を解析する
+     *
+     * @param value 文字列
+     * @return 値
+     */
+    static double parseDouble(String value) {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("not a number: " + value);
+        }
+    }
+
+    /**
+     * 推定量ごとの結果を指定された形式の文字列にする
+     *
+     * @param results 推定結果
+     * @return 出力する文字列
+     */
+    String format(List<EstimatorResult> results) {
+        StringBuilder sb = new StringBuilder();
+        String samplingName = sampling.name().toLowerCase(Locale.ROOT);
+        switch (format) {
+            case "csv":
+                sb.append("estimator,trials,threads,seed,prng,sampling,estimated_pi,variance,std_error,"
+                        + "variance_reduction,wall_seconds,samples_per_second,effective_samples_per_second,seconds_for_target");
+                for (EstimatorResult r : results) {
+                    sb.append(String.format(Locale.ROOT, "%n%s,%d,%d,%d,%s,%s,%.16f,%.6e,%.3e,%.3f,%.6f,%.0f,%.0f,%s",
+                            r.getName(), r.getNumOfSamples(), threads, seed, algorithm.name().toLowerCase(Locale.ROOT), samplingName,
+                            r.getEstimate(), r.getVariance(), r.getStandardError(), r.getVarianceReduction(), r.getElapsedNanos() / 1e9,
+                            r.getSamplesPerSecond(), r.getEffectiveSamplesPerSecond(), secondsForTarget(r)));
+                }
+                return sb.toString();
+            case "json":
+                sb.append('[');
+                for (EstimatorResult r : results) {
+                    if (sb.length() > 1) {
+                        sb.append(',');
+                    }
+                    sb.append(String.format(Locale.ROOT,
+                            "{\"estimator\":\"%s\",\"trials\":%d,\"threads\":%d,\"seed\":%d,\"prng\":\"%s\",\"sampling\":\"%s\","
+                            + "\"estimatedPI\":%.16f,\"variance\":%.6e,\"stdError\":%.6e,\"varianceReduction\":%.3f,"
+                            + "\"wallSeconds\":%.6f,\"samplesPerSecond\":%.0f,\"effectiveSamplesPerSecond\":%.0f,\"secondsForTarget\":%s}",
+                            r.getName(), r.getNumOfSamples(), threads, seed, algorithm.name().toLowerCase(Locale.ROOT), samplingName,
+                            r.getEstimate(), r.getVariance(), r.getStandardError(), r.getVarianceReduction(), r.getElapsedNanos() / 1e9,
+                            r.getSamplesPerSecond(), r.getEffectiveSamplesPerSecond(), target == null ? "null" : secondsForTarget(r)));
+                }
+                return sb.append(']').toString();
+            default:
+                sb.append(String.format(Locale.ROOT, "Trials: %,d  Threads: %d  Seed: %d  PRNG: %s  Sampling: %s%n",
+                        trials, threads, seed, algorithm.name().toLowerCase(Locale.ROOT), samplingName));
+                sb.append(String.format(Locale.ROOT, "%-11s %-18s %-10s %-10s %-9s %-14s %-14s%s",
+                        "Estimator", "Estimated PI", "Variance", "Std error", "Reduction", "Samples/sec", "Effective/sec",
+                        target == null ? "" : " Seconds for target"));
+                for (EstimatorResult r : results) {
+                    sb.append(String.format(Locale.ROOT, "%n%-11s %-18.16f %-10.4e %-10.3e %-9.2f %-14.4e %-14.4e%s",
+                            r.getName(), r.getEstimate(), r.getVariance(), r.getStandardError(), r.getVarianceReduction(),
+                            r.getSamplesPerSecond(), r.getEffectiveSamplesPerSecond(), target == null ? "" : " " + secondsForTarget(r)));
+                }
+                return sb.toString();
+        }
+    }
+
+    /**
+     * 次元ごとの単位球の推定結果を指定された形式の文字列にする
+     *
+     * @param results 推定結果
+     * @return 出力する文字列
+     */
+    String formatHyperspheres(List<HypersphereResult> results) {
+        StringBuilder sb = new StringBuilder();
+        switch (format) {
+            case "csv":
+                sb.append("dimensions,trials,threads,seed,prng,kernel,inside,estimated_volume,exact_volume,volume_std_error,"
+                        + "estimated_pi,pi_std_error,wall_seconds,samples_per_second");
+                for (HypersphereResult r : results) {
+                    sb.append(String.format(Locale.ROOT, "%n%d,%d,%d,%d,%s,%s,%d,%.16f,%.16f,%.3e,%.16f,%.3e,%.6f,%.0f",
+                            r.getDimensions(), r.getNumOfTotal(), threads, seed, algorithm.name().toLowerCase(Locale.ROOT), kernel.getName(),
+                            r.getNumOfInside(), r.getEstimatedVolume(), HypersphereResult.exactVolume(r.getDimensions()),
+                            r.getVolumeStandardError(), r.getEstimatedPI(), r.getPIStandardError(), r.getElapsedNanos() / 1e9,
+                            r.getSamplesPerSecond()));
+                }
+                return sb.toString();
+            case "json":
+                sb.append('[');
+                for (HypersphereResult r : results) {
+                    if (sb.length() > 1) {
+                        sb.append(',');
+                    }
+                    sb.append(String.format(Locale.ROOT,
+                            "{\"dimensions\":%d,\"trials\":%d,\"threads\":%d,\"seed\":%d,\"prng\":\"%s\",\"kernel\":\"%s\",\"inside\":%d,"
+                            + "\"estimatedVolume\":%.16f,\"exactVolume\":%.16f,\"volumeStdError\":%.6e,\"estimatedPI\":%.16f,"
+                            + "\"piStdError\":%.6e,\"wallSeconds\":%.6f,\"samplesPerSecond\":%.0f}",
+                            r.getDimensions(), r.getNumOfTotal(), threads, seed, algorithm.name().toLowerCase(Locale.ROOT), kernel.getName(),
+                            r.getNumOfInside(), r.getEstimatedVolume(), HypersphereResult.exactVolume(r.getDimensions()),
+                            r.getVolumeStandardError(), r.getEstimatedPI(), r.getPIStandardError(), r.getElapsedNanos() / 1e9,
+                            r.getSamplesPerSecond()));
+                }
+                return sb.append(']').toString();
+            default:
+                sb.append(String.format(Locale.ROOT, "Trials: %,d  Threads: %d  Seed: %d  PRNG: %s  Kernel: %s%n",
+                        trials, threads, seed, algorithm.name().toLowerCase(Locale.ROOT), kernel.getName()));
+                sb.append(String.format(Locale.ROOT, "%-4s %-14s %-14s %-10s %-18s %-10s %-9s %s",
+                        "Dim", "Volume", "Exact volume", "Std error", "Estimated PI", "Std error", "Wall (s)", "Samples/sec"));
+                for (HypersphereResult r : results) {
+                    sb.append(String.format(Locale.ROOT, "%n%-4d %-14.10f %-14.10f %-10.3e %-18.16f %-10.3e %-9.3f %.4e",
+                            r.getDimensions(), r.getEstimatedVolume(), HypersphereResult.exactVolume(r.getDimensions()),
+                            r.getVolumeStandardError(), r.getEstimatedPI(), r.getPIStandardError(), r.getElapsedNanos() / 1e9,
+                            r.getSamplesPerSecond()));
+                }
+                return sb.toString();
+        }
+    }
+
+    /**
+     * 試行回数ごとの結果を指定された形式の文字列にする。<BR>
+     * jsonでは、列ごとの配列にまとめて出力する。
+     *
+     * @param result 試行回数ごとの結果
+     * @return 出力する文字列
+     */
+    String formatSweep(SweepResult result) {
+        int size = result.size();
+        String[] pi = new String[size];
+        String[] lower = new String[size];
+        String[] upper = new String[size];
+        for (int i = 0; i < size; i++) {
+            ExactEstimate exact = result.getResult(i).getExactEstimate(digits);
+            pi[i] = exact.getEstimatedPI().toPlainString();
+            lower[i] = exact.getLowerBound(confidence).toPlainString();
+            upper[i] = exact.getUpperBound(confidence).toPlainString();
+        }
+        String prng = algorithm.name().toLowerCase(Locale.ROOT);
+        String samplingName = sampling.name().toLowerCase(Locale.ROOT);
+        StringBuilder sb = new StringBuilder();
+        switch (format) {
+            case "csv":
+                sb.append("trials,threads,seed,prng,sampling,kernel,inside,estimated_pi,std_error,ci_lower,ci_upper,wall_seconds");
+                for (int i = 0; i < size; i++) {
+                    sb.append(String.format(Locale.ROOT, "%n%d,%d,%d,%s,%s,%s,%d,%s,%.3e,%s,%s,%.6f",
+                            result.getNumOfTotal(i), threads, seed, prng, samplingName, kernel.getName(), result.getNumOfInside(i),
+                            pi[i], result.getResult(i).getStandardError(), lower[i], upper[i], result.getElapsedNanos(i) / 1e9));
+                }
+                return sb.toString();
+            case "json":
+                sb.append(String.format(Locale.ROOT,
+                        "{\"threads\":%d,\"seed\":%d,\"prng\":\"%s\",\"sampling\":\"%s\",\"kernel\":\"%s\",\"confidence\":%s,\"columns\":{",
+                        threads, seed, prng, samplingName, kernel.getName(), confidence));
+                sb.append("\"trials\":[");
+                for (int i = 0; i < size; i++) {
+                    sb.append(i == 0 ? "" : ",").append(result.getNumOfTotal(i));
+                }
+                sb.append("],\"inside\":[");
+                for (int i = 0; i < size; i++) {
+                    sb.append(i == 0 ? "" : ",").append(result.getNumOfInside(i));
+                }
+                sb.append("],\"estimatedPI\":[").append(String.join(",", pi));
+                sb.append("],\"stdError\":[");
+                for (int i = 0; i < size; i++) {
+                    sb.append(i == 0 ? "" : ",").append(String.format(Locale.ROOT, "%.6e", result.getResult(i).getStandardError()));
+                }
+                sb.append("],\"ciLower\":[").append(String.join(",", lower));
+                sb.append("],\"ciUpper\":[").append(String.join(",", upper));
+                sb.append("],\"wallSeconds\":[");
+                for (int i = 0; i < size; i++) {
+                    sb.append(i == 0 ? "" : ",").append(String.format(Locale.ROOT, "%.6f", result.getElapsedNanos(i) / 1e9));
+                }
+                return sb.append("]}}").toString();
+            default:
+                sb.append(String.format(Locale.ROOT, "Threads: %d  Seed: %d  PRNG: %s  Sampling: %s  Kernel: %s%n",
+                        threads, seed, prng, samplingName, kernel.getName()));
+                sb.append(String.format(Locale.ROOT, "%-18s %-20s %-10s %-44s %s",
+                        "Trials", "Estimated PI", "Std error", String.format(Locale.ROOT, "Bounds (%.4g%%)", confidence * 100), "Wall (s)"));
+                for (int i = 0; i < size; i++) {
+                    sb.append(String.format(Locale.ROOT, "%n%,-18d %-20s %-10.3e %-44s %.3f",
+                            result.getNumOfTotal(i), pi[i], result.getResult(i).getStandardError(),
+                            "[" + lower[i] + ", " + upper[i] + "]", result.getElapsedNanos(i) / 1e9));
+                }
+                return sb.toString();
+        }
+    }
+
+    /**
+     * 計算カーネルの変種ごとの計測結果を指定された形式の文字列にする
+     *
+     * @param results 計測結果
+     * @return 出力する文字列
+     */
+    String formatProfile(List<ProfileResult> results) {
+        StringBuilder sb = new StringBuilder();
+        String prng = algorithm.name().toLowerCase(Locale.ROOT);
+        switch (format) {
+            case "csv":
+                sb.append("variant,kernel,prng,batch_size,samples,wall_seconds,ns_per_sample,bytes_per_sample");
+                for (ProfileResult r : results) {
+                    sb.append(String.format(Locale.ROOT, "%n%s,%s,%s,%d,%d,%.6f,%.4f,%.4f",
+                            r.getVariant().getName(), r.getKernel(), prng, r.getBatchSize(), r.getSamples(),
+                            r.getElapsedNanos() / 1e9, r.getNanosPerSample(), r.getAllocatedBytesPerSample()));
+                }
+                return sb.toString();
+            case "json":
+                sb.append('[');
+                for (ProfileResult r : results) {
+                    if (sb.length() > 1) {
+                        sb.append(',');
+                    }
+                    double bytes = r.getAllocatedBytesPerSample();
+                    sb.append(String.format(Locale.ROOT,
+                            "{\"variant\":\"%s\",\"kernel\":\"%s\",\"prng\":\"%s\",\"batchSize\":%d,\"samples\":%d,"
+                            + "\"wallSeconds\":%.6f,\"nsPerSample\":%.4f,\"bytesPerSample\":%s}",
+                            r.getVariant().getName(), r.getKernel(), prng, r.getBatchSize(), r.getSamples(),
+                            r.getElapsedNanos() / 1e9, r.getNanosPerSample(),
+                            Double.isNaN(bytes) ? "null" : String.format(Locale.ROOT, "%.4f", bytes)));
+                }
+                return sb.append(']').toString();
+            default:
+                sb.append(String.format(Locale.ROOT, "PRNG: %s  Seed: %d%n", prng, seed));
+                sb.append(String.format(Locale.ROOT, "%-16s %-8s %-10s %-14s %-10s %s",
+                        "Variant", "Kernel", "Batch", "Samples", "ns/sample", "Bytes/sample"));
+                for (ProfileResult r : results) {
+                    sb.append(String.format(Locale.ROOT, "%n%-16s %-8s %-10d %-14d %-10.3f %.4f",
+                            r.getVariant().getName(), r.getKernel(), r.getBatchSize(), r.getSamples(),
+                            r.getNanosPerSample(), r.getAllocatedBytesPerSample()));
+                }
+                return sb.toString();
+        }
+    }
+
+    /**
+     * --precisionで指定した精度に達するまでの時間の見積もりを文字列で返す
+     */
+    private String secondsForTarget(EstimatorResult result) {
+        return target == null ? "" : String.format(Locale.ROOT, "%.3e", result.getSecondsFor(target.getStandardError()));
+    }
+
+    /**
+     * 結果を指定された形式の文字列にする
+     *
+     * @param result シミュレーション結果
+     * @return 出力する文字列
+     */
+    String format(SimulationResult result) {
+        double seconds = result.getElapsedNanos() / 1e9;
+        // チェックポイントから再開した場合は、今回計算した分だけで速度を求める
+        double samplesPerSecond = seconds == 0 ? 0.0 : (result.getNumOfTotal() - resumedFrom) / seconds;
+        String samplingName = sampling.name().toLowerCase(Locale.ROOT);
+        // 出力する値だけを任意精度で求める
+        ExactEstimate exact = result.getExactEstimate(digits);
+        String pi = exact.getEstimatedPI().toPlainString();
+        String lower = exact.getLowerBound(confidence).toPlainString();
+        String upper = exact.getUpperBound(confidence).toPlainString();
+        // キャッシュを用いた場合は、保存した結果の計算時間を別の項目として出力する
+        double cachedSeconds = cachedNanos / 1e9;
+        switch (format) {
+            case "csv":
+                return String.format(Locale.ROOT,
+                        "trials,threads,seed,prng,sampling,kernel,inside,estimated_pi,std_error,ci_lower,ci_upper,wall_seconds,samples_per_second%s%n"
+                        + "%d,%d,%d,%s,%s,%s,%d,%s,%.3e,%s,%s,%.6f,%.0f%s",
+                        cachedNanos < 0 ? "" : ",cached_seconds",
+                        result.getNumOfTotal(), threads, seed, algorithm.name().toLowerCase(Locale.ROOT), samplingName, kernel.getName(), result.getNumOfInside(), pi,
+                        result.getStandardError(), lower, upper, seconds, samplesPerSecond,
+                        cachedNanos < 0 ? "" : String.format(Locale.ROOT, ",%.6f", cachedSeconds));
+            case "json":
+                return String.format(Locale.ROOT,
+                        "{\"trials\":%d,\"threads\":%d,\"seed\":%d,\"prng\":\"%s\",\"sampling\":\"%s\",\"kernel\":\"%s\",\"inside\":%d,\"estimatedPI\":%s,"
+                        + "\"stdError\":%.6e,\"ciLower\":%s,\"ciUpper\":%s,\"wallSeconds\":%.6f,\"samplesPerSecond\":%.0f%s}",
+                        result.getNumOfTotal(), threads, seed, algorithm.name().toLowerCase(Locale.ROOT), samplingName, kernel.getName(), result.getNumOfInside(), pi,
+                        result.getStandardError(), lower, upper, seconds, samplesPerSecond,
+                        cachedNanos < 0 ? "" : String.format(Locale.ROOT, ",\"cachedSeconds\":%.6f", cachedSeconds));
+            default:
+                String interval = target == null ? "" : String.format(Locale.ROOT,
+                        "%nInterval:     +/-%.3e (%.4g%%, target +/-%.3e)",
+                        target.getHalfWidth(result), confidence * 100, target.getHalfWidth());
+                String cachedTime = cachedNanos < 0 ? "" : String.format(Locale.ROOT,
+                        "%nCached time:  %.3f s", cachedSeconds);
+                return String.format(Locale.ROOT,
+                        "Trials:       %,d%n"
+                        + "Threads:      %d%n"
+                        + "Seed:         %d%n"
+                        + "PRNG:         %s%n"
+                        + "Sampling:     %s%n"
+                        + "Kernel:       %s%n"
+                        + "Inside:       %,d%n"
+                        + "Estimated PI: %s%n"
+                        + "Std error:    %.3e%n"
+                        + "Bounds:       [%s, %s] (%.4g%%)%n"
+                        + "Wall time:    %.3f s%n"
+                        + "Samples/sec:  %,.0f",
+                        result.getNumOfTotal(), threads, seed, algorithm.name().toLowerCase(Locale.ROOT), samplingName, kernel.getName(), result.getNumOfInside(), pi,
+                        result.getStandardError(), lower, upper, confidence * 100, seconds, samplesPerSecond) + cachedTime + interval;
+        }
+    }
+
+}
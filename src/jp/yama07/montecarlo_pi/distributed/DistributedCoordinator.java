@@ -0,0 +1,247 @@
+package jp.yama07.montecarlo_pi.distributed;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import jp.yama07.montecarlo_pi.RandomPointGenerator;
+import jp.yama07.montecarlo_pi.SimulationEngine;
+import jp.yama07.montecarlo_pi.SimulationResult;
+import jp.yama07.montecarlo_pi.kernel.HitKernel;
+import jp.yama07.montecarlo_pi.qmc.SamplingMethod;
+import jp.yama07.montecarlo_pi.random.RandomAlgorithm;
+import jp.yama07.montecarlo_pi.stats.ExactTally;
+import jp.yama07.montecarlo_pi.stats.SimulationStatistics;
+
+/**
+ * 試行を複数のワーカープロセスに分配し、結果をまとめるコーディネータ
+ *
+ * 試行をブロック単位の重ならない範囲に分け、localhostのソケットで接続した
+ * ワーカープロセスに順に割り当てる。各ブロックの乱数列はシードとブロック番号から
+ * 決まるため、結果は同じシードで1つのプロセスで計算した場合と一致する。
+ * 応答のなくなったワーカーに割り当てた範囲は他のワーカーに割り当て直し、
+ * 代わりのワーカープロセスを起動する。
+ * ワーカーの結果はExactTallyで桁あふれを検出しながらlongで合計する。範囲は重ならないため、
+ * 合計は試行回数を超えない。
+ *
+ * @author yama07
+ */
+public class DistributedCoordinator {
+
+    // 1回に割り当てるブロックの数
+    public static final long DEFAULT_BLOCKS_PER_TASK = 256;
+    // ワーカーからの応答を待つ最長の時間(ミリ秒)
+    public static final int DEFAULT_TASK_TIMEOUT_MILLIS = 600000;
+
+    private final RandomAlgorithm algorithm;
+    private final SamplingMethod sampling;
+    private final HitKernel kernel;
+    private final long seed;
+    private final int workers;
+    private final int threadsPerWorker;
+    // 途中経過を加える集計。ワーカーごとの速度は接続を担当するスレッドの名前で区別する
+    private final SimulationStatistics statistics;
+    private long blocksPerTask = DEFAULT_BLOCKS_PER_TASK;
+    private int taskTimeoutMillis = DEFAULT_TASK_TIMEOUT_MILLIS;
+    // 起動し直すワーカーの最大数
+    private int maxRestarts;
+
+    private final List<Process> processes = new CopyOnWriteArrayList<>();
+    private final AtomicInteger restarts = new AtomicInteger();
+
+    /**
+     *
+     * @param engine 乱数生成器の種類、点の生成方法、カーネルおよびシードを取得し、途中経過を加えるエンジン
+     * @param workers ワーカープロセスの数
+     * @param threadsPerWorker ワーカーあたりのスレッド数
+     */
+    public DistributedCoordinator(SimulationEngine engine, int workers, int threadsPerWorker) {
+        this.algorithm = engine.getAlgorithm();
+        this.sampling = engine.getSampling();
+        this.kernel = engine.getKernel();
+        this.seed = engine.getSeed();
+        this.statistics = engine.getStatistics();
+        this.workers = workers;
+        this.threadsPerWorker = threadsPerWorker;
+        this.maxRestarts = workers;
+    }
+
+    public long getBlocksPerTask() {
+        return blocksPerTask;
+    }
+
+    public void setBlocksPerTask(long blocksPerTask) {
+        this.blocksPerTask = blocksPerTask;
+    }
+
+    public int getTaskTimeoutMillis() {
+        return taskTimeoutMillis;
+    }
+
+    public void setTaskTimeoutMillis(int taskTimeoutMillis) {
+        this.taskTimeoutMillis = taskTimeoutMillis;
+    }
+
+    public int getMaxRestarts() {
+        return maxRestarts;
+    }
+
+    public void setMaxRestarts(int maxRestarts) {
+        this.maxRestarts = maxRestarts;
+    }
+
+    /**
+     * ワーカーを起動し、trials回の試行を分配して計算する
+     *
+     * @param trials 試行回数
+     * @return シミュレーション結果
+     * @throws IOException ワーカーの起動や通信の準備に失敗した場合、
+     * またはすべてのワーカーが失われた場合
+     * @throws InterruptedException 待機中に割り込まれた場合
+     */
+    public SimulationResult run(long trials) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        long blocks = SimulationEngine.blocksOf(trials);
+        BlockingQueue<long[]> pending = new LinkedBlockingQueue<>();
+        for (long from = 0; from < blocks; from += blocksPerTask) {
+            pending.add(new long[]{from, Math.min(blocks, from + blocksPerTask)});
+        }
+        CountDownLatch done = new CountDownLatch(pending.size());
+        ExactTally tally = new ExactTally();
+        AtomicInteger alive = new AtomicInteger();
+        AtomicInteger connections = new AtomicInteger();
+
+        try (ServerSocket server = new ServerSocket(0, workers, InetAddress.getLoopbackAddress())) {
+            Thread acceptor = new Thread(() -> {
+                while (!server.isClosed()) {
+                    try {
+                        Socket socket = server.accept();
+                        alive.incrementAndGet();
+                        int id = connections.incrementAndGet();
+                        Thread handler = new Thread(() -> {
+                            serve(socket, trials, pending, done, tally);
+                            alive.decrementAndGet();
+                            if (done.getCount() > 0 && restarts.getAndIncrement() < maxRestarts) {
+                                launchWorker(server.getLocalPort());
+                            }
+                        }, "coordinator-worker-" + id);
+                        handler.setDaemon(true);
+                        handler.start();
+                    } catch (IOException ex) {
+                        // サーバソケットを閉じると終了する
+                    }
+                }
+            }, "coordinator-acceptor");
+            acceptor.setDaemon(true);
+            acceptor.start();
+
+            for (int i = 0; i < workers; i++) {
+                launchWorker(server.getLocalPort());
+            }
+            while (!done.await(1, TimeUnit.SECONDS)) {
+                if (alive.get() == 0 && processes.stream().noneMatch(Process::isAlive)) {
+                    throw new IOException("all workers were lost");
+                }
+            }
+        } finally {
+            for (Process process : processes) {
+                process.destroy();
+            }
+            processes.clear();
+        }
+        return tally.toResult(System.nanoTime() - start);
+    }
+
+    /**
+     * 1つのワーカーとの接続を担当し、範囲がなくなるまで割り当てを続ける。
+     * 通信に失敗した場合は割り当て中の範囲を戻して終了する。
+     */
+    private void serve(Socket socket, long trials, BlockingQueue<long[]> pending, CountDownLatch done, ExactTally tally) {
+        long[] task = null;
+        try (Socket s = socket) {
+            s.setSoTimeout(taskTimeoutMillis);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+            while (done.getCount() > 0) {
+                task = pending.poll(100, TimeUnit.MILLISECONDS);
+                if (task == null) {
+                    continue;
+                }
+                out.writeInt(Protocol.TASK);
+                out.writeUTF(algorithm.name());
+                out.writeUTF(sampling.name());
+                out.writeUTF(kernel.getName());
+                out.writeLong(seed);
+                out.writeLong(trials);
+                out.writeLong(task[0]);
+                out.writeLong(task[1]);
+                out.flush();
+
+                long fromBlock = in.readLong();
+                long count = in.readLong();
+                in.readLong();
+                if (fromBlock != task[0]) {
+                    throw new IOException("unexpected response for block " + fromBlock);
+                }
+                long n = Math.min(trials, task[1] * RandomPointGenerator.BLOCK_SIZE) - task[0] * RandomPointGenerator.BLOCK_SIZE;
+                tally.add(count, n);
+                statistics.add(count, n);
+                task = null;
+                done.countDown();
+            }
+            out.writeInt(Protocol.SHUTDOWN);
+            out.flush();
+        } catch (SocketException ex) {
+            // ワーカーが失われた
+        } catch (IOException ex) {
+            // 応答がない、または不正な応答を受け取った
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (task != null) {
+                pending.add(task);
+            }
+        }
+    }
+
+    /**
+     * 同じクラスパスでワーカープロセスを起動する
+     *
+     * @param port コーディネータのポート番号
+     */
+    private void launchWorker(int port) {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        for (String arg : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if (arg.startsWith("--add-modules") || arg.startsWith("-Xmx") || arg.startsWith("-Xms")) {
+                command.add(arg);
+            }
+        }
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(DistributedWorker.class.getName());
+        command.add(String.valueOf(port));
+        command.add(String.valueOf(threadsPerWorker));
+        try {
+            processes.add(new ProcessBuilder(command).inheritIO().start());
+        } catch (IOException ex) {
+            System.err.println("failed to launch worker: " + ex.getMessage());
+        }
+    }
+
+}
@@ -0,0 +1,73 @@
+package jp.yama07.montecarlo_pi.distributed;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import jp.yama07.montecarlo_pi.SimulationEngine;
+import jp.yama07.montecarlo_pi.kernel.HitKernels;
+import jp.yama07.montecarlo_pi.qmc.SamplingMethod;
+import jp.yama07.montecarlo_pi.random.RandomAlgorithm;
+
+/**
+ * コーディネータから受け取った範囲のブロックを計算するワーカープロセスのmainクラス
+ *
+ * 使い方: DistributedWorker ポート番号 スレッド数
+ *
+ * @author yama07
+ */
+public class DistributedWorker {
+
+    /**
+     * @param args the command line arguments
+     * @throws IOException 通信に失敗した場合
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: DistributedWorker port threads");
+            System.exit(2);
+        }
+        int port = Integer.parseInt(args[0]);
+        int threads = Integer.parseInt(args[1]);
+        SimulationEngine engine = new SimulationEngine(0L, threads);
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            while (in.readInt() == Protocol.TASK) {
+                RandomAlgorithm algorithm = RandomAlgorithm.valueOf(in.readUTF());
+                SamplingMethod sampling = SamplingMethod.valueOf(in.readUTF());
+                String kernel = in.readUTF();
+                long seed = in.readLong();
+                long trials = in.readLong();
+                long fromBlock = in.readLong();
+                long toBlock = in.readLong();
+
+                if (engine.getAlgorithm() != algorithm) {
+                    engine.setAlgorithm(algorithm);
+                }
+                if (engine.getSampling() != sampling) {
+                    engine.setSampling(sampling);
+                }
+                if (!engine.getKernel().getName().equals(kernel)) {
+                    engine.setKernel(HitKernels.forName(kernel));
+                }
+                if (engine.getSeed() != seed) {
+                    engine.setSeed(seed);
+                }
+                long start = System.nanoTime();
+                long inside = engine.countBlocks(trials, fromBlock, toBlock);
+
+                out.writeLong(fromBlock);
+                out.writeLong(inside);
+                out.writeLong(System.nanoTime() - start);
+                out.flush();
+            }
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+}
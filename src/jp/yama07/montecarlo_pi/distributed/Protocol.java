@@ -0,0 +1,21 @@
+package jp.yama07.montecarlo_pi.distributed;
+
+/**
+ * コーディネータとワーカーの間の通信で用いる定数
+ *
+ * コーディネータからワーカーへは、TASKに続けて乱数生成器名、点の生成方法名、カーネル名、シード、
+ * 全体の試行回数、先頭と末尾のブロック番号を送る。ワーカーは先頭のブロック番号、
+ * 円の内部にプロットされた数、計算に要した時間(ナノ秒)を返す。
+ * SHUTDOWNを受け取ったワーカーは終了する。
+ *
+ * @author yama07
+ */
+final class Protocol {
+
+    static final int TASK = 1;
+    static final int SHUTDOWN = 0;
+
+    private Protocol() {
+    }
+
+}
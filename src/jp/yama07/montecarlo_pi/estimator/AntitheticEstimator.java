@@ -0,0 +1,40 @@
+package jp.yama07.montecarlo_pi.estimator;
+
+import jp.yama07.montecarlo_pi.random.PointSource;
+
+/**
+ * 点(x, y)と対称な点(1 - x, 1 - y)の組を1標本とする推定量
+ *
+ * 一方が円の内部に入るともう一方は外部に入りやすい負の相関を利用して分散を減らす。
+ *
+ * @author yama07
+ */
+class AntitheticEstimator implements Estimator {
+
+    @Override
+    public void accumulate(PointSource random, int n, EstimatorMoments moments) {
+        long single = 0;
+        long both = 0;
+        for (int i = 0; i < n; i++) {
+            long bits = random.nextLong();
+            double x = PointSource.highDouble(bits);
+            double y = PointSource.lowDouble(bits);
+            double u = 1.0 - x;
+            double v = 1.0 - y;
+            int hits = (x * x + y * y <= 1.0 ? 1 : 0) + (u * u + v * v <= 1.0 ? 1 : 0);
+            if (hits == 1) {
+                single++;
+            } else if (hits == 2) {
+                both++;
+            }
+        }
+        // 標本値は0、2、4のいずれか
+        moments.add(n, 2.0 * single + 4.0 * both, 4.0 * single + 16.0 * both);
+    }
+
+    @Override
+    public String getName() {
+        return "antithetic";
+    }
+
+}
@@ -0,0 +1,67 @@
+package jp.yama07.montecarlo_pi.estimator;
+
+import jp.yama07.montecarlo_pi.random.PointSource;
+
+/**
+ * 原点からの距離の2乗 g = x^2 + y^2 (期待値2/3)を制御変量とする推定量
+ *
+ * 推定値は f - c(g - 2/3) の平均とし、係数cは分散が最小となる Cov(f, g) / Var(g) を
+ * 集計から求める。fとgの相関係数をρとすると、分散はfの(1 - ρ^2)倍となる。
+ *
+ * @author yama07
+ */
+class ControlVariateEstimator implements Estimator {
+
+    // 制御変量の期待値
+    private static final double MEAN_G = 2.0 / 3.0;
+
+    @Override
+    public void accumulate(PointSource random, int n, EstimatorMoments moments) {
+        long inside = 0;
+        double sumG = 0.0;
+        double sumGG = 0.0;
+        double sumInsideG = 0.0;
+        for (int i = 0; i < n; i++) {
+            long bits = random.nextLong();
+            double x = PointSource.highDouble(bits);
+            double y = PointSource.lowDouble(bits);
+            double g = x * x + y * y;
+            sumG += g;
+            sumGG += g * g;
+            if (g <= 1.0) {
+                inside++;
+                sumInsideG += g;
+            }
+        }
+        moments.add(n, 4.0 * inside, 16.0 * inside, sumG, sumGG, 4.0 * sumInsideG);
+    }
+
+    @Override
+    public double getEstimate(EstimatorMoments moments) {
+        return moments.getMeanF() - coefficient(moments) * (moments.getMeanG() - MEAN_G);
+    }
+
+    @Override
+    public double getVariance(EstimatorMoments moments) {
+        double varianceG = moments.getVarianceG();
+        if (varianceG == 0.0) {
+            return moments.getVarianceF();
+        }
+        double covariance = moments.getCovarianceFG();
+        return Math.max(0.0, moments.getVarianceF() - covariance * covariance / varianceG);
+    }
+
+    /**
+     * 分散を最小にする制御変量の係数を返す
+     */
+    private static double coefficient(EstimatorMoments moments) {
+        double varianceG = moments.getVarianceG();
+        return varianceG == 0.0 ? 0.0 : moments.getCovarianceFG() / varianceG;
+    }
+
+    @Override
+    public String getName() {
+        return "control";
+    }
+
+}
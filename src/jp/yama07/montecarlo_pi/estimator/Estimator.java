@@ -0,0 +1,53 @@
+package jp.yama07.montecarlo_pi.estimator;
+
+import jp.yama07.montecarlo_pi.random.PointSource;
+
+/**
+ * 点の列から円周率を推定する推定量
+ *
+ * 各点から円周率の推定値となる標本値fを求め、その和と二乗和をEstimatorMomentsに加える。
+ * 標本値の平均が円周率の推定値、標本値の分散が1点あたりの分散となる。
+ * 制御変量を用いる推定量は、期待値が既知の変量gの和なども加える。
+ * 座標の2成分は1回の64bit乱数の上位・下位32bitから作る。
+ *
+ * @author yama07
+ */
+public interface Estimator {
+
+    /**
+     * randomからn個の点を生成し、標本値をmomentsに加える
+     *
+     * @param random 点を生成するRandomSource
+     * @param n 点の数
+     * @param moments 標本値を加える集計
+     */
+    void accumulate(PointSource random, int n, EstimatorMoments moments);
+
+    /**
+     * 集計から円周率の推定値を求める
+     *
+     * @param moments 標本値の集計
+     * @return 推定値
+     */
+    default double getEstimate(EstimatorMoments moments) {
+        return moments.getMeanF();
+    }
+
+    /**
+     * 集計から1点あたりの分散を求める
+     *
+     * @param moments 標本値の集計
+     * @return 分散
+     */
+    default double getVariance(EstimatorMoments moments) {
+        return moments.getVarianceF();
+    }
+
+    /**
+     * 推定量の名前を返す
+     *
+     * @return 名前
+     */
+    String getName();
+
+}
@@ -0,0 +1,100 @@
+package jp.yama07.montecarlo_pi.estimator;
+
+/**
+ * 標本値fと制御変量gの和、二乗和および積和の集計
+ *
+ * ブロックごとに集計したものをmerge()でまとめる。1つのインスタンスを
+ * 複数のスレッドから同時に更新してはならない。
+ *
+ * @author yama07
+ */
+public class EstimatorMoments {
+
+    private long count;
+    private double sumF;
+    private double sumFF;
+    private double sumG;
+    private double sumGG;
+    private double sumFG;
+
+    /**
+     * 標本値の和を加える
+     *
+     * @param n 標本の数
+     * @param sumF 標本値の和
+     * @param sumFF 標本値の二乗和
+     */
+    public void add(long n, double sumF, double sumFF) {
+        this.count += n;
+        this.sumF += sumF;
+        this.sumFF += sumFF;
+    }
+
+    /**
+     * 標本値と制御変量の和を加える
+     *
+     * @param n 標本の数
+     * @param sumF 標本値の和
+     * @param sumFF 標本値の二乗和
+     * @param sumG 制御変量の和
+     * @param sumGG 制御変量の二乗和
+     * @param sumFG 標本値と制御変量の積和
+     */
+    public void add(long n, double sumF, double sumFF, double sumG, double sumGG, double sumFG) {
+        add(n, sumF, sumFF);
+        this.sumG += sumG;
+        this.sumGG += sumGG;
+        this.sumFG += sumFG;
+    }
+
+    /**
+     * 別の集計を加える
+     *
+     * @param other 加える集計
+     * @return この集計
+     */
+    public EstimatorMoments merge(EstimatorMoments other) {
+        add(other.count, other.sumF, other.sumFF, other.sumG, other.sumGG, other.sumFG);
+        return this;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMeanF() {
+        return count == 0 ? 0.0 : sumF / count;
+    }
+
+    public double getMeanG() {
+        return count == 0 ? 0.0 : sumG / count;
+    }
+
+    /**
+     * 標本値の不偏分散を返す
+     *
+     * @return 分散。標本が2つ未満の場合は0
+     */
+    public double getVarianceF() {
+        return count < 2 ? 0.0 : Math.max(0.0, (sumFF - sumF * sumF / count) / (count - 1));
+    }
+
+    /**
+     * 制御変量の不偏分散を返す
+     *
+     * @return 分散。標本が2つ未満の場合は0
+     */
+    public double getVarianceG() {
+        return count < 2 ? 0.0 : Math.max(0.0, (sumGG - sumG * sumG / count) / (count - 1));
+    }
+
+    /**
+     * 標本値と制御変量の不偏共分散を返す
+     *
+     * @return 共分散。標本が2つ未満の場合は0
+     */
+    public double getCovarianceFG() {
+        return count < 2 ? 0.0 : (sumFG - sumF * sumG / count) / (count - 1);
+    }
+
+}
@@ -0,0 +1,110 @@
+package jp.yama07.montecarlo_pi.estimator;
+
+/**
+ * 推定量による推定結果を表すクラス
+ *
+ * 分散は1標本あたりの値で、標準誤差は sqrt(分散 / 標本数) となる。
+ * 実効試行回数は、同じ標準誤差を得るのに必要な円の内部判定による試行回数で換算した
+ * 1秒あたりの試行回数で、推定量どうしの費用対効果の比較に用いる。
+ *
+ * @author yama07
+ */
+public class EstimatorResult {
+
+    private final String name;
+    private final long numOfSamples;
+    private final double estimate;
+    private final double variance;
+    private final long elapsedNanos;
+
+    /**
+     *
+     * @param name 推定量の名前
+     * @param numOfSamples 標本数
+     * @param estimate 円周率の推定値
+     * @param variance 1標本あたりの分散
+     * @param elapsedNanos 計算に要した時間(ナノ秒)
+     */
+    public EstimatorResult(String name, long numOfSamples, double estimate, double variance, long elapsedNanos) {
+        this.name = name;
+        this.numOfSamples = numOfSamples;
+        this.estimate = estimate;
+        this.variance = variance;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getNumOfSamples() {
+        return numOfSamples;
+    }
+
+    public double getEstimate() {
+        return estimate;
+    }
+
+    public double getVariance() {
+        return variance;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * 推定値の標準誤差を返す
+     *
+     * @return 標準誤差。標本数が0の場合は0
+     */
+    public double getStandardError() {
+        return numOfSamples == 0 ? 0.0 : Math.sqrt(variance / numOfSamples);
+    }
+
+    /**
+     * 1秒あたりの標本数を返す
+     *
+     * @return 1秒あたりの標本数
+     */
+    public double getSamplesPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : numOfSamples * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * 円の内部判定による推定量に対する分散の比を返す。<BR>
+     * 判定による推定量の1標本あたりの分散は、推定値から 16p(1-p) (p = 推定値 / 4) として求める。
+     *
+     * @return 分散の削減率。値が大きいほど分散が小さい
+     */
+    public double getVarianceReduction() {
+        double p = estimate / 4.0;
+        return variance == 0.0 ? Double.POSITIVE_INFINITY : 16.0 * p * (1.0 - p) / variance;
+    }
+
+    /**
+     * 円の内部判定による試行回数に換算した1秒あたりの実効試行回数を返す
+     *
+     * @return 1秒あたりの実効試行回数
+     */
+    public double getEffectiveSamplesPerSecond() {
+        return getSamplesPerSecond() * getVarianceReduction();
+    }
+
+    /**
+     * 標準誤差がstandardError以下になるまでに要する時間を見積もる
+     *
+     * @param standardError 目標の標準誤差
+     * @return 秒数
+     */
+    public double getSecondsFor(double standardError) {
+        return variance / (standardError * standardError) / getSamplesPerSecond();
+    }
+
+    @Override
+    public String toString() {
+        return "EstimatorResult{" + "name=" + name + ", numOfSamples=" + numOfSamples + ", estimate=" + estimate
+                + ", variance=" + variance + ", elapsedNanos=" + elapsedNanos + '}';
+    }
+
+}
@@ -0,0 +1,58 @@
+package jp.yama07.montecarlo_pi.estimator;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 利用できる推定量を取得するクラス
+ *
+ * @author yama07
+ */
+public final class Estimators {
+
+    private static final Estimator HIT_COUNT = new HitCountEstimator();
+    private static final List<Estimator> ALL = Collections.unmodifiableList(Arrays.asList(
+            HIT_COUNT,
+            new AntitheticEstimator(),
+            new ControlVariateEstimator(),
+            new IntegralEstimator(),
+            new ImportanceSamplingEstimator()));
+
+    private Estimators() {
+    }
+
+    /**
+     * 円の内部に入った点の割合による推定量を返す
+     *
+     * @return 推定量
+     */
+    public static Estimator hitCount() {
+        return HIT_COUNT;
+    }
+
+    /**
+     * 名前から推定量を返す
+     *
+     * @param name hit、antithetic、control、integral、importanceのいずれか
+     * @return 推定量
+     */
+    public static Estimator forName(String name) {
+        for (Estimator estimator : ALL) {
+            if (estimator.getName().equals(name)) {
+                return estimator;
+            }
+        }
+        throw new IllegalArgumentException("unknown estimator: " + name);
+    }
+
+    /**
+     * 利用できるすべての推定量を返す
+     *
+     * @return 推定量のリスト
+     */
+    public static List<Estimator> all() {
+        return ALL;
+    }
+
+}
@@ -0,0 +1,32 @@
+package jp.yama07.montecarlo_pi.estimator;
+
+import jp.yama07.montecarlo_pi.random.PointSource;
+
+/**
+ * 単位円の内部に入った点の割合の4倍を推定値とする推定量
+ *
+ * @author yama07
+ */
+class HitCountEstimator implements Estimator {
+
+    @Override
+    public void accumulate(PointSource random, int n, EstimatorMoments moments) {
+        long inside = 0;
+        for (int i = 0; i < n; i++) {
+            long bits = random.nextLong();
+            double x = PointSource.highDouble(bits);
+            double y = PointSource.lowDouble(bits);
+            if (x * x + y * y <= 1.0) {
+                inside++;
+            }
+        }
+        // 標本値は0か4のため、和と二乗和は円の内部の数から求まる
+        moments.add(n, 4.0 * inside, 16.0 * inside);
+    }
+
+    @Override
+    public String getName() {
+        return "hit";
+    }
+
+}
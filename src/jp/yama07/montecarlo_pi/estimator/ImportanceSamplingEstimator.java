@@ -0,0 +1,43 @@
+package jp.yama07.montecarlo_pi.estimator;
+
+import jp.yama07.montecarlo_pi.random.PointSource;
+
+/**
+ * 1次元の積分 4∫[0,1] √(1 - x^2) dx を、被積分関数に近い密度 q(x) = 1.5 - x から
+ * 点を選んで求める重点サンプリングの推定量
+ *
+ * 一様乱数uから逆関数法で x = (3 - √(9 - 8u)) / 2 を作り、√(1 - x^2) / q(x) を標本値とする。
+ * qは線形の密度のうち分散が最小となるものを選んだ。
+ * 点の2成分をそれぞれ独立な標本とし、その平均を1標本とする。
+ *
+ * @author yama07
+ */
+class ImportanceSamplingEstimator implements Estimator {
+
+    @Override
+    public void accumulate(PointSource random, int n, EstimatorMoments moments) {
+        double sum = 0.0;
+        double sumSq = 0.0;
+        for (int i = 0; i < n; i++) {
+            long bits = random.nextLong();
+            double f = 2.0 * (weighted(PointSource.highDouble(bits)) + weighted(PointSource.lowDouble(bits)));
+            sum += f;
+            sumSq += f * f;
+        }
+        moments.add(n, sum, sumSq);
+    }
+
+    /**
+     * 一様乱数uから密度qに従う点を作り、重みを掛けた被積分関数の値を返す
+     */
+    private static double weighted(double u) {
+        double x = (3.0 - Math.sqrt(9.0 - 8.0 * u)) * 0.5;
+        return Math.sqrt(1.0 - x * x) / (1.5 - x);
+    }
+
+    @Override
+    public String getName() {
+        return "importance";
+    }
+
+}
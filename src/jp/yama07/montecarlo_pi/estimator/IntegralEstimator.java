@@ -0,0 +1,35 @@
+package jp.yama07.montecarlo_pi.estimator;
+
+import jp.yama07.montecarlo_pi.random.PointSource;
+
+/**
+ * 円周率を1次元の積分 4∫[0,1] √(1 - x^2) dx として求める推定量
+ *
+ * 内外の判定の代わりに被積分関数の値を用いるため分散が小さい。
+ * 点の2成分をそれぞれ独立な標本とし、その平均を1標本とする。
+ *
+ * @author yama07
+ */
+class IntegralEstimator implements Estimator {
+
+    @Override
+    public void accumulate(PointSource random, int n, EstimatorMoments moments) {
+        double sum = 0.0;
+        double sumSq = 0.0;
+        for (int i = 0; i < n; i++) {
+            long bits = random.nextLong();
+            double x = PointSource.highDouble(bits);
+            double y = PointSource.lowDouble(bits);
+            double f = 2.0 * (Math.sqrt(1.0 - x * x) + Math.sqrt(1.0 - y * y));
+            sum += f;
+            sumSq += f * f;
+        }
+        moments.add(n, sum, sumSq);
+    }
+
+    @Override
+    public String getName() {
+        return "integral";
+    }
+
+}
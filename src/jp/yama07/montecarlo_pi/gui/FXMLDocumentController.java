@@ -1,29 +1,50 @@
 package jp.yama07.montecarlo_pi.gui;
 
+import jp.yama07.montecarlo_pi.SimulationEngine;
 import jp.yama07.montecarlo_pi.SimulationTimeline;
+import jp.yama07.montecarlo_pi.cache.ResultCache;
+import jp.yama07.montecarlo_pi.metrics.PrometheusEndpoint;
+import jp.yama07.montecarlo_pi.qmc.SamplingMethod;
+import jp.yama07.montecarlo_pi.stats.PrecisionTarget;
 import jp.yama07.montecarlo_pi.util.LongSpinnerValueFactory;
+import java.io.IOException;
 import java.net.URL;
+import java.nio.file.Paths;
+import java.util.Locale;
 import java.util.ResourceBundle;
 import javafx.animation.Animation.Status;
-import javafx.beans.property.SimpleStringProperty;
+import javafx.beans.binding.Bindings;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.chart.LineChart;
 import javafx.scene.chart.NumberAxis;
+import javafx.scene.control.ChoiceBox;
 import javafx.scene.control.Label;
 import javafx.scene.control.ProgressBar;
 import javafx.scene.control.Spinner;
+import javafx.scene.control.TextField;
 import javafx.util.converter.NumberStringConverter;
+import javafx.util.converter.PercentageStringConverter;
+import javax.management.JMException;
 
 /**
  * Monte Carlo法による円周率算出シミュレータ画面のコントローラクラス
  *
+ * 計測値はJMXに登録する。システムプロパティMETRICS_PORT_PROPERTYにポート番号を指定すると、
+ * Prometheusのテキスト形式でも公開する。
+ * シードを指定した場合は、結果をユーザのホームディレクトリ下のCACHE_DIRにキャッシュする。
+ *
  * @author yama07
  */
 public class FXMLDocumentController implements Initializable {
 
+    // 計測値を公開するポート番号を指定するシステムプロパティ
+    public static final String METRICS_PORT_PROPERTY = "montecarlo.metrics.port";
+    // 結果のキャッシュのディレクトリ(ユーザのホームディレクトリからの相対パス)
+    public static final String CACHE_DIR = ".montecarlo_pi/cache";
+
     @FXML
     private Canvas cPlot;
     @FXML
@@ -35,6 +56,14 @@ public class FXMLDocumentController implements Initializable {
     @FXML
     private Spinner<Long> sTrials;
     @FXML
+    private TextField tfPrecision;
+    @FXML
+    private ChoiceBox<Number> cbConfidence;
+    @FXML
+    private ChoiceBox<SamplingMethod> cbSampling;
+    @FXML
+    private TextField tfSeed;
+    @FXML
     private Label lNumOfTrials;
     @FXML
     private Label lNumOfInside;
@@ -43,9 +72,14 @@ public class FXMLDocumentController implements Initializable {
     @FXML
     private Label lEstimatedPI;
     @FXML
+    private Label lAbsoluteError;
+    @FXML
+    private Label lStandardErrorRatio;
+    @FXML
     private ProgressBar pbCalcProgress;
 
     private SimulationTimeline timeline;
+    private PrometheusEndpoint metricsEndpoint;
 
     /**
      * シミュレートstart／pauseボタンのハンドル<BR>
@@ -59,12 +93,53 @@ public class FXMLDocumentController implements Initializable {
             timeline.pause();
         } else if (timeline.getState().equals(Status.STOPPED)) {
             timeline.setTrials(sTrials.getValue());
+            timeline.setPrecisionTarget(getPrecisionTarget());
+            timeline.getEngine().setSampling(cbSampling.getValue());
+            timeline.setSeed(getSeed());
             timeline.play();
         } else if (timeline.getState().equals(Status.PAUSED)) {
             timeline.play();
         }
     }
 
+    /**
+     * 精度の入力欄から求める精度を作成する<BR>
+     * 空欄または不正な値の場合はnullを返し、試行回数で終了する。
+     *
+     * @return 求める精度
+     */
+    private PrecisionTarget getPrecisionTarget() {
+        String text = tfPrecision.getText().trim();
+        if (text.isEmpty()) {
+            return null;
+        }
+        try {
+            return new PrecisionTarget(Double.parseDouble(text), cbConfidence.getValue().doubleValue());
+        } catch (IllegalArgumentException ex) {
+            tfPrecision.clear();
+            return null;
+        }
+    }
+
+    /**
+     * シードの入力欄から乱数のシードを取得する<BR>
+     * 空欄または不正な値の場合はnullを返し、開始のたびに現在時刻とする。
+     *
+     * @return 乱数のシード
+     */
+    private Long getSeed() {
+        String text = tfSeed.getText().trim();
+        if (text.isEmpty()) {
+            return null;
+        }
+        try {
+            return Long.parseLong(text);
+        } catch (NumberFormatException ex) {
+            tfSeed.clear();
+            return null;
+        }
+    }
+
     /**
      * シミュレートresetボタンのハンドル<BR>
      * シミュレートをリセットする。
@@ -79,7 +154,7 @@ public class FXMLDocumentController implements Initializable {
 
     /**
      * 初期化メソッド<BR>
-     * 試行回数スピナーとシミュレータの描画タイムラインの設定、各コンポーネンのプロパティとのバインディングを行う。
+     * 試行回数スピナー、精度の入力欄、点の生成方法とシミュレータの描画タイムラインの設定、各コンポーネンのプロパティとのバインディングを行う。
      *
      * @param url
      * @param rb
@@ -92,11 +167,57 @@ public class FXMLDocumentController implements Initializable {
                 SimulationTimeline.TRIALS_MAX,
                 SimulationTimeline.DEFAULT_TRIALS,
                 SimulationTimeline.TRIALS_STEP));
+        cbConfidence.setConverter(new PercentageStringConverter());
+        cbConfidence.getItems().addAll(0.90, 0.95, 0.99);
+        cbConfidence.setValue(0.95);
+        sTrials.disableProperty().bind(tfPrecision.textProperty().isNotEmpty());
+        cbSampling.getItems().addAll(SamplingMethod.values());
+        cbSampling.setValue(SimulationEngine.DEFAULT_SAMPLING);
         lNumOfInside.textProperty().bindBidirectional(timeline.numOfInsideProperty(), new NumberStringConverter());
         lNumOfOutside.textProperty().bindBidirectional(timeline.numOfOutsideProperty(), new NumberStringConverter());
         lNumOfTrials.textProperty().bindBidirectional(timeline.numOfTotalProperty(), new NumberStringConverter());
-        lEstimatedPI.textProperty().bind(new SimpleStringProperty("").concat(timeline.estimatedPIProperty().asString("%2.16f")));
+        lEstimatedPI.textProperty().bind(timeline.estimatedPITextProperty());
+        lAbsoluteError.textProperty().bind(Bindings.format(Locale.ROOT, "%.3e", timeline.absoluteErrorProperty()));
+        lStandardErrorRatio.textProperty().bind(Bindings.format(Locale.ROOT, "%.3f", timeline.standardErrorRatioProperty()));
         pbCalcProgress.progressProperty().bindBidirectional(timeline.progressProperty());
+        exportMetrics();
+        openResultCache();
+    }
+
+    /**
+     * 結果のキャッシュを開く。<BR>
+     * 開けない場合もシミュレートは行えるため、エラーを出力してキャッシュを用いずに続ける。
+     */
+    private void openResultCache() {
+        try {
+            timeline.setResultCache(new ResultCache(Paths.get(System.getProperty("user.home"), CACHE_DIR),
+                    ResultCache.DEFAULT_MAX_BYTES));
+        } catch (IOException ex) {
+            System.err.println("failed to open result cache: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * 計測値をJMXに登録し、指定があればPrometheusのテキスト形式でも公開する。<BR>
+     * 公開に失敗してもシミュレートは行えるため、エラーを出力して続ける。
+     */
+    private void exportMetrics() {
+        try {
+            timeline.getMetrics().register();
+        } catch (JMException ex) {
+            System.err.println("failed to register metrics: " + ex.getMessage());
+        }
+        String port = System.getProperty(METRICS_PORT_PROPERTY);
+        if (port == null) {
+            return;
+        }
+        try {
+            metricsEndpoint = new PrometheusEndpoint(timeline.getMetrics());
+            metricsEndpoint.start(Integer.parseInt(port));
+        } catch (IOException | NumberFormatException ex) {
+            System.err.println("failed to export metrics on port " + port + ": " + ex.getMessage());
+            metricsEndpoint = null;
+        }
     }
 
 }
@@ -0,0 +1,72 @@
+package jp.yama07.montecarlo_pi.kernel;
+
+import jp.yama07.montecarlo_pi.random.PointSource;
+
+/**
+ * 座標をchunk個ずつプリミティブ配列に展開し、分岐を用いずに判定するカーネル
+ *
+ * 乱数の生成と判定を別のループに分けるため、判定のループは配列を順に読むだけとなり、
+ * JITが比較結果を0/1として加える命令やSIMD命令に変換しやすい。
+ * 配列はスレッドごとに1つだけ確保し、呼び出しのたびには割り当てない。
+ * chunkは2つの配列がL1データキャッシュに収まる大きさとする(CacheSizesを参照)。
+ *
+ * @author yama07
+ */
+class BatchedHitKernel implements HitKernel {
+
+    private final int chunk;
+    private final ThreadLocal<double[][]> buffers;
+
+    /**
+     *
+     * @param chunk 一度に展開する点の数(1以上)
+     */
+    BatchedHitKernel(int chunk) {
+        if (chunk <= 0) {
+            throw new IllegalArgumentException("chunk must be positive: " + chunk);
+        }
+        this.chunk = chunk;
+        this.buffers = ThreadLocal.withInitial(() -> new double[2][chunk]);
+    }
+
+    public int getChunk() {
+        return chunk;
+    }
+
+    @Override
+    public long count(PointSource random, int n) {
+        double[][] buffer = buffers.get();
+        double[] xs = buffer[0];
+        double[] ys = buffer[1];
+        long inside = 0;
+        for (int done = 0; done < n; done += chunk) {
+            int len = Math.min(chunk, n - done);
+            for (int i = 0; i < len; i++) {
+                long bits = random.nextLong();
+                xs[i] = PointSource.highDouble(bits);
+                ys[i] = PointSource.lowDouble(bits);
+            }
+            inside += countInside(xs, ys, len);
+        }
+        return inside;
+    }
+
+    /**
+     * 展開したlen個の点のうち、単位円の内部に入った点の数を分岐を用いずに数える
+     */
+    private static long countInside(double[] xs, double[] ys, int len) {
+        int inside = 0;
+        for (int i = 0; i < len; i++) {
+            double x = xs[i];
+            double y = ys[i];
+            inside += x * x + y * y <= 1.0 ? 1 : 0;
+        }
+        return inside;
+    }
+
+    @Override
+    public String getName() {
+        return "batched";
+    }
+
+}
@@ -0,0 +1,98 @@
+package jp.yama07.montecarlo_pi.kernel;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+/**
+ * CPUのデータキャッシュの大きさを調べ、バッチで展開する点の数を決めるクラス
+ *
+ * JavaからはCPUのキャッシュの大きさを直接取得できないため、Linuxでは
+ * /sys/devices/system/cpu/cpu0/cache/index*から読み取る。読み取れない場合は
+ * 一般的な大きさ(L1データ32KiB)とみなす。
+ * システムプロパティCHUNK_PROPERTYに点の数を指定すると、それを優先する。
+ *
+ * @author yama07
+ */
+final class CacheSizes {
+
+    // 展開する点の数を指定するシステムプロパティ
+    static final String CHUNK_PROPERTY = "montecarlo.kernel.chunk";
+    // キャッシュの大きさがわからない場合のL1データキャッシュの大きさ
+    static final int DEFAULT_L1D_BYTES = 32 * 1024;
+    // 展開する点の数の範囲
+    static final int MIN_CHUNK = 256;
+    static final int MAX_CHUNK = 1 << 16;
+
+    private static final Path CACHE_DIR = Paths.get("/sys/devices/system/cpu/cpu0/cache");
+
+    private CacheSizes() {
+    }
+
+    /**
+     * 指定したレベルのデータキャッシュの大きさを返す
+     *
+     * @param level キャッシュのレベル
+     * @param defaultBytes 読み取れない場合の大きさ
+     * @return 大きさ(バイト)
+     */
+    static int dataBytes(int level, int defaultBytes) {
+        for (int index = 0; index < 8; index++) {
+            Path dir = CACHE_DIR.resolve("index" + index);
+            try {
+                if (read(dir.resolve("level")).equals(String.valueOf(level))
+                        && !read(dir.resolve("type")).equals("Instruction")) {
+                    return parseSize(read(dir.resolve("size")));
+                }
+            } catch (IOException | IllegalArgumentException ex) {
+                break;
+            }
+        }
+        return defaultBytes;
+    }
+
+    /**
+     * x座標とy座標の2つのdouble配列が、L1データキャッシュの半分に収まる点の数を返す。<BR>
+     * 残りの半分は乱数生成器の状態やスタックのために空けておく。
+     *
+     * @return 点の数(MIN_CHUNK以上MAX_CHUNK以下)
+     */
+    static int defaultChunk() {
+        String property = System.getProperty(CHUNK_PROPERTY);
+        if (property != null) {
+            try {
+                return clamp(Integer.parseInt(property.trim()));
+            } catch (NumberFormatException ex) {
+                // 不正な値は無視し、キャッシュの大きさから決める
+            }
+        }
+        return clamp(dataBytes(1, DEFAULT_L1D_BYTES) / 2 / (2 * Double.BYTES));
+    }
+
+    private static int clamp(int chunk) {
+        return Math.max(MIN_CHUNK, Math.min(MAX_CHUNK, chunk));
+    }
+
+    private static String read(Path path) throws IOException {
+        return new String(Files.readAllBytes(path), StandardCharsets.US_ASCII).trim();
+    }
+
+    /**
+     * 48Kや2048K、1Mのような表記の大きさを解析する
+     */
+    private static int parseSize(String value) {
+        String upper = value.toUpperCase(Locale.ROOT);
+        int unit = 1;
+        if (upper.endsWith("K")) {
+            unit = 1024;
+        } else if (upper.endsWith("M")) {
+            unit = 1024 * 1024;
+        }
+        String digits = unit == 1 ? upper : upper.substring(0, upper.length() - 1);
+        return Integer.parseInt(digits) * unit;
+    }
+
+}
@@ -0,0 +1,132 @@
+package jp.yama07.montecarlo_pi.kernel;
+
+import java.util.HashMap;
+import java.util.Map;
+import jp.yama07.montecarlo_pi.random.PointSource;
+
+/**
+ * d次元の点をCHUNK個ずつ、次元ごとのプリミティブ配列(structure of arrays)に展開するバッファ
+ *
+ * 点ごとのオブジェクトは作らない。乱数は次の順序で用いるため、同じ乱数列からは
+ * カーネルによらず同じ点が得られる。
+ * <ol>
+ * <li>次元を2つずつ組にし、組ごとに各点へ1回の64bit乱数の上位・下位32bitを割り当てる</li>
+ * <li>次元が奇数の場合、最後の次元は1回の乱数の上位・下位32bitを隣り合う2点に割り当てる</li>
+ * </ol>
+ * 2次元の場合は1点に1回の乱数を用いる従来の順序と一致する。
+ * カーネルはlocal()でスレッドと次元ごとに1つのバッファを使い回し、ブロックごとには割り当てない。
+ *
+ * @author yama07
+ */
+public final class CoordinateBuffer {
+
+    // 一度に展開する点の数
+    public static final int CHUNK = 1024;
+
+    // スレッドごとの、次元数をキーとするバッファ
+    private static final ThreadLocal<Map<Integer, CoordinateBuffer>> LOCAL = ThreadLocal.withInitial(HashMap::new);
+
+    private final double[][] coordinates;
+    private final double[] radiusSq = new double[CHUNK];
+
+    /**
+     *
+     * @param dimensions 次元数(1以上)
+     */
+    public CoordinateBuffer(int dimensions) {
+        if (dimensions < 1) {
+            throw new IllegalArgumentException("dimensions must be positive: " + dimensions);
+        }
+        this.coordinates = new double[dimensions][CHUNK];
+    }
+
+    /**
+     * 呼び出したスレッドのdimensions次元のバッファを返す。<BR>
+     * 初めて使う次元の場合だけ新たに作る。返したバッファは呼び出したスレッドでのみ使うこと。
+     *
+     * @param dimensions 次元数(1以上)
+     * @return バッファ
+     */
+    public static CoordinateBuffer local(int dimensions) {
+        return LOCAL.get().computeIfAbsent(dimensions, CoordinateBuffer::new);
+    }
+
+    public int getDimensions() {
+        return coordinates.length;
+    }
+
+    /**
+     * 次元dimensionの座標の配列を返す
+     *
+     * @param dimension 次元の番号
+     * @return 座標の配列。先頭からfill()で展開した点の数だけが有効
+     */
+    public double[] getCoordinates(int dimension) {
+        return coordinates[dimension];
+    }
+
+    /**
+     * 原点からの距離の2乗の配列を返す
+     *
+     * @return 距離の2乗の配列。先頭からcountInside()で判定した点の数だけが有効
+     */
+    public double[] getRadiusSq() {
+        return radiusSq;
+    }
+
+    /**
+     * randomからlen個(CHUNK以下)の点を展開する
+     *
+     * @param random 点の列
+     * @param len 点の数
+     */
+    public void fill(PointSource random, int len) {
+        int d = coordinates.length;
+        for (int j = 0; j + 1 < d; j += 2) {
+            double[] a = coordinates[j];
+            double[] b = coordinates[j + 1];
+            for (int i = 0; i < len; i++) {
+                long bits = random.nextLong();
+                a[i] = PointSource.highDouble(bits);
+                b[i] = PointSource.lowDouble(bits);
+            }
+        }
+        if (d % 2 == 1) {
+            double[] last = coordinates[d - 1];
+            for (int i = 0; i < len; i += 2) {
+                long bits = random.nextLong();
+                last[i] = PointSource.highDouble(bits);
+                if (i + 1 < len) {
+                    last[i + 1] = PointSource.lowDouble(bits);
+                }
+            }
+        }
+    }
+
+    /**
+     * 展開したlen個の点のうち、単位球の内部に入った点の数を返す
+     *
+     * @param len 点の数
+     * @return 単位球の内部に入った点の数
+     */
+    public long countInside(int len) {
+        double[] first = coordinates[0];
+        for (int i = 0; i < len; i++) {
+            radiusSq[i] = first[i] * first[i];
+        }
+        for (int j = 1; j < coordinates.length; j++) {
+            double[] c = coordinates[j];
+            for (int i = 0; i < len; i++) {
+                radiusSq[i] += c[i] * c[i];
+            }
+        }
+        long inside = 0;
+        for (int i = 0; i < len; i++) {
+            if (radiusSq[i] <= 1.0) {
+                inside++;
+            }
+        }
+        return inside;
+    }
+
+}
@@ -0,0 +1,52 @@
+package jp.yama07.montecarlo_pi.kernel;
+
+import jp.yama07.montecarlo_pi.random.PointSource;
+
+/**
+ * 乱数から点を生成し、単位円の内部に入った点を数える計算カーネル
+ *
+ * 座標の2成分は1回の64bit乱数の上位・下位32bitから作る。
+ * カーネルによらず同じ乱数列からは同じ結果となる。
+ *
+ * @author yama07
+ */
+public interface HitKernel {
+
+    /**
+     * randomからn個の点を生成し、単位円の内部に入った点の数を返す
+     *
+     * @param random 点の列
+     * @param n 試行回数
+     * @return 単位円の内部に入った点の数
+     */
+    long count(PointSource random, int n);
+
+    /**
+     * randomからd次元の点をn個生成し、単位球の内部に入った点の数を返す。<BR>
+     * 点はCoordinateBufferの順序で生成するため、2次元の場合はcount(random, n)と一致する。
+     * 標準の実装はスレッドごとのCoordinateBufferに展開して1点ずつ判定する。
+     *
+     * @param random 点の列
+     * @param n 試行回数
+     * @param dimensions 次元数
+     * @return 単位球の内部に入った点の数
+     */
+    default long count(PointSource random, int n, int dimensions) {
+        CoordinateBuffer buffer = CoordinateBuffer.local(dimensions);
+        long inside = 0;
+        for (int done = 0; done < n; done += CoordinateBuffer.CHUNK) {
+            int len = Math.min(CoordinateBuffer.CHUNK, n - done);
+            buffer.fill(random, len);
+            inside += buffer.countInside(len);
+        }
+        return inside;
+    }
+
+    /**
+     * カーネルの名前を返す
+     *
+     * @return 名前
+     */
+    String getName();
+
+}
@@ -0,0 +1,166 @@
+package jp.yama07.montecarlo_pi.kernel;
+
+import java.util.Arrays;
+import java.util.List;
+import jp.yama07.montecarlo_pi.random.SplitMix64;
+
+/**
+ * HitKernelの実装を取得するクラス
+ *
+ * 既定のカーネルは1点ずつ判定するスカラー版とする。バッチ版はJDK 8のJITでは
+ * スカラー版より遅く、JDK 17以降でようやく速くなるため、システムプロパティ
+ * KERNEL_PROPERTYでカーネルの名前を指定した場合にのみ既定とする。
+ *
+ * @author yama07
+ */
+public final class HitKernels {
+
+    // 既定のカーネルの名前を指定するシステムプロパティ
+    static final String KERNEL_PROPERTY = "montecarlo.kernel";
+    // jdk.incubator.vectorを用いるカーネル。src-vectorにありJDK 16以降でのみビルドされる
+    private static final String VECTOR_KERNEL_CLASS = "jp.yama07.montecarlo_pi.kernel.VectorHitKernel";
+
+    private static final HitKernel SCALAR = new ScalarHitKernel();
+    private static final BatchedHitKernel BATCHED = new BatchedHitKernel(CacheSizes.defaultChunk());
+    private static final HitKernel VECTOR = loadVector();
+    private static final HitKernel DEFAULT = loadDefault();
+
+    private HitKernels() {
+    }
+
+    /**
+     * 1点ずつ判定を行うカーネルを返す
+     *
+     * @return カーネル
+     */
+    public static HitKernel scalar() {
+        return SCALAR;
+    }
+
+    /**
+     * 座標をキャッシュの大きさに合わせた数ずつ展開し、分岐を用いずに判定するカーネルを返す
+     *
+     * @return カーネル
+     */
+    public static HitKernel batched() {
+        return BATCHED;
+    }
+
+    /**
+     * 座標を指定した数ずつ展開し、分岐を用いずに判定するカーネルを返す
+     *
+     * @param chunk 一度に展開する点の数(1以上)
+     * @return カーネル
+     */
+    public static HitKernel batched(int chunk) {
+        return chunk == BATCHED.getChunk() ? BATCHED : new BatchedHitKernel(chunk);
+    }
+
+    /**
+     * batched()が一度に展開する点の数を返す。<BR>
+     * システムプロパティmontecarlo.kernel.chunkで指定した値、またはL1データキャッシュの大きさから決めた値となる。
+     *
+     * @return 点の数
+     */
+    public static int getDefaultChunk() {
+        return BATCHED.getChunk();
+    }
+
+    /**
+     * エンジンが既定で用いるカーネルを返す。<BR>
+     * システムプロパティmontecarlo.kernelで指定したカーネル、指定がない場合はscalar()となる。
+     *
+     * @return カーネル
+     */
+    public static HitKernel defaultKernel() {
+        return DEFAULT;
+    }
+
+    /**
+     * Vector APIを用いるカーネルを返す。<BR>
+     * jdk.incubator.vectorモジュールが利用できない場合はscalar()を返す。
+     *
+     * @return カーネル
+     */
+    public static HitKernel vector() {
+        return VECTOR != null ? VECTOR : SCALAR;
+    }
+
+    /**
+     * Vector APIを用いるカーネルが利用できるかを返す
+     *
+     * @return 利用できる場合true
+     */
+    public static boolean isVectorAvailable() {
+        return VECTOR != null;
+    }
+
+    /**
+     * 名前からカーネルを返す。<BR>
+     * 明示的に指定されたカーネルは置き換えず、vectorが利用できない場合も例外とする。
+     *
+     * @param name カーネルの名前
+     * @return カーネル
+     * @throws IllegalArgumentException 名前が不正、またはカーネルが利用できない場合
+     */
+    public static HitKernel forName(String name) {
+        for (HitKernel kernel : all()) {
+            if (kernel.getName().equals(name)) {
+                return kernel;
+            }
+        }
+        if (name.equals("vector")) {
+            throw new IllegalArgumentException(
+                    "vector kernel is not available: requires JDK 16+ with --add-modules jdk.incubator.vector");
+        }
+        throw new IllegalArgumentException("unknown kernel: " + name);
+    }
+
+    /**
+     * 利用可能なすべてのカーネルを返す
+     *
+     * @return カーネルの一覧
+     */
+    public static List<HitKernel> all() {
+        if (VECTOR == null) {
+            return Arrays.asList(SCALAR, BATCHED);
+        }
+        return Arrays.asList(SCALAR, BATCHED, VECTOR);
+    }
+
+    /**
+     * システムプロパティで指定された既定のカーネルを返す。
+     * 指定がない、または利用できないカーネルの場合はスカラー版とする。
+     */
+    private static HitKernel loadDefault() {
+        String property = System.getProperty(KERNEL_PROPERTY);
+        if (property != null) {
+            for (HitKernel kernel : all()) {
+                if (kernel.getName().equals(property.trim())) {
+                    return kernel;
+                }
+            }
+            System.err.println("ignoring " + KERNEL_PROPERTY + "=" + property + ": kernel not available");
+        }
+        return SCALAR;
+    }
+
+    /**
+     * Vector APIを用いるカーネルを読み込む。
+     * クラスが存在しない、またはモジュールが読み込まれていない場合はnullを返す。
+     */
+    private static HitKernel loadVector() {
+        try {
+            HitKernel kernel = (HitKernel) Class.forName(VECTOR_KERNEL_CLASS).getDeclaredConstructor().newInstance();
+            // 実際に1回実行し、スカラー版と結果が一致することを確かめる
+            if (kernel.count(new SplitMix64(1L), 1000) != SCALAR.count(new SplitMix64(1L), 1000)
+                    || kernel.count(new SplitMix64(1L), 1000, 5) != SCALAR.count(new SplitMix64(1L), 1000, 5)) {
+                return null;
+            }
+            return kernel;
+        } catch (ReflectiveOperationException | LinkageError | ClassCastException ex) {
+            return null;
+        }
+    }
+
+}
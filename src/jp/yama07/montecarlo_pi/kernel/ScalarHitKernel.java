@@ -0,0 +1,31 @@
+package jp.yama07.montecarlo_pi.kernel;
+
+import jp.yama07.montecarlo_pi.random.PointSource;
+
+/**
+ * 1点ずつ判定を行うカーネル
+ *
+ * @author yama07
+ */
+class ScalarHitKernel implements HitKernel {
+
+    @Override
+    public long count(PointSource random, int n) {
+        long inside = 0;
+        for (int i = 0; i < n; i++) {
+            long bits = random.nextLong();
+            double x = PointSource.highDouble(bits);
+            double y = PointSource.lowDouble(bits);
+            if (x * x + y * y <= 1.0) {
+                inside++;
+            }
+        }
+        return inside;
+    }
+
+    @Override
+    public String getName() {
+        return "scalar";
+    }
+
+}
@@ -0,0 +1,94 @@
+package jp.yama07.montecarlo_pi.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * SimulationMetricsの最新の採取結果をPrometheusのテキスト形式で返すHTTPサーバ
+ *
+ * localhostでのみ待ち受け、PATHへのGETに応答する。応答は採取済みの値を
+ * 整形するだけなので、取得の頻度によらず計算スレッドには影響しない。
+ *
+ * @author yama07
+ */
+public class PrometheusEndpoint {
+
+    // 計測値を返すパス
+    public static final String PATH = "/metrics";
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final SimulationMetrics metrics;
+    private HttpServer server;
+
+    /**
+     *
+     * @param metrics 出力する計測値
+     */
+    public PrometheusEndpoint(SimulationMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * サーバを起動する
+     *
+     * @param port 待ち受けるポート番号。0の場合は空いているポートを用いる
+     * @throws IOException ポートを開けなかった場合
+     */
+    public synchronized void start(int port) throws IOException {
+        stop();
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext(PATH, this::handle);
+        // 受付スレッドは起動したスレッドのデーモン属性を引き継ぐため、
+        // デーモンスレッドから起動してJVMの終了を妨げないようにする
+        Thread starter = new Thread(server::start, "metrics-endpoint-starter");
+        starter.setDaemon(true);
+        starter.start();
+        try {
+            starter.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 待ち受けているポート番号を返す
+     *
+     * @return ポート番号。起動していない場合は-1
+     */
+    public synchronized int getPort() {
+        return server == null ? -1 : server.getAddress().getPort();
+    }
+
+    /**
+     * サーバを停止する
+     */
+    public synchronized void stop() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = metrics.toPrometheus().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+}
@@ -0,0 +1,333 @@
+package jp.yama07.montecarlo_pi.metrics;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import jp.yama07.montecarlo_pi.SimulationResult;
+import jp.yama07.montecarlo_pi.stats.SimulationStatistics;
+
+/**
+ * 実行中のシミュレーションの計測値を一定の間隔で採取するクラス
+ *
+ * 試行回数はSimulationStatisticsのロックを用いないカウンタから読み出すため、
+ * 計測によって計算スレッドが待たされることはない。採取した値はJMXの
+ * MXBeanとして公開し、Prometheusのテキスト形式でも出力できる。
+ *
+ * @author yama07
+ */
+public class SimulationMetrics implements SimulationMetricsMXBean {
+
+    // 標準の採取間隔(ミリ秒)
+    public static final long DEFAULT_INTERVAL_MILLIS = 1000;
+    // 標準で登録するMXBeanの名前
+    public static final String DEFAULT_OBJECT_NAME = "jp.yama07.montecarlo_pi:type=SimulationMetrics";
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final SimulationStatistics statistics;
+    // 最新の採取結果
+    private volatile Sample sample;
+    // 割り当て量を求めるための、スレッドごとの前回の割り当て量
+    private Map<Long, Long> allocatedBytes = new HashMap<>();
+    private ScheduledExecutorService scheduler;
+    private ObjectName objectName;
+
+    /**
+     *
+     * @param statistics 計測する集計
+     */
+    public SimulationMetrics(SimulationStatistics statistics) {
+        this.statistics = statistics;
+        sample();
+    }
+
+    /**
+     * バックグラウンドのスレッドで一定の間隔で採取を始める
+     *
+     * @param intervalMillis 採取間隔(ミリ秒)
+     */
+    public synchronized void start(long intervalMillis) {
+        if (intervalMillis <= 0) {
+            throw new IllegalArgumentException("intervalMillis must be positive: " + intervalMillis);
+        }
+        stop();
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "simulation-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::sample, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 採取を止める
+     */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * 現時点の値を採取し、前回の採取からの変化量で速度を求める
+     */
+    public synchronized void sample() {
+        long now = System.nanoTime();
+        SimulationResult result = statistics.snapshot();
+        Map<String, Long> workers = statistics.snapshotWorkers();
+        long gcCount = 0;
+        long gcTime = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcCount += Math.max(0, gc.getCollectionCount());
+            gcTime += Math.max(0, gc.getCollectionTime());
+        }
+        long allocated = allocatedSinceLastSample();
+
+        Sample last = sample;
+        double seconds = last == null ? 0 : (now - last.nanos) / 1e9;
+        double samplesPerSecond = 0;
+        Map<String, Double> workerRates = new LinkedHashMap<>();
+        double allocationRate = allocated < 0 ? -1 : 0;
+        // 前回より減っている場合はreset()されたとみなし、速度は0とする
+        if (seconds > 0 && result.getNumOfTotal() >= last.result.getNumOfTotal()) {
+            samplesPerSecond = (result.getNumOfTotal() - last.result.getNumOfTotal()) / seconds;
+            for (Map.Entry<String, Long> e : workers.entrySet()) {
+                long previous = last.workers.getOrDefault(e.getKey(), 0L);
+                workerRates.put(e.getKey(), Math.max(0, e.getValue() - previous) / seconds);
+            }
+            if (allocated >= 0) {
+                allocationRate = allocated / seconds;
+            }
+        } else {
+            for (String name : workers.keySet()) {
+                workerRates.put(name, 0.0);
+            }
+        }
+        sample = new Sample(now, result, workers, workerRates, samplesPerSecond, gcCount, gcTime, allocationRate);
+    }
+
+    /**
+     * 前回の採取から全スレッドで割り当てたヒープの量を返す。
+     * 終了したスレッドの分は含まれない。
+     *
+     * @return 割り当て量(バイト)。計測できないJVMでは-1
+     */
+    private long allocatedSinceLastSample() {
+        if (!(THREADS instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) THREADS;
+        if (!threads.isThreadAllocatedMemorySupported() || !threads.isThreadAllocatedMemoryEnabled()) {
+            return -1;
+        }
+        long[] ids = threads.getAllThreadIds();
+        long[] bytes = threads.getThreadAllocatedBytes(ids);
+        Map<Long, Long> current = new HashMap<>();
+        long total = 0;
+        for (int i = 0; i < ids.length; i++) {
+            if (bytes[i] < 0) {
+                continue;
+            }
+            current.put(ids[i], bytes[i]);
+            total += bytes[i] - allocatedBytes.getOrDefault(ids[i], 0L);
+        }
+        allocatedBytes = current;
+        return total;
+    }
+
+    /**
+     * プラットフォームのMBeanServerにDEFAULT_OBJECT_NAMEで登録する
+     *
+     * @throws JMException 登録に失敗した場合
+     */
+    public void register() throws JMException {
+        register(DEFAULT_OBJECT_NAME);
+    }
+
+    /**
+     * プラットフォームのMBeanServerに登録する。既に同じ名前で登録されている場合は置き換える。
+     *
+     * @param name 登録する名前
+     * @throws JMException 登録に失敗した場合
+     */
+    public synchronized void register(String name) throws JMException {
+        unregister();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName objectName = new ObjectName(name);
+        if (server.isRegistered(objectName)) {
+            server.unregisterMBean(objectName);
+        }
+        server.registerMBean(this, objectName);
+        this.objectName = objectName;
+    }
+
+    /**
+     * MBeanServerへの登録を解除する
+     */
+    public synchronized void unregister() {
+        if (objectName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException ex) {
+            // 既に解除されている
+        }
+        objectName = null;
+    }
+
+    @Override
+    public long getNumOfTotal() {
+        return sample.result.getNumOfTotal();
+    }
+
+    @Override
+    public long getNumOfInside() {
+        return sample.result.getNumOfInside();
+    }
+
+    @Override
+    public double getEstimatedPI() {
+        return sample.result.getEstimatedPI();
+    }
+
+    @Override
+    public double getStandardError() {
+        return sample.result.getStandardError();
+    }
+
+    @Override
+    public double getSamplesPerSecond() {
+        return sample.samplesPerSecond;
+    }
+
+    @Override
+    public Map<String, Long> getWorkerSamples() {
+        return sample.workers;
+    }
+
+    @Override
+    public Map<String, Double> getWorkerSamplesPerSecond() {
+        return sample.workerRates;
+    }
+
+    @Override
+    public long getGcCount() {
+        return sample.gcCount;
+    }
+
+    @Override
+    public long getGcTimeMillis() {
+        return sample.gcTimeMillis;
+    }
+
+    @Override
+    public double getAllocatedBytesPerSecond() {
+        return sample.allocatedBytesPerSecond;
+    }
+
+    @Override
+    public double getElapsedSeconds() {
+        return sample.result.getElapsedNanos() / 1e9;
+    }
+
+    /**
+     * 最新の採取結果をPrometheusのテキスト形式(version 0.0.4)で返す
+     *
+     * @return テキスト
+     */
+    public String toPrometheus() {
+        Sample s = sample;
+        StringBuilder sb = new StringBuilder();
+        metric(sb, "montecarlo_samples_total", "counter", "Number of points sampled.", s.result.getNumOfTotal());
+        metric(sb, "montecarlo_inside_total", "counter", "Number of points inside the circle.", s.result.getNumOfInside());
+        metric(sb, "montecarlo_samples_per_second", "gauge", "Sampling rate over the last interval.", s.samplesPerSecond);
+        metric(sb, "montecarlo_estimated_pi", "gauge", "Current estimate of pi.", s.result.getEstimatedPI());
+        metric(sb, "montecarlo_standard_error", "gauge", "Standard error of the estimate.", s.result.getStandardError());
+        header(sb, "montecarlo_worker_samples_total", "counter", "Number of points sampled per worker thread.");
+        for (Map.Entry<String, Long> e : s.workers.entrySet()) {
+            sb.append("montecarlo_worker_samples_total{worker=\"").append(escape(e.getKey())).append("\"} ")
+                    .append(e.getValue()).append('\n');
+        }
+        header(sb, "montecarlo_worker_samples_per_second", "gauge", "Sampling rate per worker thread over the last interval.");
+        for (Map.Entry<String, Double> e : s.workerRates.entrySet()) {
+            sb.append("montecarlo_worker_samples_per_second{worker=\"").append(escape(e.getKey())).append("\"} ")
+                    .append(number(e.getValue())).append('\n');
+        }
+        metric(sb, "montecarlo_gc_collections_total", "counter", "Garbage collections since JVM start.", s.gcCount);
+        metric(sb, "montecarlo_gc_seconds_total", "counter", "Time spent in garbage collection since JVM start.", s.gcTimeMillis / 1e3);
+        metric(sb, "montecarlo_allocated_bytes_per_second", "gauge", "Heap allocation rate over the last interval.",
+                s.allocatedBytesPerSecond);
+        metric(sb, "montecarlo_elapsed_seconds", "gauge", "Seconds since the statistics were reset.", s.result.getElapsedNanos() / 1e9);
+        return sb.toString();
+    }
+
+    private static void metric(StringBuilder sb, String name, String type, String help, long value) {
+        header(sb, name, type, help);
+        sb.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void metric(StringBuilder sb, String name, String type, String help, double value) {
+        header(sb, name, type, help);
+        sb.append(name).append(' ').append(number(value)).append('\n');
+    }
+
+    private static void header(StringBuilder sb, String name, String type, String help) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static String number(double value) {
+        if (Double.isNaN(value)) {
+            return "NaN";
+        }
+        if (Double.isInfinite(value)) {
+            return value > 0 ? "+Inf" : "-Inf";
+        }
+        return Double.toString(value);
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    /**
+     * 1回の採取結果
+     */
+    private static final class Sample {
+
+        private final long nanos;
+        private final SimulationResult result;
+        private final Map<String, Long> workers;
+        private final Map<String, Double> workerRates;
+        private final double samplesPerSecond;
+        private final long gcCount;
+        private final long gcTimeMillis;
+        private final double allocatedBytesPerSecond;
+
+        Sample(long nanos, SimulationResult result, Map<String, Long> workers, Map<String, Double> workerRates,
+                double samplesPerSecond, long gcCount, long gcTimeMillis, double allocatedBytesPerSecond) {
+            this.nanos = nanos;
+            this.result = result;
+            this.workers = Collections.unmodifiableMap(workers);
+            this.workerRates = Collections.unmodifiableMap(workerRates);
+            this.samplesPerSecond = samplesPerSecond;
+            this.gcCount = gcCount;
+            this.gcTimeMillis = gcTimeMillis;
+            this.allocatedBytesPerSecond = allocatedBytesPerSecond;
+        }
+
+    }
+
+}
@@ -0,0 +1,91 @@
+package jp.yama07.montecarlo_pi.metrics;
+
+import java.util.Map;
+
+/**
+ * 実行中のシミュレーションの計測値をJMXで公開するインタフェース
+ *
+ * 値はSimulationMetricsが一定の間隔で採取した最新のものを返す。
+ *
+ * @author yama07
+ */
+public interface SimulationMetricsMXBean {
+
+    /**
+     * プロット数を返す
+     *
+     * @return プロット数
+     */
+    long getNumOfTotal();
+
+    /**
+     * 円の内部にプロットされた数を返す
+     *
+     * @return 円の内部にプロットされた数
+     */
+    long getNumOfInside();
+
+    /**
+     * 推定した円周率を返す
+     *
+     * @return 推定した円周率
+     */
+    double getEstimatedPI();
+
+    /**
+     * 推定した円周率の標準誤差を返す
+     *
+     * @return 標準誤差
+     */
+    double getStandardError();
+
+    /**
+     * 直近の採取間隔での1秒あたりの試行回数を返す
+     *
+     * @return 1秒あたりの試行回数
+     */
+    double getSamplesPerSecond();
+
+    /**
+     * スレッドごとのプロット数を返す
+     *
+     * @return スレッド名をキーとするプロット数
+     */
+    Map<String, Long> getWorkerSamples();
+
+    /**
+     * 直近の採取間隔でのスレッドごとの1秒あたりの試行回数を返す
+     *
+     * @return スレッド名をキーとする1秒あたりの試行回数
+     */
+    Map<String, Double> getWorkerSamplesPerSecond();
+
+    /**
+     * JVMの起動からのGCの回数を返す
+     *
+     * @return GCの回数
+     */
+    long getGcCount();
+
+    /**
+     * JVMの起動からのGCに要した時間を返す
+     *
+     * @return GCの時間(ミリ秒)
+     */
+    long getGcTimeMillis();
+
+    /**
+     * 直近の採取間隔での1秒あたりのヒープ割り当て量を返す
+     *
+     * @return 1秒あたりの割り当て量(バイト)。計測できないJVMでは-1
+     */
+    double getAllocatedBytesPerSecond();
+
+    /**
+     * 集計を始めてからの経過時間を返す
+     *
+     * @return 経過時間(秒)
+     */
+    double getElapsedSeconds();
+
+}
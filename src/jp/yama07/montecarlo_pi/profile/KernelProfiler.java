@@ -0,0 +1,175 @@
+package jp.yama07.montecarlo_pi.profile;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import jp.yama07.montecarlo_pi.RandomPointGenerator;
+import jp.yama07.montecarlo_pi.kernel.HitKernel;
+import jp.yama07.montecarlo_pi.kernel.HitKernels;
+import jp.yama07.montecarlo_pi.random.PointSource;
+import jp.yama07.montecarlo_pi.random.RandomAlgorithm;
+import jp.yama07.montecarlo_pi.random.RandomSource;
+
+/**
+ * 計算カーネルの変種ごとに、1試行あたりの時間とヒープの割り当て量を計測するクラス
+ *
+ * 変種とバッチの大きさの組ごとに、呼び出したスレッドだけでウォームアップの後に一定の時間
+ * 繰り返し実行する。割り当て量はcom.sun.management.ThreadMXBeanでスレッドごとに求める。
+ * 乱数だけの時間が全体に近ければ乱数の生成が、分岐の有無で差があれば分岐予測の失敗が、
+ * 判定だけの時間がバッチの大きさとともに増えればメモリが律速していると判断できる。
+ *
+ * @author yama07
+ */
+public class KernelProfiler {
+
+    public static final int[] DEFAULT_BATCH_SIZES = {256, 4096, RandomPointGenerator.BLOCK_SIZE, 1 << 20};
+    public static final long DEFAULT_WARMUP_MILLIS = 200;
+    public static final long DEFAULT_MEASURE_MILLIS = 500;
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final RandomAlgorithm algorithm;
+    private final long seed;
+    private int[] batchSizes = DEFAULT_BATCH_SIZES;
+    private long warmupMillis = DEFAULT_WARMUP_MILLIS;
+    private long measureMillis = DEFAULT_MEASURE_MILLIS;
+    // 計測した処理の結果を捨てないための値
+    private long sink;
+
+    /**
+     *
+     * @param algorithm 乱数生成器の種類
+     * @param seed 乱数のシード
+     */
+    public KernelProfiler(RandomAlgorithm algorithm, long seed) {
+        this.algorithm = algorithm;
+        this.seed = seed;
+    }
+
+    public int[] getBatchSizes() {
+        return batchSizes.clone();
+    }
+
+    /**
+     * 計測するバッチの大きさを設定する
+     *
+     * @param batchSizes 1回の呼び出しで行う試行回数の並び(各1以上)
+     */
+    public void setBatchSizes(int[] batchSizes) {
+        if (batchSizes.length == 0) {
+            throw new IllegalArgumentException("no batch sizes");
+        }
+        for (int size : batchSizes) {
+            if (size <= 0) {
+                throw new IllegalArgumentException("batch size must be positive: " + size);
+            }
+        }
+        this.batchSizes = batchSizes.clone();
+    }
+
+    public long getWarmupMillis() {
+        return warmupMillis;
+    }
+
+    public void setWarmupMillis(long warmupMillis) {
+        this.warmupMillis = warmupMillis;
+    }
+
+    public long getMeasureMillis() {
+        return measureMillis;
+    }
+
+    public void setMeasureMillis(long measureMillis) {
+        this.measureMillis = measureMillis;
+    }
+
+    /**
+     * すべての変種とバッチの大きさの組を計測する。<BR>
+     * KERNELは利用可能なすべてのカーネルについて計測する。
+     *
+     * @return 計測結果
+     */
+    public List<ProfileResult> run() {
+        List<ProfileResult> results = new ArrayList<>();
+        for (int batchSize : batchSizes) {
+            double[] xs = new double[batchSize];
+            double[] ys = new double[batchSize];
+            RandomSource random = algorithm.create(seed);
+            for (int i = 0; i < batchSize; i++) {
+                long bits = random.nextLong();
+                xs[i] = PointSource.highDouble(bits);
+                ys[i] = PointSource.lowDouble(bits);
+            }
+            for (ProfileVariant variant : ProfileVariant.values()) {
+                if (variant == ProfileVariant.KERNEL) {
+                    for (HitKernel kernel : HitKernels.all()) {
+                        results.add(measure(variant, kernel, xs, ys, batchSize));
+                    }
+                } else {
+                    results.add(measure(variant, HitKernels.scalar(), xs, ys, batchSize));
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * 1つの変種をウォームアップの後に計測する
+     */
+    private ProfileResult measure(ProfileVariant variant, HitKernel kernel, double[] xs, double[] ys, int batchSize) {
+        RandomSource random = algorithm.create(seed);
+        repeat(variant, random, kernel, xs, ys, batchSize, warmupMillis);
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        long samples = repeat(variant, random, kernel, xs, ys, batchSize, measureMillis);
+        long elapsed = System.nanoTime() - start;
+        long allocatedAfter = allocatedBytes();
+        return new ProfileResult(variant, variant == ProfileVariant.KERNEL ? kernel.getName() : "-", batchSize, samples,
+                elapsed, allocated < 0 || allocatedAfter < 0 ? -1 : allocatedAfter - allocated);
+    }
+
+    /**
+     * 指定した時間が経つまで変種を繰り返し実行する
+     *
+     * @return 行った試行回数
+     */
+    private long repeat(ProfileVariant variant, RandomSource random, HitKernel kernel, double[] xs, double[] ys,
+            int batchSize, long millis) {
+        long deadline = System.nanoTime() + millis * 1000000L;
+        long samples = 0;
+        long acc = 0;
+        do {
+            acc += variant.run(random, kernel, xs, ys, batchSize);
+            samples += batchSize;
+        } while (System.nanoTime() < deadline);
+        sink += acc;
+        return samples;
+    }
+
+    /**
+     * 呼び出したスレッドがこれまでに割り当てたヒープの量を返す
+     *
+     * @return 割り当て量(バイト)。計測できないJVMでは-1
+     */
+    private static long allocatedBytes() {
+        if (!(THREADS instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) THREADS;
+        if (!threads.isThreadAllocatedMemorySupported() || !threads.isThreadAllocatedMemoryEnabled()) {
+            return -1;
+        }
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * 計測した処理の結果を集計した値を返す。最適化で処理が除かれていないことを確かめるために用いる。
+     *
+     * @return 集計した値
+     */
+    public long getSink() {
+        return sink;
+    }
+
+}
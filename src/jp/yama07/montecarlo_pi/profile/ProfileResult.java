@@ -0,0 +1,78 @@
+package jp.yama07.montecarlo_pi.profile;
+
+/**
+ * 変種とバッチの大きさの組ごとのプロファイルの計測結果を表すクラス
+ *
+ * @author yama07
+ */
+public class ProfileResult {
+
+    private final ProfileVariant variant;
+    private final String kernel;
+    private final int batchSize;
+    private final long samples;
+    private final long elapsedNanos;
+    private final long allocatedBytes;
+
+    /**
+     *
+     * @param variant 変種
+     * @param kernel 実行したカーネルの名前。KERNEL以外では"-"
+     * @param batchSize 1回の呼び出しで行った試行回数
+     * @param samples 計測中に行った試行回数
+     * @param elapsedNanos 計測に要した時間(ナノ秒)
+     * @param allocatedBytes 計測中に割り当てたヒープの量(バイト)。計測できない場合は-1
+     */
+    public ProfileResult(ProfileVariant variant, String kernel, int batchSize, long samples, long elapsedNanos,
+            long allocatedBytes) {
+        this.variant = variant;
+        this.kernel = kernel;
+        this.batchSize = batchSize;
+        this.samples = samples;
+        this.elapsedNanos = elapsedNanos;
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    public ProfileVariant getVariant() {
+        return variant;
+    }
+
+    public String getKernel() {
+        return kernel;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public long getSamples() {
+        return samples;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * 1試行あたりの時間を返す
+     *
+     * @return 時間(ナノ秒)
+     */
+    public double getNanosPerSample() {
+        return samples == 0 ? 0.0 : (double) elapsedNanos / samples;
+    }
+
+    /**
+     * 1試行あたりに割り当てたヒープの量を返す
+     *
+     * @return 割り当て量(バイト)。計測できない場合はNaN
+     */
+    public double getAllocatedBytesPerSample() {
+        return allocatedBytes < 0 || samples == 0 ? Double.NaN : (double) allocatedBytes / samples;
+    }
+
+}
@@ -0,0 +1,126 @@
+package jp.yama07.montecarlo_pi.profile;
+
+import jp.yama07.montecarlo_pi.kernel.HitKernel;
+import jp.yama07.montecarlo_pi.random.PointSource;
+import jp.yama07.montecarlo_pi.random.RandomSource;
+
+/**
+ * 計算カーネルのどの部分に時間がかかるかを調べるために、処理の一部だけを行う変種
+ *
+ * 乱数の生成だけ、生成済みの座標の判定だけ、判定を分岐で行うか算術で行うかを切り替えて
+ * 1試行あたりの時間を比べる。判定だけの変種は、バッチの大きさの座標の配列を読むため、
+ * バッチが大きい場合はメモリの帯域の影響も現れる。
+ * 分岐を用いない判定では、1 - r² の符号ビットが1(円の外部)かどうかを整数として加える。
+ *
+ * @author yama07
+ */
+public enum ProfileVariant {
+
+    /**
+     * 乱数の生成だけを行う
+     */
+    RNG("rng") {
+        @Override
+        long run(RandomSource random, HitKernel kernel, double[] xs, double[] ys, int n) {
+            long acc = 0;
+            for (int i = 0; i < n; i++) {
+                acc ^= random.nextLong();
+            }
+            return acc;
+        }
+    },
+    /**
+     * 生成済みの座標を分岐で判定する
+     */
+    TEST_BRANCHING("test-branching") {
+        @Override
+        long run(RandomSource random, HitKernel kernel, double[] xs, double[] ys, int n) {
+            long inside = 0;
+            for (int i = 0; i < n; i++) {
+                if (xs[i] * xs[i] + ys[i] * ys[i] <= 1.0) {
+                    inside++;
+                }
+            }
+            return inside;
+        }
+    },
+    /**
+     * 生成済みの座標を分岐を用いずに判定する
+     */
+    TEST_BRANCHLESS("test-branchless") {
+        @Override
+        long run(RandomSource random, HitKernel kernel, double[] xs, double[] ys, int n) {
+            long outside = 0;
+            for (int i = 0; i < n; i++) {
+                outside += Double.doubleToRawLongBits(1.0 - (xs[i] * xs[i] + ys[i] * ys[i])) >>> 63;
+            }
+            return n - outside;
+        }
+    },
+    /**
+     * 乱数の生成と分岐による判定を行う
+     */
+    BRANCHING("branching") {
+        @Override
+        long run(RandomSource random, HitKernel kernel, double[] xs, double[] ys, int n) {
+            long inside = 0;
+            for (int i = 0; i < n; i++) {
+                long bits = random.nextLong();
+                double x = PointSource.highDouble(bits);
+                double y = PointSource.lowDouble(bits);
+                if (x * x + y * y <= 1.0) {
+                    inside++;
+                }
+            }
+            return inside;
+        }
+    },
+    /**
+     * 乱数の生成と分岐を用いない判定を行う
+     */
+    BRANCHLESS("branchless") {
+        @Override
+        long run(RandomSource random, HitKernel kernel, double[] xs, double[] ys, int n) {
+            long outside = 0;
+            for (int i = 0; i < n; i++) {
+                long bits = random.nextLong();
+                double x = PointSource.highDouble(bits);
+                double y = PointSource.lowDouble(bits);
+                outside += Double.doubleToRawLongBits(1.0 - (x * x + y * y)) >>> 63;
+            }
+            return n - outside;
+        }
+    },
+    /**
+     * HitKernelの実装をそのまま実行する
+     */
+    KERNEL("kernel") {
+        @Override
+        long run(RandomSource random, HitKernel kernel, double[] xs, double[] ys, int n) {
+            return kernel.count(random, n);
+        }
+    };
+
+    private final String name;
+
+    ProfileVariant(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * n回の試行のうち、この変種が受け持つ処理を行う
+     *
+     * @param random 乱数生成器
+     * @param kernel KERNELで実行するカーネル
+     * @param xs 判定だけを行う変種が読むx座標(n個以上)
+     * @param ys 判定だけを行う変種が読むy座標(n個以上)
+     * @param n 試行回数
+     * @return 最適化で処理が除かれないように集計する値
+     */
+    abstract long run(RandomSource random, HitKernel kernel, double[] xs, double[] ys, int n);
+
+}
@@ -0,0 +1,97 @@
+package jp.yama07.montecarlo_pi.qmc;
+
+import jp.yama07.montecarlo_pi.random.PointSource;
+import jp.yama07.montecarlo_pi.random.RandomSource;
+
+/**
+ * 底を2と3とする2次元のHalton列
+ *
+ * 1次元目は添字のbitを反転した値にランダムなデジタルシフトを施す。
+ * 2次元目は添字を3進数で表した各桁に、桁ごとに異なるランダムな置換を施す。
+ * 添字から直接開始位置を計算できるため、添字の範囲ごとに並列に生成できる。
+ * 座標は32bitの精度で作るため、生成できる点はMAX_POINTS個までとなる。
+ *
+ * nextLong()は座標の2成分を上位・下位32bitに詰めた値を返す。
+ *
+ * @author yama07
+ */
+public class HaltonSequence implements PointSource {
+
+    // 生成できる点の数
+    public static final long MAX_POINTS = 1L << 32;
+    // 3進数の桁数。3^21 &gt; 2^32
+    private static final int DIGITS = 21;
+    // 各桁の重み。2^63 / 3^(k+1)
+    private static final long[] WEIGHTS = new long[DIGITS];
+
+    static {
+        long power = 3;
+        for (int k = 0; k < DIGITS; k++) {
+            WEIGHTS[k] = Long.MAX_VALUE / power;
+            power *= 3;
+        }
+    }
+
+    private final int shiftX;
+    private final int[][] permutations = new int[DIGITS][];
+    private final int[] digits = new int[DIGITS];
+    private long index;
+    // 2次元目の値(2^63を1とする固定小数点)
+    private long valueY;
+
+    /**
+     *
+     * @param random スクランブルに用いる乱数生成器
+     * @param start 開始する添字
+     */
+    public HaltonSequence(RandomSource random, long start) {
+        if (start < 0 || start >= MAX_POINTS) {
+            throw new IllegalArgumentException("Halton sequence supports up to 2^32 points: " + start);
+        }
+        this.shiftX = (int) random.nextLong();
+        for (int k = 0; k < DIGITS; k++) {
+            // {0, 1, 2}の置換をFisher-Yatesで作る
+            int[] p = {0, 1, 2};
+            long bits = random.nextLong() >>> 1;
+            for (int i = 2; i > 0; i--) {
+                int j = (int) (bits % (i + 1));
+                bits /= i + 1;
+                int t = p[i];
+                p[i] = p[j];
+                p[j] = t;
+            }
+            permutations[k] = p;
+        }
+        this.index = start;
+        long n = start;
+        for (int k = 0; k < DIGITS; k++) {
+            digits[k] = (int) (n % 3);
+            n /= 3;
+            valueY += permutations[k][digits[k]] * WEIGHTS[k];
+        }
+    }
+
+    @Override
+    public long nextLong() {
+        if (index >= MAX_POINTS) {
+            throw new IllegalStateException("Halton sequence supports up to 2^32 points");
+        }
+        int x = Integer.reverse((int) index) ^ shiftX;
+        int y = (int) (valueY >>> 31);
+        index++;
+        // 3進数の添字に1を加え、変化した桁の分だけ値を更新する
+        for (int k = 0; k < DIGITS; k++) {
+            int[] p = permutations[k];
+            int d = digits[k];
+            if (d < 2) {
+                digits[k] = d + 1;
+                valueY += (p[d + 1] - p[d]) * WEIGHTS[k];
+                break;
+            }
+            digits[k] = 0;
+            valueY += (p[0] - p[2]) * WEIGHTS[k];
+        }
+        return (long) x << 32 | (y & 0xffffffffL);
+    }
+
+}
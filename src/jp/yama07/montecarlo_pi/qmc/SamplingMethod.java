@@ -0,0 +1,83 @@
+package jp.yama07.montecarlo_pi.qmc;
+
+import jp.yama07.montecarlo_pi.RandomPointGenerator;
+import jp.yama07.montecarlo_pi.random.PointSource;
+import jp.yama07.montecarlo_pi.random.RandomAlgorithm;
+
+/**
+ * 点の生成方法
+ *
+ * いずれの方法もブロックごとに独立して生成できるため、ブロック単位で並列に計算できる。
+ * 生成した点は座標の2成分を上位・下位32bitに詰めた値としてPointSourceから得られるので、
+ * 判定には乱数の場合と同じカーネルを用いる。
+ * SOBOLとHALTONは全ブロックで1つの列を共有するため、生成できる点はgetMaxPoints()個までとなる。
+ *
+ * @author yama07
+ */
+public enum SamplingMethod {
+
+    /**
+     * 疑似乱数による一様な点
+     */
+    RANDOM {
+        @Override
+        public PointSource create(RandomAlgorithm algorithm, long seed, long block) {
+            return algorithm.create(seed, block);
+        }
+    },
+    /**
+     * ブロックごとに256×256のセルへ1点ずつ置く層別サンプリング
+     */
+    STRATIFIED {
+        @Override
+        public PointSource create(RandomAlgorithm algorithm, long seed, long block) {
+            return new StratifiedGrid(algorithm.create(seed, block));
+        }
+    },
+    /**
+     * スクランブルしたSobol列
+     */
+    SOBOL {
+        @Override
+        public PointSource create(RandomAlgorithm algorithm, long seed, long block) {
+            return new SobolSequence(algorithm.create(seed), block * RandomPointGenerator.BLOCK_SIZE);
+        }
+    },
+    /**
+     * スクランブルしたHalton列
+     */
+    HALTON {
+        @Override
+        public PointSource create(RandomAlgorithm algorithm, long seed, long block) {
+            return new HaltonSequence(algorithm.create(seed), block * RandomPointGenerator.BLOCK_SIZE);
+        }
+    };
+
+
+    /**
+     * ブロックの先頭から点を生成するPointSourceを返す
+     *
+     * @param algorithm 乱数生成器の種類
+     * @param seed 乱数のシード。低食い違い量列ではスクランブルを決める
+     * @param block ブロック番号
+     * @return 点を生成するPointSource
+     */
+    public abstract PointSource create(RandomAlgorithm algorithm, long seed, long block);
+
+    /**
+     * 1つのシードから生成できる点の数を返す
+     *
+     * @return 点の数。制限がない場合はLong.MAX_VALUE
+     */
+    public long getMaxPoints() {
+        switch (this) {
+            case SOBOL:
+                return SobolSequence.MAX_POINTS;
+            case HALTON:
+                return HaltonSequence.MAX_POINTS;
+            default:
+                return Long.MAX_VALUE;
+        }
+    }
+
+}
@@ -0,0 +1,101 @@
+package jp.yama07.montecarlo_pi.qmc;
+
+import jp.yama07.montecarlo_pi.random.PointSource;
+import jp.yama07.montecarlo_pi.random.RandomSource;
+
+/**
+ * 2次元のSobol列
+ *
+ * 座標はGrayコード順に1点あたり1回の排他的論理和で求める。添字から直接開始位置を
+ * 計算できるため、添字の範囲ごとに並列に生成できる。
+ * 方向数には線形行列によるスクランブル(Matousek)とランダムなデジタルシフトを施す。
+ * スクランブル後も列の均等性は保たれ、各点は一様分布に従うため、
+ * 異なるシードで独立に推定を繰り返すことで誤差を見積もれる。
+ * 座標は32bitの精度で作るため、生成できる点はMAX_POINTS個までとなる。
+ *
+ * nextLong()は座標の2成分を上位・下位32bitに詰めた値を返す。
+ *
+ * @author yama07
+ */
+public class SobolSequence implements PointSource {
+
+    // 生成できる点の数
+    public static final long MAX_POINTS = 1L << 32;
+
+    private final int[] directionX = new int[32];
+    private final int[] directionY = new int[32];
+    private long index;
+    private int x;
+    private int y;
+
+    /**
+     *
+     * @param random スクランブルに用いる乱数生成器
+     * @param start 開始する添字
+     */
+    public SobolSequence(RandomSource random, long start) {
+        if (start < 0 || start >= MAX_POINTS) {
+            throw new IllegalArgumentException("Sobol sequence supports up to 2^32 points: " + start);
+        }
+        // 1次元目はvan der Corput列、2次元目は原始多項式x+1から作る
+        int v = 1 << 31;
+        for (int k = 0; k < 32; k++) {
+            directionX[k] = 1 << (31 - k);
+            directionY[k] = v;
+            v ^= v >>> 1;
+        }
+        scramble(directionX, random);
+        scramble(directionY, random);
+        this.x = (int) random.nextLong();
+        this.y = (int) random.nextLong();
+        this.index = start;
+        long gray = start ^ (start >>> 1);
+        for (int k = 0; k < 32; k++) {
+            if ((gray >>> k & 1) != 0) {
+                x ^= directionX[k];
+                y ^= directionY[k];
+            }
+        }
+    }
+
+    /**
+     * 対角成分が1の下三角行列を方向数に掛ける
+     *
+     * @param direction 方向数
+     * @param random 行列の成分を作る乱数生成器
+     */
+    static void scramble(int[] direction, RandomSource random) {
+        int[] rows = new int[32];
+        long bits = random.nextLong();
+        for (int j = 0; j < 32; j++) {
+            // 出力の上からj番目のbitは、入力の上からj番目までのbitから作る
+            int higher = (int) (0xffffffffL << (32 - j));
+            rows[j] = 1 << (31 - j) | ((int) bits & higher);
+            bits = j % 2 == 1 ? random.nextLong() : bits >>> 32;
+        }
+        for (int k = 0; k < direction.length; k++) {
+            int w = direction[k];
+            int scrambled = 0;
+            for (int j = 0; j < 32; j++) {
+                scrambled |= (Integer.bitCount(rows[j] & w) & 1) << (31 - j);
+            }
+            direction[k] = scrambled;
+        }
+    }
+
+    @Override
+    public long nextLong() {
+        if (index >= MAX_POINTS) {
+            throw new IllegalStateException("Sobol sequence supports up to 2^32 points");
+        }
+        long point = (long) x << 32 | (y & 0xffffffffL);
+        index++;
+        if (index < MAX_POINTS) {
+            int c = Long.numberOfTrailingZeros(index);
+            x ^= directionX[c];
+            y ^= directionY[c];
+        }
+        return point;
+    }
+
+}
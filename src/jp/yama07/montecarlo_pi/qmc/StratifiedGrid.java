@@ -0,0 +1,77 @@
+package jp.yama07.montecarlo_pi.qmc;
+
+import jp.yama07.montecarlo_pi.random.PointSource;
+import jp.yama07.montecarlo_pi.random.RandomSource;
+
+/**
+ * 正方形を格子に分け、各セルに1点ずつ置く層別サンプリング(jittered sampling)
+ *
+ * CELLS個の点で256×256のセルをちょうど1回ずつ訪れる。訪れる順序は2次元Sobol列の
+ * 上位8bitとするため、途中までの点も正方形全体に偏りなく散らばる。
+ * セルの位置にはランダムなデジタルシフトを、セル内の位置には一様乱数を用いるため、
+ * 各点は正方形上の一様分布に従い、点の数によらず推定は不偏となる。
+ * CELLS個を超えて生成した場合は、同じ順序でセルを訪れ直す。
+ *
+ * nextLong()は座標の2成分を上位・下位32bitに詰めた値を返す。
+ *
+ * @author yama07
+ */
+public class StratifiedGrid implements PointSource {
+
+    // 1辺のセルの数のbit数
+    private static final int GRID_BITS = 8;
+    // 1回に訪れるセルの数
+    public static final int CELLS = 1 << (2 * GRID_BITS);
+    private static final int GRID_MASK = (1 << GRID_BITS) - 1;
+    private static final int JITTER_BITS = 32 - GRID_BITS;
+    private static final long JITTER_MASK = (1L << JITTER_BITS) - 1;
+    // セルの番号を作る方向数。2次元Sobol列の方向数の上位GRID_BITSbit
+    private static final int[] DIRECTION_X = new int[2 * GRID_BITS];
+    private static final int[] DIRECTION_Y = new int[2 * GRID_BITS];
+
+    static {
+        int v = 1 << 31;
+        for (int k = 0; k < DIRECTION_X.length; k++) {
+            DIRECTION_X[k] = (1 << 31 >>> k) >>> JITTER_BITS;
+            DIRECTION_Y[k] = v >>> JITTER_BITS;
+            v ^= v >>> 1;
+        }
+    }
+
+    private final RandomSource random;
+    private final int shiftX;
+    private final int shiftY;
+    private int index;
+    private int cellX;
+    private int cellY;
+
+    /**
+     *
+     * @param random セルの位置とセル内の位置に用いる乱数生成器
+     */
+    public StratifiedGrid(RandomSource random) {
+        this.random = random;
+        long bits = random.nextLong();
+        this.shiftX = (int) bits & GRID_MASK;
+        this.shiftY = (int) (bits >>> 32) & GRID_MASK;
+    }
+
+    @Override
+    public long nextLong() {
+        long jitter = random.nextLong();
+        int x = (cellX ^ shiftX) << JITTER_BITS | (int) (jitter & JITTER_MASK);
+        int y = (cellY ^ shiftY) << JITTER_BITS | (int) (jitter >>> 32 & JITTER_MASK);
+        // 次のセルをGrayコード順のSobol列から求める
+        index = (index + 1) & (CELLS - 1);
+        if (index == 0) {
+            cellX = 0;
+            cellY = 0;
+        } else {
+            int c = Integer.numberOfTrailingZeros(index);
+            cellX ^= DIRECTION_X[c];
+            cellY ^= DIRECTION_Y[c];
+        }
+        return (long) x << 32 | (y & 0xffffffffL);
+    }
+
+}
@@ -0,0 +1,102 @@
+package jp.yama07.montecarlo_pi.random;
+
+/**
+ * PCG32(XSH-RR 64/32)による疑似乱数生成器
+ *
+ * 64bitの線形合同法を内部状態とし、1ステップで32bitを出力する。
+ * 線形合同法の性質を利用して任意の個数だけ対数時間で先に進めることができる。
+ *
+ * @author yama07
+ */
+public class Pcg32 implements RandomSource {
+
+    private static final long MULTIPLIER = 6364136223846793005L;
+    // jump()で進めるステップ数
+    private static final long JUMP_DISTANCE = 1L << 48;
+
+    private long state;
+    // 乱数列(ストリーム)を選ぶ増分。奇数でなければならない
+    private final long increment;
+
+    /**
+     *
+     * @param seed 乱数のシード
+     */
+    public Pcg32(long seed) {
+        this(seed, SplitMix64.mix64(seed));
+    }
+
+    /**
+     *
+     * @param seed 乱数のシード
+     * @param stream 乱数列の番号
+     */
+    public Pcg32(long seed, long stream) {
+        this.increment = (stream << 1) | 1L;
+        this.state = 0L;
+        step();
+        this.state += seed;
+        step();
+    }
+
+    private void step() {
+        state = state * MULTIPLIER + increment;
+    }
+
+    /**
+     * 32bitの乱数を返す
+     *
+     * @return 乱数
+     */
+    public int nextInt() {
+        long old = state;
+        step();
+        int xorshifted = (int) (((old >>> 18) ^ old) >>> 27);
+        int rot = (int) (old >>> 59);
+        return Integer.rotateRight(xorshifted, rot);
+    }
+
+    @Override
+    public long nextLong() {
+        return ((long) nextInt() << 32) | (nextInt() & 0xffffffffL);
+    }
+
+    /**
+     * 内部状態をnステップ進める
+     *
+     * @param n 進めるステップ数
+     */
+    public void advance(long n) {
+        long accMult = 1L;
+        long accPlus = 0L;
+        long curMult = MULTIPLIER;
+        long curPlus = increment;
+        while (n != 0) {
+            if ((n & 1L) != 0) {
+                accMult *= curMult;
+                accPlus = accPlus * curMult + curPlus;
+            }
+            curPlus = (curMult + 1) * curPlus;
+            curMult *= curMult;
+            n >>>= 1;
+        }
+        state = accMult * state + accPlus;
+    }
+
+    /**
+     * 内部状態を2^48ステップ進める
+     */
+    @Override
+    public void jump() {
+        advance(JUMP_DISTANCE);
+    }
+
+    /**
+     * 別の乱数列(増分)を持つ生成器を返す
+     */
+    @Override
+    public Pcg32 split() {
+        return new Pcg32(nextLong(), nextLong());
+    }
+
+}
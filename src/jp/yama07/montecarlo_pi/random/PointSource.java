@@ -0,0 +1,44 @@
+package jp.yama07.montecarlo_pi.random;
+
+/**
+ * 単位正方形上の点を順に生成するインタフェース
+ *
+ * 点は座標の2成分を上位・下位32bitに詰めた64bitの値として返す。
+ * 疑似乱数生成器のほか、層別サンプリングや低食い違い量列も実装する。
+ * 計算カーネルや推定量は点の生成方法によらずこのインタフェースから点を読み出す。
+ * 乱数列の分割(jump()やsplit())に対応するのはRandomSourceだけとなる。
+ *
+ * @author yama07
+ */
+public interface PointSource {
+
+    /**
+     * 次の点を返す
+     *
+     * @return 座標の2成分を上位・下位32bitに詰めた値
+     */
+    long nextLong();
+
+    /**
+     * 64bitの値の上位32bitから 0 &le; x &lt; 1 の値を作る
+     *
+     * 1回の生成で座標の2成分を得るために使う。
+     *
+     * @param bits 64bitの値
+     * @return 上位32bitから作った値
+     */
+    static double highDouble(long bits) {
+        return (bits >>> 32) * 0x1.0p-32;
+    }
+
+    /**
+     * 64bitの値の下位32bitから 0 &le; x &lt; 1 の値を作る
+     *
+     * @param bits 64bitの値
+     * @return 下位32bitから作った値
+     */
+    static double lowDouble(long bits) {
+        return (bits & 0xffffffffL) * 0x1.0p-32;
+    }
+
+}
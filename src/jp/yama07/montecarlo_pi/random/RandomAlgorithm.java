@@ -0,0 +1,53 @@
+package jp.yama07.montecarlo_pi.random;
+
+/**
+ * 利用できる疑似乱数生成器の種類
+ *
+ * @author yama07
+ */
+public enum RandomAlgorithm {
+
+    SPLITMIX64 {
+        @Override
+        public RandomSource create(long seed) {
+            return new SplitMix64(seed);
+        }
+    },
+    XOSHIRO256PP {
+        @Override
+        public RandomSource create(long seed) {
+            return new Xoshiro256PlusPlus(seed);
+        }
+    },
+    PCG32 {
+        @Override
+        public RandomSource create(long seed) {
+            return new Pcg32(seed);
+        }
+    };
+
+    // SplittableRandomと同じ黄金比由来の定数
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    /**
+     * 指定したシードで初期化した生成器を返す
+     *
+     * @param seed 乱数のシード
+     * @return 生成器
+     */
+    public abstract RandomSource create(long seed);
+
+    /**
+     * シードとストリーム番号から独立した生成器を返す。<BR>
+     * ストリーム番号ごとのシードはSplitMix64で攪拌して作るため、
+     * 番号さえわかれば他のストリームを生成せずに直接作ることができる。
+     *
+     * @param seed 乱数のシード
+     * @param stream ストリーム番号
+     * @return 生成器
+     */
+    public RandomSource create(long seed, long stream) {
+        return create(SplitMix64.mix64(seed + (stream + 1) * GOLDEN_GAMMA));
+    }
+
+}
@@ -0,0 +1,43 @@
+package jp.yama07.montecarlo_pi.random;
+
+/**
+ * 疑似乱数生成器のインタフェース
+ *
+ * 64bitの乱数をそのまま座標の2成分とみなせるため、PointSourceとしても使える。
+ * 実装はスレッドセーフではない。並列に使う場合はsplit()やjump()で
+ * 重ならない乱数列をスレッドごとに用意すること。
+ *
+ * @author yama07
+ */
+public interface RandomSource extends PointSource {
+
+    /**
+     * 64bitの乱数を返す
+     *
+     * @return 乱数
+     */
+    @Override
+    long nextLong();
+
+    /**
+     * 0 &le; x &lt; 1 の乱数を返す
+     *
+     * @return 乱数
+     */
+    default double nextDouble() {
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * 乱数列を大きく先に進め、それまでの乱数列と重ならないようにする
+     */
+    void jump();
+
+    /**
+     * この乱数列と重ならない新しい生成器を返す。この生成器の状態も変化する。
+     *
+     * @return 新しい生成器
+     */
+    RandomSource split();
+
+}
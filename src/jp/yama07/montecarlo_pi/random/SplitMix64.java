@@ -0,0 +1,66 @@
+package jp.yama07.montecarlo_pi.random;
+
+/**
+ * SplitMix64による疑似乱数生成器
+ *
+ * 状態は64bitのカウンタのみで、任意の位置へ定数時間で進めることができる。
+ *
+ * @author yama07
+ */
+public class SplitMix64 implements RandomSource {
+
+    // 黄金比由来の増分
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+    // jump()で進める乱数の個数
+    private static final long JUMP_DISTANCE = 1L << 48;
+
+    private long state;
+
+    /**
+     *
+     * @param seed 乱数のシード
+     */
+    public SplitMix64(long seed) {
+        this.state = seed;
+    }
+
+    @Override
+    public long nextLong() {
+        return mix64(state += GOLDEN_GAMMA);
+    }
+
+    /**
+     * 乱数をn個進める
+     *
+     * @param n 進める個数
+     */
+    public void advance(long n) {
+        state += n * GOLDEN_GAMMA;
+    }
+
+    /**
+     * 乱数を2^48個進める
+     */
+    @Override
+    public void jump() {
+        advance(JUMP_DISTANCE);
+    }
+
+    @Override
+    public SplitMix64 split() {
+        return new SplitMix64(nextLong());
+    }
+
+    /**
+     * SplitMix64の出力関数
+     *
+     * @param z 入力
+     * @return 攪拌した値
+     */
+    public static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+}
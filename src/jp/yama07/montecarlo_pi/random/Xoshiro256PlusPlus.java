@@ -0,0 +1,89 @@
+package jp.yama07.montecarlo_pi.random;
+
+/**
+ * xoshiro256++による疑似乱数生成器
+ *
+ * 周期は2^256-1で、jump()により2^128個先へ進めることができる。
+ *
+ * @author yama07
+ */
+public class Xoshiro256PlusPlus implements RandomSource {
+
+    private static final long[] JUMP = {
+        0x180ec6d33cfd0abaL, 0xd5a61266f0c9392cL, 0xa9582618e03fc9aaL, 0x39abdc4529b1661cL};
+
+    private long s0;
+    private long s1;
+    private long s2;
+    private long s3;
+
+    /**
+     * SplitMix64でシードを展開して状態を初期化する
+     *
+     * @param seed 乱数のシード
+     */
+    public Xoshiro256PlusPlus(long seed) {
+        SplitMix64 init = new SplitMix64(seed);
+        s0 = init.nextLong();
+        s1 = init.nextLong();
+        s2 = init.nextLong();
+        s3 = init.nextLong();
+    }
+
+    private Xoshiro256PlusPlus(long s0, long s1, long s2, long s3) {
+        this.s0 = s0;
+        this.s1 = s1;
+        this.s2 = s2;
+        this.s3 = s3;
+    }
+
+    @Override
+    public long nextLong() {
+        final long result = Long.rotateLeft(s0 + s3, 23) + s0;
+        final long t = s1 << 17;
+        s2 ^= s0;
+        s3 ^= s1;
+        s1 ^= s2;
+        s0 ^= s3;
+        s2 ^= t;
+        s3 = Long.rotateLeft(s3, 45);
+        return result;
+    }
+
+    /**
+     * 乱数を2^128個進める
+     */
+    @Override
+    public void jump() {
+        long t0 = 0;
+        long t1 = 0;
+        long t2 = 0;
+        long t3 = 0;
+        for (long jump : JUMP) {
+            for (int b = 0; b < 64; b++) {
+                if ((jump & (1L << b)) != 0) {
+                    t0 ^= s0;
+                    t1 ^= s1;
+                    t2 ^= s2;
+                    t3 ^= s3;
+                }
+                nextLong();
+            }
+        }
+        s0 = t0;
+        s1 = t1;
+        s2 = t2;
+        s3 = t3;
+    }
+
+    /**
+     * 現在の状態をコピーした生成器を返し、この生成器を2^128個先へ進める
+     */
+    @Override
+    public Xoshiro256PlusPlus split() {
+        Xoshiro256PlusPlus copy = new Xoshiro256PlusPlus(s0, s1, s2, s3);
+        jump();
+        return copy;
+    }
+
+}
@@ -0,0 +1,123 @@
+package jp.yama07.montecarlo_pi.scheduler;
+
+import jp.yama07.montecarlo_pi.SimulationEngine;
+import jp.yama07.montecarlo_pi.kernel.HitKernel;
+import jp.yama07.montecarlo_pi.kernel.HitKernels;
+import jp.yama07.montecarlo_pi.qmc.SamplingMethod;
+import jp.yama07.montecarlo_pi.random.RandomAlgorithm;
+
+/**
+ * JobSchedulerに投入するシミュレーションの条件
+ *
+ * 同じ条件であれば、SimulationEngine.run(trials)と同じ結果となる。
+ *
+ * @author yama07
+ */
+public class JobRequest {
+
+    // 優先度の範囲
+    public static final int MIN_PRIORITY = 1;
+    public static final int NORM_PRIORITY = 5;
+    public static final int MAX_PRIORITY = 10;
+
+    private final long trials;
+    private final long seed;
+    private RandomAlgorithm algorithm = SimulationEngine.DEFAULT_ALGORITHM;
+    private SamplingMethod sampling = SimulationEngine.DEFAULT_SAMPLING;
+    private HitKernel kernel = HitKernels.defaultKernel();
+    private int priority = NORM_PRIORITY;
+    private String name;
+
+    /**
+     *
+     * @param trials 試行回数
+     * @param seed 乱数のシード
+     */
+    public JobRequest(long trials, long seed) {
+        if (trials <= 0) {
+            throw new IllegalArgumentException("trials must be positive: " + trials);
+        }
+        this.trials = trials;
+        this.seed = seed;
+        this.name = "trials=" + trials + ",seed=" + seed;
+    }
+
+    public long getTrials() {
+        return trials;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public RandomAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    public void setAlgorithm(RandomAlgorithm algorithm) {
+        this.algorithm = algorithm;
+    }
+
+    public SamplingMethod getSampling() {
+        return sampling;
+    }
+
+    public void setSampling(SamplingMethod sampling) {
+        this.sampling = sampling;
+    }
+
+    public HitKernel getKernel() {
+        return kernel;
+    }
+
+    public void setKernel(HitKernel kernel) {
+        this.kernel = kernel;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    /**
+     * 優先度を設定する。実行中のジョブは、優先度に比例した割合でコアを分け合う。
+     *
+     * @param priority 優先度(MIN_PRIORITY以上MAX_PRIORITY以下)
+     */
+    public void setPriority(int priority) {
+        if (priority < MIN_PRIORITY || priority > MAX_PRIORITY) {
+            throw new IllegalArgumentException("priority must be in [" + MIN_PRIORITY + ", " + MAX_PRIORITY + "]: " + priority);
+        }
+        this.priority = priority;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * 条件に合わせたエンジンを作る
+     *
+     * @return エンジン
+     */
+    SimulationEngine createEngine() {
+        if (trials > sampling.getMaxPoints()) {
+            throw new IllegalArgumentException(sampling + " supports up to " + sampling.getMaxPoints() + " trials");
+        }
+        SimulationEngine engine = new SimulationEngine(seed, 1);
+        engine.setAlgorithm(algorithm);
+        engine.setSampling(sampling);
+        engine.setKernel(kernel);
+        return engine;
+    }
+
+    @Override
+    public String toString() {
+        return "JobRequest{" + "name=" + name + ", trials=" + trials + ", seed=" + seed + ", algorithm=" + algorithm
+                + ", sampling=" + sampling + ", kernel=" + kernel.getName() + ", priority=" + priority + '}';
+    }
+
+}
@@ -0,0 +1,306 @@
+package jp.yama07.montecarlo_pi.scheduler;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import jp.yama07.montecarlo_pi.RandomPointGenerator;
+import jp.yama07.montecarlo_pi.stats.SimulationStatistics;
+
+/**
+ * 多数のシミュレーションを同時に実行するスケジューラ
+ *
+ * ジョブの試行はブロック単位のチャンクに分け、並列度と同じ数のスレッドを持つ
+ * ワークスティーリングのForkJoinPoolで計算する。計算中のチャンクを並列度までに
+ * 抑え、次のチャンクは仮想時間の最も小さいジョブから割り当てる(ストライド・スケジューリング)。
+ * 仮想時間は計算したブロック数を優先度で割った分だけ進むため、実行中のジョブは
+ * 優先度に比例した割合でコアを分け合い、後から投入したジョブも待たされない。
+ *
+ * チャンクの割り当てと結果の取りまとめは、仮想スレッドが利用できるJVM(JDK 21以降)では
+ * 仮想スレッドで、それ以外ではキャッシュされたスレッドプールで行う。
+ *
+ * @author yama07
+ */
+public class JobScheduler {
+
+    // 1回に割り当てるブロックの数
+    public static final long DEFAULT_CHUNK_BLOCKS = 16;
+
+    // 計算を行うスレッドプール
+    private final ForkJoinPool pool;
+    // 割り当てと結果の取りまとめを行うスレッド
+    private final ExecutorService orchestrator;
+    private final boolean virtualThreads;
+    // 計算中にできるチャンクの数
+    private final Semaphore slots;
+    private final long chunkBlocks;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition runnable = lock.newCondition();
+    // 割り当てるブロックが残っているジョブ
+    private final List<SimulationJob> queue = new ArrayList<>();
+    // 最後に割り当てたジョブの仮想時間。新しいジョブはこの時刻から始める
+    private double virtualTime;
+    private volatile boolean shutdown;
+
+    private final AtomicLong ids = new AtomicLong();
+    // すべてのジョブの途中経過
+    private final SimulationStatistics statistics = new SimulationStatistics();
+
+    /**
+     * 並列度は利用可能なCPUコア数とする
+     */
+    public JobScheduler() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK_BLOCKS);
+    }
+
+    /**
+     *
+     * @param parallelism 並列度
+     * @param chunkBlocks 1回に割り当てるブロックの数
+     */
+    public JobScheduler(int parallelism, long chunkBlocks) {
+        if (parallelism <= 0 || chunkBlocks <= 0) {
+            throw new IllegalArgumentException("parallelism and chunkBlocks must be positive");
+        }
+        this.pool = new ForkJoinPool(parallelism);
+        this.slots = new Semaphore(parallelism);
+        this.chunkBlocks = chunkBlocks;
+        ExecutorService virtual = newVirtualThreadExecutor();
+        this.virtualThreads = virtual != null;
+        this.orchestrator = virtual != null ? virtual : Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "job-orchestrator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        orchestrator.execute(this::dispatch);
+    }
+
+    /**
+     * 仮想スレッドを用いるExecutorServiceをリフレクションで作る
+     *
+     * @return ExecutorService。仮想スレッドが利用できない場合はnull
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            // JDK 20以前、またはプレビュー機能が無効
+            return null;
+        }
+    }
+
+    /**
+     * 割り当てと結果の取りまとめに仮想スレッドを用いているかを返す
+     *
+     * @return 仮想スレッドを用いている場合はtrue
+     */
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * すべてのジョブの途中経過を返す。SimulationMetricsで計測する場合に用いる。
+     *
+     * @return 途中経過の集計
+     */
+    public SimulationStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * ジョブを投入する
+     *
+     * @param request シミュレーションの条件
+     * @return 投入したジョブ
+     * @throws RejectedExecutionException shutdown()の後に呼び出した場合
+     */
+    public SimulationJob submit(JobRequest request) {
+        SimulationJob job = new SimulationJob(ids.incrementAndGet(), request, this);
+        lock.lock();
+        try {
+            if (shutdown) {
+                throw new RejectedExecutionException("scheduler is shut down");
+            }
+            job.pass = virtualTime;
+            queue.add(job);
+            runnable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        return job;
+    }
+
+    /**
+     * 実行中または待機中のジョブの一覧を返す
+     *
+     * @return ジョブの一覧
+     */
+    public List<SimulationJob> getQueuedJobs() {
+        lock.lock();
+        try {
+            return new ArrayList<>(queue);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * ジョブを取り消す
+     *
+     * @param job ジョブ
+     * @return 取り消した場合はtrue
+     */
+    boolean cancel(SimulationJob job) {
+        lock.lock();
+        try {
+            if (job.isDone() || job.cancelled) {
+                return false;
+            }
+            job.cancelled = true;
+            queue.remove(job);
+        } finally {
+            lock.unlock();
+        }
+        job.fail(new CancellationException("job " + job.getId() + " was cancelled"));
+        return true;
+    }
+
+    /**
+     * 計算中のチャンクが並列度より少なければ、仮想時間の最も小さいジョブからチャンクを割り当てる
+     */
+    private void dispatch() {
+        try {
+            while (true) {
+                slots.acquire();
+                SimulationJob job;
+                long from;
+                long to;
+                lock.lock();
+                try {
+                    while ((job = next()) == null && !shutdown) {
+                        runnable.await();
+                    }
+                    if (job == null) {
+                        return;
+                    }
+                    from = job.nextBlock;
+                    to = Math.min(job.blocks, from + chunkBlocks);
+                    job.nextBlock = to;
+                    job.inFlight++;
+                    virtualTime = job.pass;
+                    job.pass += job.stride() * (to - from);
+                    if (!job.isRunnable()) {
+                        queue.remove(job);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                SimulationJob chunkJob = job;
+                long chunkFrom = from;
+                long chunkTo = to;
+                pool.execute(() -> runChunk(chunkJob, chunkFrom, chunkTo));
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (RejectedExecutionException ex) {
+            // shutdown()によりプールが終了した
+        }
+    }
+
+    /**
+     * 仮想時間の最も小さいジョブを返す。同じ場合は先に投入したジョブとする。
+     */
+    private SimulationJob next() {
+        SimulationJob best = null;
+        for (SimulationJob job : queue) {
+            if (job.isRunnable() && (best == null || job.pass < best.pass)) {
+                best = job;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 計算スレッドで1チャンクを計算する
+     */
+    private void runChunk(SimulationJob job, long fromBlock, long toBlock) {
+        long trials = job.getRequest().getTrials();
+        long total = Math.min(trials, toBlock * RandomPointGenerator.BLOCK_SIZE) - fromBlock * RandomPointGenerator.BLOCK_SIZE;
+        long inside = 0L;
+        Throwable error = null;
+        if (!job.cancelled) {
+            try {
+                inside = job.engine.countBlocksInline(trials, fromBlock, toBlock);
+                statistics.add(inside, total);
+            } catch (RuntimeException ex) {
+                error = ex;
+            }
+        }
+        boolean finished;
+        lock.lock();
+        try {
+            finished = job.addChunk(inside, total);
+            if (error != null && !job.cancelled) {
+                job.cancelled = true;
+                queue.remove(job);
+            } else if (error != null) {
+                error = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+        slots.release();
+        Throwable failure = error;
+        if (failure != null) {
+            collect(() -> job.fail(failure));
+        } else if (finished) {
+            collect(job::complete);
+        }
+    }
+
+    /**
+     * 結果の取りまとめを計算スレッドから切り離して行う。終了後はこのスレッドで行う。
+     */
+    private void collect(Runnable action) {
+        try {
+            orchestrator.execute(action);
+        } catch (RejectedExecutionException ex) {
+            action.run();
+        }
+    }
+
+    /**
+     * 待機中および実行中のジョブを取り消し、スレッドを終了する
+     */
+    public void shutdown() {
+        List<SimulationJob> jobs;
+        lock.lock();
+        try {
+            shutdown = true;
+            jobs = new ArrayList<>(queue);
+            runnable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        for (SimulationJob job : jobs) {
+            job.cancel();
+        }
+        pool.shutdown();
+        orchestrator.shutdown();
+    }
+
+}
@@ -0,0 +1,125 @@
+package jp.yama07.montecarlo_pi.scheduler;
+
+import java.util.concurrent.CompletableFuture;
+import jp.yama07.montecarlo_pi.SimulationEngine;
+import jp.yama07.montecarlo_pi.SimulationResult;
+
+/**
+ * JobSchedulerに投入したジョブ
+ *
+ * 試行はブロック単位のチャンクに分けて計算される。結果はgetFuture()で受け取る。
+ * 状態の更新はすべてJobSchedulerのロックを取得して行う。
+ *
+ * @author yama07
+ */
+public class SimulationJob {
+
+    private final long id;
+    private final JobRequest request;
+    private final JobScheduler scheduler;
+    private final CompletableFuture<SimulationResult> future = new CompletableFuture<>();
+    private final long submittedNanos = System.nanoTime();
+
+    // 計算に用いるエンジン
+    final SimulationEngine engine;
+    // 全体のブロック数
+    final long blocks;
+    // 次に割り当てるブロック
+    long nextBlock;
+    // 計算中のチャンクの数
+    int inFlight;
+    // 公平に分け合うための仮想時間。小さいジョブから割り当てる
+    double pass;
+    // 計算を終えたプロット数と円の内部の数
+    private volatile long numOfTotal;
+    long numOfInside;
+    boolean cancelled;
+
+    SimulationJob(long id, JobRequest request, JobScheduler scheduler) {
+        this.id = id;
+        this.request = request;
+        this.scheduler = scheduler;
+        this.engine = request.createEngine();
+        this.blocks = SimulationEngine.blocksOf(request.getTrials());
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public JobRequest getRequest() {
+        return request;
+    }
+
+    /**
+     * 結果を受け取るFutureを返す。取り消された場合はCancellationExceptionで完了する。
+     *
+     * @return 結果
+     */
+    public CompletableFuture<SimulationResult> getFuture() {
+        return future;
+    }
+
+    /**
+     * 進捗率を返す
+     *
+     * @return 計算を終えた試行の割合
+     */
+    public double getProgress() {
+        return (double) numOfTotal / request.getTrials();
+    }
+
+    public boolean isDone() {
+        return future.isDone();
+    }
+
+    /**
+     * ジョブを取り消す。計算中のチャンクは終わるまで待たずに結果を捨てる。
+     *
+     * @return 取り消した場合はtrue。既に終わっていた場合はfalse
+     */
+    public boolean cancel() {
+        return scheduler.cancel(this);
+    }
+
+    /**
+     * 優先度に応じた、1ブロックあたりの仮想時間の進み
+     */
+    double stride() {
+        return (double) JobRequest.MAX_PRIORITY / request.getPriority();
+    }
+
+    /**
+     * 割り当てるブロックが残っているかを返す
+     */
+    boolean isRunnable() {
+        return !cancelled && nextBlock < blocks;
+    }
+
+    /**
+     * チャンクの結果を加え、すべてのチャンクを終えたかを返す
+     */
+    boolean addChunk(long inside, long total) {
+        numOfInside += inside;
+        numOfTotal += total;
+        inFlight--;
+        return !cancelled && nextBlock == blocks && inFlight == 0;
+    }
+
+    /**
+     * 結果をまとめてFutureを完了する
+     */
+    void complete() {
+        future.complete(new SimulationResult(numOfInside, numOfTotal, System.nanoTime() - submittedNanos));
+    }
+
+    void fail(Throwable ex) {
+        future.completeExceptionally(ex);
+    }
+
+    @Override
+    public String toString() {
+        return "SimulationJob{" + "id=" + id + ", request=" + request + ", progress=" + getProgress() + '}';
+    }
+
+}
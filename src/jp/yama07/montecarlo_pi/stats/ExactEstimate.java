@@ -0,0 +1,151 @@
+package jp.yama07.montecarlo_pi.stats;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+
+/**
+ * 円の内部にプロットされた数とプロット数から、円周率とその信頼区間を任意精度で求めた結果
+ *
+ * 計算はBigDecimalで行うため、試行のたびではなく結果を表示するときに1回だけ作る。
+ * 標準誤差は二項分布から 4 × sqrt(inside × (total - inside) / total^3) として求める。
+ * 信頼区間に用いる正規分布の分位点はdoubleの精度で求めるため、区間の端の誤差は
+ * 半幅に対して相対的に1e-15程度となる。
+ *
+ * @author yama07
+ */
+public class ExactEstimate {
+
+    // 既定の有効桁数
+    public static final int DEFAULT_DIGITS = 17;
+
+    private static final BigInteger FOUR = BigInteger.valueOf(4);
+    private static final BigInteger SIXTEEN = BigInteger.valueOf(16);
+
+    private final BigInteger numOfInside;
+    private final BigInteger numOfTotal;
+    private final MathContext mathContext;
+    private final BigDecimal estimatedPI;
+    private final BigDecimal standardError;
+
+    /**
+     *
+     * @param numOfInside 円の内部にプロットされた数
+     * @param numOfTotal プロット数
+     * @param standardError 繰り返しの推定値などから求めた標準誤差。二項分布から求める場合はnull
+     * @param digits 有効桁数
+     */
+    public ExactEstimate(BigInteger numOfInside, BigInteger numOfTotal, BigDecimal standardError, int digits) {
+        if (digits <= 0) {
+            throw new IllegalArgumentException("digits must be positive: " + digits);
+        }
+        this.numOfInside = numOfInside;
+        this.numOfTotal = numOfTotal;
+        this.mathContext = new MathContext(digits);
+        if (numOfTotal.signum() == 0) {
+            this.estimatedPI = BigDecimal.ZERO;
+            this.standardError = BigDecimal.ZERO;
+        } else {
+            BigDecimal total = new BigDecimal(numOfTotal);
+            this.estimatedPI = new BigDecimal(numOfInside.multiply(FOUR)).divide(total, mathContext);
+            if (standardError != null) {
+                this.standardError = standardError.round(mathContext);
+            } else {
+                BigInteger numerator = SIXTEEN.multiply(numOfInside).multiply(numOfTotal.subtract(numOfInside));
+                BigDecimal variance = new BigDecimal(numerator).divide(total.pow(3), mathContext);
+                this.standardError = sqrt(variance, mathContext);
+            }
+        }
+    }
+
+    public BigInteger getNumOfInside() {
+        return numOfInside;
+    }
+
+    public BigInteger getNumOfTotal() {
+        return numOfTotal;
+    }
+
+    public int getDigits() {
+        return mathContext.getPrecision();
+    }
+
+    /**
+     * 推定した円周率を返す
+     *
+     * @return 推定した円周率。プロット数が0の場合は0
+     */
+    public BigDecimal getEstimatedPI() {
+        return estimatedPI;
+    }
+
+    /**
+     * 推定した円周率の標準誤差を返す
+     *
+     * @return 標準誤差。プロット数が0の場合は0
+     */
+    public BigDecimal getStandardError() {
+        return standardError;
+    }
+
+    /**
+     * 信頼区間の半幅を返す
+     *
+     * @param confidence 信頼水準(0 &lt; confidence &lt; 1)
+     * @return 信頼区間の半幅
+     */
+    public BigDecimal getHalfWidth(double confidence) {
+        return new BigDecimal(PrecisionTarget.zScore(confidence)).multiply(standardError, mathContext);
+    }
+
+    /**
+     * 信頼区間の下限を返す
+     *
+     * @param confidence 信頼水準(0 &lt; confidence &lt; 1)
+     * @return 下限
+     */
+    public BigDecimal getLowerBound(double confidence) {
+        return estimatedPI.subtract(getHalfWidth(confidence), mathContext);
+    }
+
+    /**
+     * 信頼区間の上限を返す
+     *
+     * @param confidence 信頼水準(0 &lt; confidence &lt; 1)
+     * @return 上限
+     */
+    public BigDecimal getUpperBound(double confidence) {
+        return estimatedPI.add(getHalfWidth(confidence), mathContext);
+    }
+
+    /**
+     * ニュートン法で平方根を求める。JDK 8のBigDecimalにはsqrtがないため自前で行う。
+     */
+    static BigDecimal sqrt(BigDecimal value, MathContext mc) {
+        if (value.signum() == 0) {
+            return BigDecimal.ZERO;
+        }
+        MathContext work = new MathContext(mc.getPrecision() + 4);
+        BigDecimal two = BigDecimal.valueOf(2);
+        // doubleの平方根を初期値とし、1回ごとに有効桁数がおよそ倍になる
+        BigDecimal x = new BigDecimal(Math.sqrt(value.doubleValue()), work);
+        if (x.signum() == 0) {
+            x = value.max(BigDecimal.ONE);
+        }
+        for (int i = 0; i < 64; i++) {
+            BigDecimal next = x.add(value.divide(x, work)).divide(two, work);
+            if (next.compareTo(x) == 0) {
+                break;
+            }
+            x = next;
+        }
+        return x.round(mc);
+    }
+
+    @Override
+    public String toString() {
+        return "ExactEstimate{" + "numOfInside=" + numOfInside + ", numOfTotal=" + numOfTotal
+                + ", estimatedPI=" + estimatedPI.toPlainString() + ", standardError=" + standardError + '}';
+    }
+
+}
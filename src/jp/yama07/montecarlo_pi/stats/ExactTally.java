@@ -0,0 +1,70 @@
+package jp.yama07.montecarlo_pi.stats;
+
+import java.math.BigInteger;
+import jp.yama07.montecarlo_pi.SimulationResult;
+
+/**
+ * 円の内部にプロットされた数とプロット数を、桁あふれを検出しながら合計する集計
+ *
+ * ワーカーの結果のようにまとまった単位で加えることを想定しており、加算は同期して行う。
+ * 加える範囲は重ならず、合計はlongで表せる試行回数を超えないため、longで足りる。
+ * 範囲を重複して加えるなどで桁あふれした場合は、誤った結果を返さずに例外とする。
+ * 円周率とその信頼区間はestimate()で任意精度で求める。
+ *
+ * @author yama07
+ */
+public class ExactTally {
+
+    private long numOfInside;
+    private long numOfTotal;
+
+    /**
+     * 試行の結果を加える
+     *
+     * @param inside 円の内部にプロットされた数
+     * @param total プロット数
+     * @throws ArithmeticException 合計がlongの範囲を超える場合
+     */
+    public synchronized void add(long inside, long total) {
+        if (inside < 0 || total < inside) {
+            throw new IllegalArgumentException("invalid counts: inside=" + inside + ", total=" + total);
+        }
+        long newTotal = Math.addExact(numOfTotal, total);
+        numOfInside += inside;
+        numOfTotal = newTotal;
+    }
+
+    public synchronized long getNumOfInside() {
+        return numOfInside;
+    }
+
+    public synchronized long getNumOfTotal() {
+        return numOfTotal;
+    }
+
+    /**
+     * 集計をSimulationResultにする
+     *
+     * @param elapsedNanos 計算に要した時間(ナノ秒)
+     * @return シミュレーション結果
+     */
+    public synchronized SimulationResult toResult(long elapsedNanos) {
+        return new SimulationResult(numOfInside, numOfTotal, elapsedNanos);
+    }
+
+    /**
+     * 集計から円周率とその信頼区間を任意精度で求める
+     *
+     * @param digits 有効桁数
+     * @return 推定結果
+     */
+    public synchronized ExactEstimate estimate(int digits) {
+        return new ExactEstimate(BigInteger.valueOf(numOfInside), BigInteger.valueOf(numOfTotal), null, digits);
+    }
+
+    @Override
+    public String toString() {
+        return "ExactTally{" + "numOfInside=" + getNumOfInside() + ", numOfTotal=" + getNumOfTotal() + '}';
+    }
+
+}
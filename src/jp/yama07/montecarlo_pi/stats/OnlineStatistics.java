@@ -0,0 +1,194 @@
+package jp.yama07.montecarlo_pi.stats;
+
+/**
+ * 1つの計算スレッドが加えるバッチごとの結果から、推定値の誤差を逐次求める集計
+ *
+ * バッチ(通常は1ブロック)ごとの推定値4×inside/nを、試行回数nを重みとする
+ * Welfordの方法で平均と偏差平方和に加える。個々の試行を保持しないため、
+ * 試行回数によらず使用するメモリは一定となる。
+ * バッチ平均法による1試行あたりの分散は Σ n_b (x_b - x̄)² / (k - 1) で求める。
+ * 試行が独立であれば二項分布の標準誤差と一致するため、両者の比から
+ * 乱数生成器や点の生成方法が精度に与える影響を調べられる。
+ *
+ * add()を呼び出すスレッドは1つに限る。集計は不変なSnapshotとして公開するため、
+ * 他のスレッドはロックせずにsnapshot()で読み出せる。
+ * 複数のスレッドの集計はSnapshot.merge()で1つにまとめる。
+ *
+ * @author yama07
+ */
+public class OnlineStatistics {
+
+    private volatile Snapshot current = Snapshot.EMPTY;
+
+    /**
+     * バッチの結果を加える。1つのスレッドだけが呼び出す。
+     *
+     * @param inside 円の内部にプロットされた数
+     * @param total プロット数
+     */
+    public void add(long inside, long total) {
+        if (total <= 0) {
+            return;
+        }
+        current = current.add(inside, total);
+    }
+
+    /**
+     * 現時点での集計を返す
+     *
+     * @return 集計結果
+     */
+    public Snapshot snapshot() {
+        return current;
+    }
+
+    /**
+     * 集計を0に戻す。更新中に呼び出してはならない。
+     */
+    public void reset() {
+        current = Snapshot.EMPTY;
+    }
+
+    /**
+     * ある時点での集計結果
+     */
+    public static final class Snapshot {
+
+        /**
+         * バッチを1つも含まない集計
+         */
+        public static final Snapshot EMPTY = new Snapshot(0L, 0L, 0.0, 0.0);
+
+        private final long batches;
+        private final long numOfTotal;
+        private final double mean;
+        private final double sumOfSquares;
+
+        Snapshot(long batches, long numOfTotal, double mean, double sumOfSquares) {
+            this.batches = batches;
+            this.numOfTotal = numOfTotal;
+            this.mean = mean;
+            this.sumOfSquares = sumOfSquares;
+        }
+
+        Snapshot add(long inside, long total) {
+            double x = 4.0 * inside / total;
+            long n = numOfTotal + total;
+            double delta = x - mean;
+            double newMean = mean + delta * total / n;
+            return new Snapshot(batches + 1, n, newMean, sumOfSquares + total * delta * (x - newMean));
+        }
+
+        /**
+         * 別のスレッドの集計と合わせた集計を返す。<BR>
+         * Chanらの方法で平均と偏差平方和を合成するため、結果は全てのバッチを
+         * 1つのスレッドで加えた場合と(丸め誤差を除き)一致する。
+         *
+         * @param other 合わせる集計
+         * @return 合わせた集計
+         */
+        public Snapshot merge(Snapshot other) {
+            if (other.numOfTotal == 0) {
+                return this;
+            }
+            if (numOfTotal == 0) {
+                return other;
+            }
+            long n = numOfTotal + other.numOfTotal;
+            double delta = other.mean - mean;
+            double newMean = mean + delta * other.numOfTotal / n;
+            double newSumOfSquares = sumOfSquares + other.sumOfSquares
+                    + delta * delta * ((double) numOfTotal * other.numOfTotal / n);
+            return new Snapshot(batches + other.batches, n, newMean, newSumOfSquares);
+        }
+
+        public long getBatches() {
+            return batches;
+        }
+
+        public long getNumOfTotal() {
+            return numOfTotal;
+        }
+
+        /**
+         * 推定した円周率を返す
+         *
+         * @return 推定値
+         */
+        public double getMean() {
+            return mean;
+        }
+
+        /**
+         * バッチ平均法で求めた1試行あたりの分散を返す
+         *
+         * @return 分散。バッチが2つ未満の場合はNaN
+         */
+        public double getVariance() {
+            return batches < 2 ? Double.NaN : sumOfSquares / (batches - 1);
+        }
+
+        /**
+         * バッチ平均法で求めた推定値の標準誤差を返す
+         *
+         * @return 標準誤差。バッチが2つ未満の場合はNaN
+         */
+        public double getStandardError() {
+            return Math.sqrt(getVariance() / numOfTotal);
+        }
+
+        /**
+         * 試行が独立であると仮定し、二項分布から求めた標準誤差を返す
+         *
+         * @return 標準誤差
+         */
+        public double getBinomialStandardError() {
+            if (numOfTotal == 0) {
+                return 0.0;
+            }
+            double p = mean / 4.0;
+            return 4.0 * Math.sqrt(p * (1.0 - p) / numOfTotal);
+        }
+
+        /**
+         * バッチ平均法と二項分布の標準誤差の比を返す。<BR>
+         * 1より大きい場合は試行の間に相関があり、二項分布の標準誤差は誤差を過小に見積もっている。
+         *
+         * @return 標準誤差の比
+         */
+        public double getStandardErrorRatio() {
+            return getStandardError() / getBinomialStandardError();
+        }
+
+        /**
+         * 真の円周率との差の絶対値を返す
+         *
+         * @return 誤差の絶対値
+         */
+        public double getAbsoluteError() {
+            return Math.abs(mean - Math.PI);
+        }
+
+        /**
+         * バッチ平均法の標準誤差による信頼区間の下限を返す
+         *
+         * @param z 標準正規分布の分位点
+         * @return 下限
+         */
+        public double getLowerBound(double z) {
+            return mean - z * getStandardError();
+        }
+
+        /**
+         * バッチ平均法の標準誤差による信頼区間の上限を返す
+         *
+         * @param z 標準正規分布の分位点
+         * @return 上限
+         */
+        public double getUpperBound(double z) {
+            return mean + z * getStandardError();
+        }
+
+    }
+
+}
@@ -0,0 +1,134 @@
+package jp.yama07.montecarlo_pi.stats;
+
+import jp.yama07.montecarlo_pi.RandomPointGenerator;
+import jp.yama07.montecarlo_pi.SimulationResult;
+
+/**
+ * 推定した円周率に求める精度
+ *
+ * 信頼区間の半幅と信頼水準で指定する。半幅は二項分布の標準誤差に
+ * 正規分布の分位点を掛けて求める。
+ *
+ * @author yama07
+ */
+public class PrecisionTarget {
+
+    // 標準誤差を信頼してよい最小の試行回数
+    public static final long MIN_TRIALS = RandomPointGenerator.BLOCK_SIZE;
+
+    private final double halfWidth;
+    private final double confidence;
+    private final double z;
+
+    /**
+     *
+     * @param halfWidth 信頼区間の半幅
+     * @param confidence 信頼水準(0 &lt; confidence &lt; 1)
+     */
+    public PrecisionTarget(double halfWidth, double confidence) {
+        if (!(halfWidth > 0)) {
+            throw new IllegalArgumentException("halfWidth must be positive: " + halfWidth);
+        }
+        if (!(confidence > 0 && confidence < 1)) {
+            throw new IllegalArgumentException("confidence must be in (0, 1): " + confidence);
+        }
+        this.halfWidth = halfWidth;
+        this.confidence = confidence;
+        this.z = zScore(confidence);
+    }
+
+    public double getHalfWidth() {
+        return halfWidth;
+    }
+
+    public double getConfidence() {
+        return confidence;
+    }
+
+    /**
+     * 求める信頼区間の半幅に相当する標準誤差を返す
+     *
+     * @return 標準誤差
+     */
+    public double getStandardError() {
+        return halfWidth / z;
+    }
+
+    /**
+     * 結果の信頼区間の半幅を返す
+     *
+     * @param result シミュレーション結果
+     * @return 信頼区間の半幅
+     */
+    public double getHalfWidth(SimulationResult result) {
+        return z * result.getStandardError();
+    }
+
+    /**
+     * 結果が求める精度に達しているかを返す。試行回数がMIN_TRIALSに満たない場合は達していないとする。
+     *
+     * @param result シミュレーション結果
+     * @return 達していればtrue
+     */
+    public boolean isSatisfied(SimulationResult result) {
+        return result.getNumOfTotal() >= MIN_TRIALS && getHalfWidth(result) <= halfWidth;
+    }
+
+    /**
+     * これまでの結果から、求める精度に達するまでに必要な試行回数を見積もる
+     *
+     * @param result シミュレーション結果
+     * @return 必要な試行回数の合計
+     */
+    public long getRequiredTrials(SimulationResult result) {
+        double p = result.getNumOfTotal() > 0
+                ? (double) result.getNumOfInside() / result.getNumOfTotal()
+                : Math.PI / 4;
+        double k = 4.0 * z / halfWidth;
+        double required = Math.ceil(k * k * p * (1.0 - p));
+        if (required >= Long.MAX_VALUE) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(MIN_TRIALS, (long) required);
+    }
+
+    /**
+     * 両側の信頼水準に対応する標準正規分布の分位点を返す
+     *
+     * @param confidence 信頼水準(0 &lt; confidence &lt; 1)
+     * @return 分位点。例えば0.95に対して約1.96
+     */
+    public static double zScore(double confidence) {
+        return quantile(0.5 + confidence / 2);
+    }
+
+    /**
+     * 標準正規分布の分位点をAcklamの有理関数近似で求める(相対誤差1.15e-9以下)
+     */
+    private static double quantile(double p) {
+        final double[] a = {-3.969683028665376e+01, 2.209460984245205e+02, -2.759285104469687e+02,
+            1.383577518672690e+02, -3.066479806614716e+01, 2.506628277459239e+00};
+        final double[] b = {-5.447609879822406e+01, 1.615858368580409e+02, -1.556989798598866e+02,
+            6.680131188771972e+01, -1.328068155288572e+01};
+        final double[] c = {-7.784894002430293e-03, -3.223964580411365e-01, -2.400758277161838e+00,
+            -2.549732539343734e+00, 4.374664141464968e+00, 2.938163982698783e+00};
+        final double[] d = {7.784695709041462e-03, 3.224671290700398e-01, 2.445134137142996e+00,
+            3.754408661907416e+00};
+        final double low = 0.02425;
+        if (p < low) {
+            double q = Math.sqrt(-2 * Math.log(p));
+            return (((((c[0] * q + c[1]) * q + c[2]) * q + c[3]) * q + c[4]) * q + c[5])
+                    / ((((d[0] * q + d[1]) * q + d[2]) * q + d[3]) * q + 1);
+        }
+        if (p > 1 - low) {
+            double q = Math.sqrt(-2 * Math.log(1 - p));
+            return -(((((c[0] * q + c[1]) * q + c[2]) * q + c[3]) * q + c[4]) * q + c[5])
+                    / ((((d[0] * q + d[1]) * q + d[2]) * q + d[3]) * q + 1);
+        }
+        double q = p - 0.5;
+        double r = q * q;
+        return (((((a[0] * r + a[1]) * r + a[2]) * r + a[3]) * r + a[4]) * r + a[5]) * q
+                / (((((b[0] * r + b[1]) * r + b[2]) * r + b[3]) * r + b[4]) * r + 1);
+    }
+
+}
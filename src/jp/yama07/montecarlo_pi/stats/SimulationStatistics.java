@@ -0,0 +1,128 @@
+package jp.yama07.montecarlo_pi.stats;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import jp.yama07.montecarlo_pi.SimulationResult;
+
+/**
+ * 複数の計算スレッドから同時に更新される試行回数の集計
+ *
+ * LongAdderによるストライプ化されたカウンタを用いるため、更新するスレッド間で
+ * 競合しない。値は画面の更新などを行う1つのスレッドがsnapshot()で読み出す。
+ * スレッドごとのプロット数は、そのスレッドだけが書き込むカウンタに記録する。
+ * 加えられた結果はスレッドごとのOnlineStatisticsにもバッチとして渡し、推定値の誤差を
+ * 逐次求める。スレッド間の集計の合成は読み出す側のsnapshotOnline()で行う。
+ * スレッドごとのカウンタはreset()で破棄するため、スレッドプールを作り直しても
+ * 終了したスレッドの分が残り続けることはない。
+ *
+ * @author yama07
+ */
+public class SimulationStatistics {
+
+    private final LongAdder numOfInside = new LongAdder();
+    private final LongAdder numOfTotal = new LongAdder();
+    private volatile long startNanos = System.nanoTime();
+    // スレッドごとのプロット数と推定値の誤差
+    private final Queue<WorkerCounter> workers = new ConcurrentLinkedQueue<>();
+    private volatile ThreadLocal<WorkerCounter> worker = newWorker();
+
+    /**
+     * 試行の結果を加える。<BR>
+     * プロット数を先に加えるため、snapshot()の結果で円の内部の数がプロット数を超えることはない。
+     *
+     * @param inside 円の内部にプロットされた数
+     * @param total プロット数
+     */
+    public void add(long inside, long total) {
+        if (total <= 0) {
+            return;
+        }
+        numOfTotal.add(total);
+        numOfInside.add(inside);
+        worker.get().add(inside, total);
+    }
+
+    /**
+     * 現時点での集計を返す。経過時間は最後にreset()してからの実時間とする。
+     *
+     * @return 集計結果
+     */
+    public SimulationResult snapshot() {
+        long inside = numOfInside.sum();
+        long total = numOfTotal.sum();
+        return new SimulationResult(inside, total, System.nanoTime() - startNanos);
+    }
+
+    /**
+     * 加えられた結果をバッチとする、推定値の誤差の集計を返す。<BR>
+     * スレッドごとの集計を合成するため、計算スレッドとは競合しない。
+     *
+     * @return 全スレッドの誤差の集計
+     */
+    public OnlineStatistics.Snapshot snapshotOnline() {
+        OnlineStatistics.Snapshot merged = OnlineStatistics.Snapshot.EMPTY;
+        for (WorkerCounter counter : workers) {
+            merged = merged.merge(counter.online.snapshot());
+        }
+        return merged;
+    }
+
+    /**
+     * 現時点でのスレッドごとのプロット数を返す
+     *
+     * @return スレッド名をキーとするプロット数。同じ名前のスレッドの分は合計する
+     */
+    public Map<String, Long> snapshotWorkers() {
+        Map<String, Long> map = new LinkedHashMap<>();
+        for (WorkerCounter counter : workers) {
+            map.merge(counter.name, counter.total.get(), Long::sum);
+        }
+        return map;
+    }
+
+    /**
+     * 集計を0に戻し、スレッドごとのカウンタを破棄する。更新中に呼び出してはならない。
+     */
+    public void reset() {
+        numOfInside.reset();
+        numOfTotal.reset();
+        // 以後に加えるスレッドには新しいカウンタを割り当てる
+        worker = newWorker();
+        workers.clear();
+        startNanos = System.nanoTime();
+    }
+
+    private ThreadLocal<WorkerCounter> newWorker() {
+        return ThreadLocal.withInitial(() -> {
+            WorkerCounter counter = new WorkerCounter(Thread.currentThread().getName());
+            workers.add(counter);
+            return counter;
+        });
+    }
+
+    /**
+     * 1つのスレッドだけが書き込むカウンタと誤差の集計
+     */
+    private static final class WorkerCounter {
+
+        private final String name;
+        private final AtomicLong total = new AtomicLong();
+        private final OnlineStatistics online = new OnlineStatistics();
+
+        WorkerCounter(String name) {
+            this.name = name;
+        }
+
+        void add(long inside, long n) {
+            // 書き込むスレッドは1つのため、不可分な加算は要らない
+            total.lazySet(total.get() + n);
+            online.add(inside, n);
+        }
+
+    }
+
+}
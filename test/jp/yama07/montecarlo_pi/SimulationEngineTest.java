@@ -0,0 +1,102 @@
+package jp.yama07.montecarlo_pi;
+
+import java.util.ArrayList;
+import java.util.List;
+import jp.yama07.montecarlo_pi.kernel.HitKernel;
+import jp.yama07.montecarlo_pi.kernel.HitKernels;
+import jp.yama07.montecarlo_pi.qmc.SamplingMethod;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 同じシードであれば、並列度やカーネル、試行の分け方によらず結果が一致することを確かめるテスト
+ *
+ * @author yama07
+ */
+public class SimulationEngineTest {
+
+    // 基準とする試行。ブロックの境界に揃わない試行回数とする
+    static final long SEED = 42L;
+    static final long TRIALS = 5000123L;
+    static final long INSIDE = 3926982L;
+
+    private final List<SimulationEngine> engines = new ArrayList<>();
+
+    @After
+    public void shutdown() {
+        for (SimulationEngine engine : engines) {
+            engine.shutdown();
+        }
+    }
+
+    private SimulationEngine engine(int parallelism) {
+        SimulationEngine engine = new SimulationEngine(SEED, parallelism);
+        engines.add(engine);
+        return engine;
+    }
+
+    @Test
+    public void runMatchesReference() {
+        SimulationResult result = engine(1).run(TRIALS);
+        assertEquals(TRIALS, result.getNumOfTotal());
+        assertEquals(INSIDE, result.getNumOfInside());
+    }
+
+    @Test
+    public void runIsIndependentOfParallelismAndKernel() {
+        List<HitKernel> kernels = new ArrayList<>(HitKernels.all());
+        kernels.add(HitKernels.batched(256));
+        kernels.add(HitKernels.batched(1000));
+        for (int parallelism : new int[]{1, 2, 3, 8}) {
+            for (HitKernel kernel : kernels) {
+                SimulationEngine engine = engine(parallelism);
+                engine.setKernel(kernel);
+                assertEquals(kernel.getName() + " x" + parallelism, INSIDE, engine.run(TRIALS).getNumOfInside());
+            }
+        }
+    }
+
+    @Test
+    public void stepMatchesRun() {
+        SimulationEngine engine = engine(2);
+        // ブロックの境界をまたぐ大きさに分けて逐次に進める
+        long[] steps = {1L, 65535L, 65537L, 1000000L, 3L};
+        for (long n : steps) {
+            engine.step(n);
+        }
+        long done = engine.getResult().getNumOfTotal();
+        SimulationResult result = engine.step(TRIALS - done);
+        assertEquals(TRIALS, result.getNumOfTotal());
+        assertEquals(INSIDE, result.getNumOfInside());
+    }
+
+    @Test
+    public void samplingIsIndependentOfParallelism() {
+        long trials = 1000003L;
+        for (SamplingMethod sampling : SamplingMethod.values()) {
+            SimulationEngine sequential = engine(1);
+            sequential.setSampling(sampling);
+            SimulationEngine parallel = engine(3);
+            parallel.setSampling(sampling);
+            parallel.setKernel(HitKernels.batched());
+            assertEquals(sampling.name(), sequential.run(trials).getNumOfInside(), parallel.run(trials).getNumOfInside());
+        }
+    }
+
+    @Test
+    public void sweepRowsMatchDirectRuns() {
+        // ブロックの境界の前後とブロック内の点を含める
+        long[] checkpoints = {1L, 1000L, 65535L, 65536L, 65537L, 200000L, 2000000L, TRIALS};
+        SweepResult sweep = engine(3).sweep(checkpoints);
+        assertEquals(checkpoints.length, sweep.size());
+        SimulationEngine direct = engine(2);
+        for (int i = 0; i < checkpoints.length; i++) {
+            assertEquals(checkpoints[i], sweep.getNumOfTotal(i));
+            assertEquals("row " + i, direct.run(checkpoints[i]).getNumOfInside(), sweep.getNumOfInside(i));
+        }
+        assertEquals(INSIDE, sweep.getLastResult().getNumOfInside());
+    }
+
+}
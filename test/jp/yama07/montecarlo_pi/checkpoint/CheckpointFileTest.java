@@ -0,0 +1,88 @@
+package jp.yama07.montecarlo_pi.checkpoint;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import jp.yama07.montecarlo_pi.qmc.SamplingMethod;
+import jp.yama07.montecarlo_pi.random.RandomAlgorithm;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * チェックポイントファイルの記録と読み込みのテスト
+ *
+ * @author yama07
+ */
+public class CheckpointFileTest {
+
+    private final Path path;
+
+    public CheckpointFileTest() throws IOException {
+        path = Files.createTempFile("checkpoint", ".bin");
+    }
+
+    @After
+    public void delete() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    @Test
+    public void reopenReturnsHeaderAndRecords() throws IOException {
+        try (CheckpointFile file = CheckpointFile.create(path, RandomAlgorithm.PCG32, SamplingMethod.SOBOL, 7L, 1000L)) {
+            file.append(100L, 80L);
+            file.append(300L, 230L);
+        }
+        try (CheckpointFile file = CheckpointFile.open(path)) {
+            assertEquals(RandomAlgorithm.PCG32, file.getAlgorithm());
+            assertEquals(SamplingMethod.SOBOL, file.getSampling());
+            assertEquals(7L, file.getSeed());
+            assertEquals(1000L, file.getTrials());
+            assertEquals(2L, file.getRecordCount());
+            assertEquals(100L, file.getRecord(0).getNumOfTotal());
+            assertEquals(80L, file.getRecord(0).getNumOfInside());
+            assertEquals(300L, file.getLastResult().getNumOfTotal());
+            assertEquals(230L, file.getLastResult().getNumOfInside());
+        }
+    }
+
+    @Test
+    public void recordsAcrossSegmentsSurviveReopen() throws IOException {
+        int records = 40000;
+        try (CheckpointFile file = CheckpointFile.create(path, RandomAlgorithm.XOSHIRO256PP, 1L, records)) {
+            for (int i = 1; i <= records; i++) {
+                file.append(i, i / 2);
+            }
+        }
+        try (CheckpointFile file = CheckpointFile.open(path)) {
+            assertEquals(records, file.getRecordCount());
+            assertEquals(records / 2, file.getLastResult().getNumOfInside());
+        }
+    }
+
+    @Test
+    public void tornRecordIsIgnoredAndOverwritten() throws IOException {
+        try (CheckpointFile file = CheckpointFile.create(path, RandomAlgorithm.XOSHIRO256PP, 1L, 1000L)) {
+            file.append(100L, 80L);
+            file.append(200L, 160L);
+        }
+        // 2つ目のレコードのチェック値を壊し、書き込み途中で停止した状態にする
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(8), 64 + 24 + 16);
+        }
+        try (CheckpointFile file = CheckpointFile.open(path)) {
+            assertEquals(1L, file.getRecordCount());
+            assertEquals(100L, file.getLastResult().getNumOfTotal());
+            file.append(150L, 120L);
+        }
+        try (CheckpointFile file = CheckpointFile.open(path)) {
+            assertEquals(2L, file.getRecordCount());
+            assertEquals(150L, file.getLastResult().getNumOfTotal());
+        }
+    }
+
+}
@@ -0,0 +1,116 @@
+package jp.yama07.montecarlo_pi.cli;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import jp.yama07.montecarlo_pi.HypersphereResult;
+import jp.yama07.montecarlo_pi.SimulationEngine;
+import jp.yama07.montecarlo_pi.SimulationResult;
+import jp.yama07.montecarlo_pi.cache.ResultCache;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 計算を途中から再開したり、キャッシュした結果を用いたりしても、
+ * 最初から計算した場合と結果が一致することを確かめるテスト
+ *
+ * @author yama07
+ */
+public class MonteCarloCliTest {
+
+    private static final long SEED = 42L;
+    private static final long TRIALS = 5000123L;
+    private static final long INSIDE = 3926982L;
+
+    private final Path directory;
+    private final List<SimulationEngine> engines = new ArrayList<>();
+
+    public MonteCarloCliTest() throws IOException {
+        directory = Files.createTempDirectory("montecarlo-cli");
+    }
+
+    @After
+    public void cleanUp() throws IOException {
+        for (SimulationEngine engine : engines) {
+            engine.shutdown();
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    private static MonteCarloCli cli(String... args) {
+        MonteCarloCli cli = new MonteCarloCli();
+        cli.parse(args);
+        return cli;
+    }
+
+    private SimulationEngine engine(int threads) {
+        SimulationEngine engine = new SimulationEngine(SEED, threads);
+        engines.add(engine);
+        return engine;
+    }
+
+    @Test
+    public void checkpointResumeMatchesDirectRun() throws IOException {
+        Path path = directory.resolve("run.ckpt");
+        SimulationResult first = cli("--seed", "42", "--trials", "2000000", "--threads", "2")
+                .runWithCheckpoint(engine(2), path);
+        assertEquals(2000000L, first.getNumOfTotal());
+        // 別のスレッド数で、記録した続きから目標の試行回数まで計算する
+        SimulationResult resumed = cli("--seed", "42", "--trials", String.valueOf(TRIALS), "--threads", "3")
+                .runWithCheckpoint(engine(3), path);
+        assertEquals(TRIALS, resumed.getNumOfTotal());
+        assertEquals(INSIDE, resumed.getNumOfInside());
+    }
+
+    @Test
+    public void cachePrefixExtensionMatchesDirectRun() throws IOException {
+        String dir = directory.toString();
+        SimulationResult prefix = cli("--seed", "42", "--trials", "2000000", "--threads", "2", "--cache", dir)
+                .runCached(engine(2), new ResultCache(directory, ResultCache.DEFAULT_MAX_BYTES));
+        assertEquals(2000000L, prefix.getNumOfTotal());
+        // 保存した結果の続きだけを計算する
+        ResultCache cache = new ResultCache(directory, ResultCache.DEFAULT_MAX_BYTES);
+        SimulationResult extended = cli("--seed", "42", "--trials", String.valueOf(TRIALS), "--threads", "3", "--cache", dir)
+                .runCached(engine(3), cache);
+        assertEquals(TRIALS, extended.getNumOfTotal());
+        assertEquals(INSIDE, extended.getNumOfInside());
+        assertEquals(2, cache.size());
+        // 同じ条件では保存した結果をそのまま返す
+        SimulationResult hit = cli("--seed", "42", "--trials", String.valueOf(TRIALS), "--cache", dir)
+                .runCached(engine(1), new ResultCache(directory, ResultCache.DEFAULT_MAX_BYTES));
+        assertEquals(INSIDE, hit.getNumOfInside());
+    }
+
+    @Test
+    public void cachedHypersphereMatchesDirectRun() throws IOException {
+        String dir = directory.toString();
+        HypersphereResult direct = engine(2).runHypersphere(3, 1000003L);
+        ResultCache cache = new ResultCache(directory, ResultCache.DEFAULT_MAX_BYTES);
+        for (int i = 0; i < 2; i++) {
+            HypersphereResult cached = cli("--seed", "42", "--trials", "1000003", "--threads", "2", "--cache", dir)
+                    .runHypersphere(engine(2), cache, 3);
+            assertEquals(direct.getNumOfInside(), cached.getNumOfInside());
+            assertEquals(direct.getNumOfTotal(), cached.getNumOfTotal());
+        }
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void parseSweepExpandsRanges() {
+        assertArrayEquals(new long[]{1000L, 10000L, 50000L, 100000L}, MonteCarloCli.parseSweep("1e3:1e5:x10,5e4"));
+        assertArrayEquals(new long[]{1L, 5L, 9L, 10L}, MonteCarloCli.parseSweep("1:10:4"));
+        assertArrayEquals(new long[]{3L, 7L}, MonteCarloCli.parseSweep("7,3,7"));
+    }
+
+}
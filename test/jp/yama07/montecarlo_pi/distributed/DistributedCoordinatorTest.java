@@ -0,0 +1,41 @@
+package jp.yama07.montecarlo_pi.distributed;
+
+import java.io.IOException;
+import jp.yama07.montecarlo_pi.SimulationEngine;
+import jp.yama07.montecarlo_pi.SimulationResult;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * ワーカープロセスに分配して計算した結果が、1つのプロセスで計算した場合と一致することを確かめるテスト
+ *
+ * ワーカーはこのテストと同じクラスパスで起動する。
+ *
+ * @author yama07
+ */
+public class DistributedCoordinatorTest {
+
+    private static final long SEED = 42L;
+    private static final long TRIALS = 5000123L;
+    private static final long INSIDE = 3926982L;
+
+    private final SimulationEngine engine = new SimulationEngine(SEED, 1);
+
+    @After
+    public void shutdown() {
+        engine.shutdown();
+    }
+
+    @Test
+    public void distributedMatchesLocal() throws IOException, InterruptedException {
+        DistributedCoordinator coordinator = new DistributedCoordinator(engine, 2, 1);
+        // 少ないブロックずつ割り当て、ワーカー間で範囲が入り混じるようにする
+        coordinator.setBlocksPerTask(3);
+        SimulationResult result = coordinator.run(TRIALS);
+        assertEquals(TRIALS, result.getNumOfTotal());
+        assertEquals(INSIDE, result.getNumOfInside());
+    }
+
+}
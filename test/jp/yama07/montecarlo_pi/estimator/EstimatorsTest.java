@@ -0,0 +1,83 @@
+package jp.yama07.montecarlo_pi.estimator;
+
+import java.util.ArrayList;
+import java.util.List;
+import jp.yama07.montecarlo_pi.SimulationEngine;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 各推定量の推定値が並列度によらず一致し、円周率に収束し、分散が小さくなることを確かめるテスト
+ *
+ * @author yama07
+ */
+public class EstimatorsTest {
+
+    private static final long SEED = 42L;
+    // ブロックの境界に揃わない試行回数とする
+    private static final long TRIALS = 1000003L;
+
+    private final List<SimulationEngine> engines = new ArrayList<>();
+
+    @After
+    public void shutdown() {
+        for (SimulationEngine engine : engines) {
+            engine.shutdown();
+        }
+    }
+
+    private EstimatorResult estimate(String name, int parallelism) {
+        SimulationEngine engine = new SimulationEngine(SEED, parallelism);
+        engines.add(engine);
+        return engine.estimate(Estimators.forName(name), TRIALS);
+    }
+
+    /**
+     * 推定値を確かめる
+     *
+     * @param name 推定量の名前
+     * @param expected シード42、TRIALS回での推定値
+     * @return 並列度1での結果
+     */
+    private EstimatorResult check(String name, double expected) {
+        EstimatorResult result = estimate(name, 1);
+        assertEquals(name, TRIALS, result.getNumOfSamples());
+        assertEquals(name, expected, result.getEstimate(), 0.0);
+        assertEquals(name, expected, estimate(name, 3).getEstimate(), 0.0);
+        // 真の円周率との差は標準誤差の数倍に収まる
+        assertTrue(name, Math.abs(result.getEstimate() - Math.PI) < 4.0 * result.getStandardError());
+        return result;
+    }
+
+    @Test
+    public void estimatesMatchReferenceAndConverge() {
+        EstimatorResult hit = check("hit", 3.1427505717482846);
+        check("antithetic", 3.142018573944278);
+        check("control", 3.1422711556989382);
+        check("integral", 3.1417376112602695);
+        check("importance", 3.141389827025726);
+
+        // 円の内部判定による推定量はrun()の結果と一致する
+        SimulationEngine engine = new SimulationEngine(SEED, 2);
+        engines.add(engine);
+        assertEquals(4.0 * engine.run(TRIALS).getNumOfInside() / TRIALS, hit.getEstimate(), 1e-15);
+    }
+
+    @Test
+    public void varianceReductionIsOrdered() {
+        double hit = estimate("hit", 2).getVarianceReduction();
+        assertEquals(1.0, hit, 1e-3);
+        double control = estimate("control", 2).getVarianceReduction();
+        double antithetic = estimate("antithetic", 2).getVarianceReduction();
+        double integral = estimate("integral", 2).getVarianceReduction();
+        double importance = estimate("importance", 2).getVarianceReduction();
+        assertTrue("control " + control, control > 2.0 * hit);
+        assertTrue("antithetic " + antithetic, antithetic > control);
+        assertTrue("integral " + integral, integral > antithetic);
+        assertTrue("importance " + importance, importance > integral);
+    }
+
+}
@@ -0,0 +1,40 @@
+package jp.yama07.montecarlo_pi.metrics;
+
+import jp.yama07.montecarlo_pi.SimulationEngine;
+import jp.yama07.montecarlo_pi.SimulationResult;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 採取した計測値が実行結果と一致することを確かめるテスト
+ *
+ * @author yama07
+ */
+public class SimulationMetricsTest {
+
+    @Test
+    public void sampleMatchesEngineResult() {
+        SimulationEngine engine = new SimulationEngine(42L, 3);
+        try {
+            SimulationMetrics metrics = new SimulationMetrics(engine.getStatistics());
+            SimulationResult result = engine.run(5000123L);
+            metrics.sample();
+            assertEquals(result.getNumOfTotal(), metrics.getNumOfTotal());
+            assertEquals(result.getNumOfInside(), metrics.getNumOfInside());
+            long perWorker = 0L;
+            for (long total : metrics.getWorkerSamples().values()) {
+                perWorker += total;
+            }
+            assertEquals(result.getNumOfTotal(), perWorker);
+
+            String text = metrics.toPrometheus();
+            assertTrue(text, text.contains("\nmontecarlo_samples_total " + result.getNumOfTotal() + "\n"));
+            assertTrue(text, text.contains("\nmontecarlo_inside_total " + result.getNumOfInside() + "\n"));
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+}
@@ -0,0 +1,109 @@
+package jp.yama07.montecarlo_pi.scheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import jp.yama07.montecarlo_pi.RandomPointGenerator;
+import jp.yama07.montecarlo_pi.SimulationEngine;
+import jp.yama07.montecarlo_pi.SimulationResult;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * ジョブの結果、優先度による配分および取り消しを確かめるテスト
+ *
+ * @author yama07
+ */
+public class JobSchedulerTest {
+
+    private static final long TIMEOUT_SECONDS = 60;
+
+    private JobScheduler scheduler;
+
+    @After
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+
+    private static SimulationResult get(SimulationJob job) throws Exception {
+        return job.getFuture().get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void resultsMatchDirectRuns() throws Exception {
+        scheduler = new JobScheduler(3, 3);
+        long[] seeds = {42L, 7L, 123456789L};
+        long[] trials = {5000123L, 65536L, 1000003L};
+        List<SimulationJob> jobs = new ArrayList<>();
+        for (int i = 0; i < seeds.length; i++) {
+            JobRequest request = new JobRequest(trials[i], seeds[i]);
+            request.setPriority(JobRequest.MIN_PRIORITY + 4 * i);
+            jobs.add(scheduler.submit(request));
+        }
+        for (int i = 0; i < seeds.length; i++) {
+            SimulationEngine engine = new SimulationEngine(seeds[i], 1);
+            try {
+                SimulationResult expected = engine.run(trials[i]);
+                SimulationResult actual = get(jobs.get(i));
+                assertEquals(expected.getNumOfTotal(), actual.getNumOfTotal());
+                assertEquals("seed " + seeds[i], expected.getNumOfInside(), actual.getNumOfInside());
+            } finally {
+                engine.shutdown();
+            }
+        }
+        assertEquals(3926982L, get(jobs.get(0)).getNumOfInside());
+        assertTrue(scheduler.getQueuedJobs().isEmpty());
+    }
+
+    @Test
+    public void higherPriorityGetsProportionallyMoreChunks() throws Exception {
+        // 1スレッドで1ブロックずつ割り当て、配分を割り当ての順序だけで決める
+        scheduler = new JobScheduler(1, 1);
+        long trials = 400L * RandomPointGenerator.BLOCK_SIZE;
+        JobRequest high = new JobRequest(trials, 1L);
+        high.setPriority(JobRequest.MAX_PRIORITY);
+        JobRequest low = new JobRequest(trials, 2L);
+        low.setPriority(JobRequest.MAX_PRIORITY / 2);
+        SimulationJob highJob = scheduler.submit(high);
+        SimulationJob lowJob = scheduler.submit(low);
+
+        // 優先度が2倍のジョブが終わった時点で、もう一方はおよそ半分まで進んでいる
+        CompletableFuture<Double> lowProgress = highJob.getFuture().thenApply(r -> lowJob.getProgress());
+        double progress = lowProgress.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertTrue("low progress " + progress, progress > 0.4 && progress < 0.6);
+        assertEquals(trials, get(lowJob).getNumOfTotal());
+    }
+
+    @Test
+    public void cancelCompletesFutureAndFreesSlots() throws Exception {
+        scheduler = new JobScheduler(1, 1);
+        SimulationJob running = scheduler.submit(new JobRequest(100000L * RandomPointGenerator.BLOCK_SIZE, 1L));
+        while (running.getProgress() == 0.0) {
+            Thread.sleep(1);
+        }
+        assertTrue(running.cancel());
+        assertFalse(running.cancel());
+        assertTrue(running.isDone());
+        try {
+            get(running);
+            fail("cancelled job completed");
+        } catch (CancellationException ex) {
+            // 取り消したジョブはCancellationExceptionで完了する
+        }
+        assertFalse(scheduler.getQueuedJobs().contains(running));
+
+        // 唯一の計算枠が解放されていれば、後のジョブも完了する
+        SimulationJob next = scheduler.submit(new JobRequest(5000123L, 42L));
+        assertEquals(3926982L, get(next).getNumOfInside());
+    }
+
+}
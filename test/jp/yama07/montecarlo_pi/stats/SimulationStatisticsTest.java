@@ -0,0 +1,98 @@
+package jp.yama07.montecarlo_pi.stats;
+
+import jp.yama07.montecarlo_pi.SimulationResult;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 複数のスレッドから加えた結果が失われずに集計されることを確かめるテスト
+ *
+ * @author yama07
+ */
+public class SimulationStatisticsTest {
+
+    private static final int THREADS = 4;
+    private static final int BATCHES = 10000;
+
+    /**
+     * スレッドtのi番目のバッチの円の内部の数
+     */
+    private static long inside(int t, int i) {
+        return 700 + (t * 31 + i * 17) % 200;
+    }
+
+    @Test
+    public void concurrentAddsAreNotLost() throws InterruptedException {
+        SimulationStatistics statistics = new SimulationStatistics();
+        OnlineStatistics expected = new OnlineStatistics();
+        Thread[] threads = new Thread[THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            final int id = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < BATCHES; i++) {
+                    statistics.add(inside(id, i), 1000L);
+                }
+            }, "adder-" + t);
+            threads[t].start();
+        }
+        long inside = 0L;
+        for (int t = 0; t < THREADS; t++) {
+            threads[t].join();
+            for (int i = 0; i < BATCHES; i++) {
+                inside += inside(t, i);
+                expected.add(inside(t, i), 1000L);
+            }
+        }
+
+        SimulationResult result = statistics.snapshot();
+        assertEquals(1000L * THREADS * BATCHES, result.getNumOfTotal());
+        assertEquals(inside, result.getNumOfInside());
+        long perThread = 0L;
+        for (long total : statistics.snapshotWorkers().values()) {
+            perThread += total;
+        }
+        assertEquals(result.getNumOfTotal(), perThread);
+
+        // スレッドごとの集計を合成した結果は、1つのスレッドで加えた結果と一致する
+        OnlineStatistics.Snapshot merged = statistics.snapshotOnline();
+        OnlineStatistics.Snapshot sequential = expected.snapshot();
+        assertEquals(sequential.getBatches(), merged.getBatches());
+        assertEquals(sequential.getNumOfTotal(), merged.getNumOfTotal());
+        assertEquals(sequential.getMean(), merged.getMean(), 1e-12);
+        assertEquals(sequential.getVariance(), merged.getVariance(), 1e-9 * sequential.getVariance());
+    }
+
+    @Test
+    public void resetClearsAllCounters() {
+        SimulationStatistics statistics = new SimulationStatistics();
+        statistics.add(3L, 4L);
+        statistics.reset();
+        assertEquals(0L, statistics.snapshot().getNumOfTotal());
+        assertEquals(0L, statistics.snapshotOnline().getBatches());
+        statistics.add(1L, 2L);
+        assertEquals(2L, statistics.snapshot().getNumOfTotal());
+        assertEquals(1L, statistics.snapshotOnline().getBatches());
+    }
+
+    @Test
+    public void resetDropsFinishedWorkers() throws InterruptedException {
+        SimulationStatistics statistics = new SimulationStatistics();
+        for (int t = 0; t < THREADS; t++) {
+            Thread thread = new Thread(() -> statistics.add(1L, 2L), "finished-" + t);
+            thread.start();
+            thread.join();
+        }
+        assertEquals(THREADS, statistics.snapshotWorkers().size());
+        statistics.reset();
+        assertTrue(statistics.snapshotWorkers().isEmpty());
+        // 以前に加えたスレッドも、加え直せば新しいカウンタに数えられる
+        statistics.add(1L, 2L);
+        statistics.add(1L, 2L);
+        assertEquals(1, statistics.snapshotWorkers().size());
+        assertEquals(4L, statistics.snapshotWorkers().get(Thread.currentThread().getName()).longValue());
+        assertEquals(2L, statistics.snapshotOnline().getBatches());
+    }
+
+}